@@ -0,0 +1,98 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Class Benchmarks:
+ * Runs the benchmarks with the GC profiler, so the allocation rate is reported next to the time of each benchmark.
+ * The full results are written to results.json. A summary with the score, error and allocations of each benchmark,
+ * and the machine it ran on, is written to summary.json, which can be compared with the baseline in baseline.json.
+ *
+ * Normal JMH options can be given, like a regular expression to only run some of the benchmarks.
+ */
+public class Benchmarks {
+    private static final String SUMMARY = "summary.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(commandLine.getResult().orElse("results.json"));
+
+        //Run every benchmark if none were chosen.
+        if(commandLine.getIncludes().isEmpty())
+            builder.include(Benchmarks.class.getPackage().getName() + ".*");
+
+        //With one core, the heatmap tasks run one after another, and the task sizes can't be compared.
+        if(Runtime.getRuntime().availableProcessors() < 2)
+            System.err.println("Only one processor is available. Record the baseline on a machine with several cores.");
+
+        writeSummary(new Runner(builder.build()).run());
+    }
+
+    /**
+     * Write the score, error and allocations of each benchmark, and the machine they ran on.
+     * @param results Results of the benchmarks.
+     * @throws IOException If the summary can't be written.
+     */
+    private static void writeSummary(Collection<RunResult> results) throws IOException {
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(SUMMARY), StandardCharsets.UTF_8))) {
+            out.println("{");
+            out.printf("  \"machine\": {\"processors\": %d, \"jvm\": %s, \"os\": %s},%n",
+                    Runtime.getRuntime().availableProcessors(),
+                    quote(System.getProperty("java.vm.name") + " " + System.getProperty("java.runtime.version")),
+                    quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")));
+            out.println("  \"results\": [");
+
+            int written = 0;
+            for(RunResult result : results) {
+                BenchmarkParams params = result.getParams();
+                Result primary = result.getPrimaryResult();
+                Result allocated = result.getSecondaryResults().get("gc.alloc.rate.norm");
+
+                StringBuilder values = new StringBuilder();
+                for(String key : params.getParamsKeys()) {
+                    values.append(values.length() == 0 ? "" : ", ").append(quote(key)).append(": ").append(quote(params.getParam(key)));
+                }
+
+                String name = params.getBenchmark();
+                out.printf("    {\"benchmark\": %s, \"params\": {%s}, \"mode\": %s, \"score\": %s, \"error\": %s, \"unit\": %s, \"allocated\": %s}%s%n",
+                        quote(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1)), values,
+                        quote(params.getMode().shortLabel()), format(primary.getScore()), format(primary.getScoreError()),
+                        quote(primary.getScoreUnit()), allocated == null ? "null" : format(allocated.getScore()),
+                        ++written < results.size() ? "," : "");
+            }
+
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,83 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.canvas.BlockWriter;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class BlockWriterBenchmark:
+ * Measures placing a batch of blocks with the block writer, in random order over a 256 by 256 area.
+ *
+ * Each call swaps between two materials, so every block is placed. The skipped benchmark writes the material the
+ * blocks already have, to measure how much checking the current block costs. The location benchmark places the same
+ * blocks one at a time through a location, the way canvases placed them before the block writer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockWriterBenchmark {
+    @Param({"10000", "100000"})
+    public int blocks;
+
+    private final MemoryWorld world = new MemoryWorld();
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private boolean stone = false;
+
+    @Setup
+    public void setup() {
+        xs = new int[blocks];
+        ys = new int[blocks];
+        zs = new int[blocks];
+
+        Random random = new Random(42);
+        for(int i = 0; i < blocks; i++) {
+            xs[i] = random.nextInt(256) - 128;
+            ys[i] = 64 + random.nextInt(64);
+            zs[i] = random.nextInt(256) - 128;
+        }
+
+        write(Material.STONE);
+    }
+
+    @Benchmark
+    public BlockWriter placed() {
+        return write((stone = !stone) ? Material.STONE : Material.WHITE_CONCRETE);
+    }
+
+    @Benchmark
+    public BlockWriter skipped() {
+        return write(world.getType(xs[0], ys[0], zs[0]));
+    }
+
+    @Benchmark
+    public World location() {
+        Material material = (stone = !stone) ? Material.STONE : Material.WHITE_CONCRETE;
+        World target = world.getWorld();
+        for(int i = 0; i < blocks; i++) {
+            new Location(target, xs[i], ys[i], zs[i]).getBlock().setType(material);
+        }
+
+        return target;
+    }
+
+    private BlockWriter write(Material material) {
+        BlockWriter writer = new BlockWriter(world.getWorld(), blocks);
+        for(int i = 0; i < blocks; i++) {
+            writer.add(xs[i], ys[i], zs[i], material);
+        }
+
+        writer.sort();
+        writer.write(0, writer.getSize());
+        return writer;
+    }
+}
@@ -0,0 +1,139 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.canvas.BlockScheduler;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.MemorySink;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class CanvasBenchmark:
+ * Measures building a canvas and drawing plots on it, all the way to placing the blocks.
+ *
+ * The scheduler is flushed at the end of each call, so the time includes sorting and placing the blocks,
+ * and not only calculating them. The blocks are placed in a memory sink, or in a memory world through the same
+ * calls the plugin makes to a server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanvasBenchmark {
+    private static final int HEIGHT = 128;
+    private static final UUID OWNER = UUID.randomUUID();
+
+    @Param({"64", "256", "1024"})
+    public int width;
+
+    @Param({"sink", "world"})
+    public String target;
+
+    private List<Plot> first;
+    private List<Plot> second;
+    private boolean drawFirst = false;
+
+    @Setup
+    public void setup() throws Expression.MalformedExpressionException {
+        first = Arrays.asList(
+                new Function("a", Material.BLUE_CONCRETE, new Expression("sin(x)*4", 'x')),
+                new Function("b", Material.RED_CONCRETE, new Expression("x^2/10-3", 'x')));
+        second = Arrays.asList(
+                new Function("a", Material.BLUE_CONCRETE, new Expression("cos(x)*4", 'x')),
+                new Function("b", Material.RED_CONCRETE, new Expression("-x^2/10+3", 'x')));
+    }
+
+    /**
+     * Place every block of an empty canvas.
+     */
+    @Benchmark
+    public Canvas build(EmptyCanvas state) {
+        state.canvas.build();
+        state.scheduler.flush();
+        return state.canvas;
+    }
+
+    /**
+     * Replace the plots of a built canvas, and place the blocks that changed.
+     * Each call swaps between two sets of plots, so there is always something to place.
+     */
+    @Benchmark
+    public Canvas redraw(BuiltCanvas state) {
+        state.canvas.replacePlots((drawFirst = !drawFirst) ? first : second);
+        state.scheduler.flush();
+        return state.canvas;
+    }
+
+    /**
+     * Make a canvas for the target of the benchmark.
+     * JMH gives the states their own instance of the benchmark, so the world and scheduler are passed in from the state.
+     */
+    private Canvas createCanvas(MemoryWorld world, BlockScheduler scheduler) {
+        if(target.equals("world"))
+            return createCanvas(world, width, scheduler);
+
+        MemorySink sink = new MemorySink(0, 64, 0, width - 1, 64 + HEIGHT - 1, 0);
+        return new Canvas("bench", new ValueRange(-10, 10, -5, 5),
+                new Location(null, 0, 64, 0), new Location(null, width - 1, 64 + HEIGHT - 1, 0),
+                Material.WHITE_CONCRETE, scheduler, OWNER, sink);
+    }
+
+    /**
+     * Make a canvas along the x-axis, with its lower left corner at y 64.
+     * @param world World to place the canvas in.
+     * @param width Number of blocks along the x-axis.
+     * @param scheduler Scheduler that places the blocks.
+     * @return Canvas. It is not built.
+     */
+    static Canvas createCanvas(MemoryWorld world, int width, BlockScheduler scheduler) {
+        return new Canvas("bench", new ValueRange(-10, 10, -5, 5),
+                new Location(world.getWorld(), 0, 64, 0), new Location(world.getWorld(), width - 1, 64 + HEIGHT - 1, 0),
+                Material.WHITE_CONCRETE, scheduler, OWNER);
+    }
+
+    /**
+     * Class EmptyCanvas:
+     * A new canvas in an empty world for each call, so every block is placed.
+     */
+    @State(Scope.Thread)
+    public static class EmptyCanvas {
+        private final MemoryWorld world = new MemoryWorld();
+        private final BlockScheduler scheduler = new BlockScheduler(5);
+        private Canvas canvas;
+
+        @Setup(Level.Invocation)
+        public void setup(CanvasBenchmark benchmark) {
+            world.clear();
+            canvas = benchmark.createCanvas(world, scheduler);
+        }
+    }
+
+    /**
+     * Class BuiltCanvas:
+     * A canvas that is built once, so only the redrawn plots are measured.
+     */
+    @State(Scope.Thread)
+    public static class BuiltCanvas {
+        private final MemoryWorld world = new MemoryWorld();
+        private final BlockScheduler scheduler = new BlockScheduler(5);
+        private Canvas canvas;
+
+        @Setup
+        public void setup(CanvasBenchmark benchmark) {
+            canvas = benchmark.createCanvas(world, scheduler);
+            canvas.build();
+            scheduler.flush();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.canvas.CanvasBounds;
+import edu.ntnu.tobiasth.mineplot.canvas.CanvasIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class CanvasIndexBenchmark:
+ * Measures finding the canvas of a block, with few and with many canvases on the server.
+ *
+ * The canvases are spread over an area that grows with their number, as on a server, so about as many blocks are
+ * found with both. A lookup should take about the same time, except for the larger map not fitting in the CPU cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanvasIndexBenchmark {
+    private static final UUID OWNER = new UUID(1, 2);
+    private static final UUID WORLD = new UUID(5, 6);
+    private static final int LOOKUPS = 4096;
+
+    @Param({"1000", "100000"})
+    public int canvases;
+
+    private final CanvasIndex index = new CanvasIndex();
+    private final int[] xs = new int[LOOKUPS];
+    private final int[] ys = new int[LOOKUPS];
+    private final int[] zs = new int[LOOKUPS];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        //Canvases of up to 32 by 32 blocks, in planes along x or z, that don't overlap.
+        int area = (int) Math.sqrt(canvases) * 40;
+        Random random = new Random(1);
+        for(int i = 0; i < canvases; i++) {
+            int x = random.nextInt(area) - area / 2;
+            int z = random.nextInt(area) - area / 2;
+            int y = random.nextInt(32);
+            int length = 1 + random.nextInt(32);
+            CanvasBounds bounds = random.nextBoolean()
+                    ? new CanvasBounds(WORLD, x, y, z, x + length, y + length, z)
+                    : new CanvasBounds(WORLD, x, y, z, x, y + length, z + length);
+
+            try {
+                index.add(OWNER, "c" + i, bounds);
+            }
+            catch(IllegalArgumentException e) {
+                i--;
+            }
+        }
+
+        for(int i = 0; i < LOOKUPS; i++) {
+            xs[i] = random.nextInt(area) - area / 2;
+            ys[i] = random.nextInt(64);
+            zs[i] = random.nextInt(area) - area / 2;
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        int i = next;
+        next = (i + 1) & (LOOKUPS - 1);
+        return index.contains(WORLD, xs[i], ys[i], zs[i]);
+    }
+}
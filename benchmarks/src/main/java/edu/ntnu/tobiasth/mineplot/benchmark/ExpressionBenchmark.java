@@ -0,0 +1,73 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class ExpressionBenchmark:
+ * Measures how long it takes to evaluate an expression, one value at a time and for a whole canvas width in one call.
+ *
+ * The expressions are like the ones players plot, with nested functions, powers and unary minus.
+ * Expressions compile themselves after a few thousand evaluations, so the results are for compiled expressions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    private static final int SAMPLES = 1024;
+
+    @Param({
+            "x",
+            "3*x^2-2*x+1",
+            "-x^3+4*x",
+            "sin(x)*cos(x/2)",
+            "sqrt(x^2+1)-exp(-x/4)",
+            "log(1+x^2)*atan(x)",
+            "sin(cos(tan(x)))^2",
+            "-(x-1)*(x+2)*(x-3)/10",
+            "cbrt(x)*-sin(3*x)"
+    })
+    public String expression;
+
+    private Expression parsed;
+    private double[] values;
+    private double[] out;
+
+    @Setup
+    public void setup() throws Expression.MalformedExpressionException {
+        parsed = new Expression(expression, 'x');
+        values = new double[SAMPLES];
+        out = new double[SAMPLES];
+
+        for(int i = 0; i < SAMPLES; i++) {
+            values[i] = -10 + 20.0 * i / (SAMPLES - 1);
+        }
+    }
+
+    /**
+     * Evaluate one value at a time, like the plot types that sample a few points.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void getValue(Blackhole blackhole) {
+        for(double value : values) {
+            blackhole.consume(parsed.getValue(value));
+        }
+    }
+
+    /**
+     * Evaluate all values in one call, like a function plot does for the columns of a canvas.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] evaluate() {
+        parsed.evaluate(values, out);
+        return out;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.canvas.Grid;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class FunctionBenchmark:
+ * Measures how long it takes to find the blocks a function passes through, for canvases of different widths.
+ * This is the part of Function.draw that calculates, and does not place blocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark {
+    @Param({"64", "256", "1024", "4096"})
+    public int width;
+
+    @Param({"sin(3*x)*x/2", "tan(x)", "x^3-4*x"})
+    public String expression;
+
+    private Function function;
+    private Grid grid;
+
+    @Setup
+    public void setup() throws Expression.MalformedExpressionException {
+        function = new Function("f", Material.BLUE_CONCRETE, new Expression(expression, 'x'));
+        grid = new Grid(new ValueRange(-10, 10, -5, 5), width - 1, 127);
+    }
+
+    @Benchmark
+    public BitSet getCells() {
+        return function.getCells(grid);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.plot.Colormap;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.Heatmap;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class HeatmapBenchmark:
+ * Measures how long it takes to render a heatmap with different numbers of rows in each task,
+ * to find a good default for the heatmap-tile-rows setting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeatmapBenchmark {
+    @Param({"1", "4", "8", "16", "64"})
+    public int tileRows;
+
+    @Param({"256"})
+    public int size;
+
+    private final ValueRange valueRange = new ValueRange(-5, 5, -5, 5);
+    private ForkJoinPool pool;
+    private Heatmap heatmap;
+
+    @Setup
+    public void setup() throws Expression.MalformedExpressionException {
+        //Like the plugin, leave one processor for the main server thread.
+        pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        heatmap = new Heatmap("h", new Expression("sin(x)*cos(y)+x*y/10", 'x', 'y'), Colormap.DEFAULT, pool, tileRows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Material[] render() {
+        return heatmap.render(valueRange, size, size, null);
+    }
+}
@@ -0,0 +1,205 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Class MemoryWorld:
+ * A stand-in for a Minecraft world, so blocks can be placed without a server.
+ *
+ * Only the calls the plugin makes to place blocks are supported: looking up a chunk or a block, and reading and
+ * setting the material of a block. The materials are stored in one array for each chunk. Any other call throws an
+ * UnsupportedOperationException, so a benchmark that starts using more of the world fails instead of measuring nothing.
+ * A stand-in server is also set, which only finds memory worlds by UUID, so saved canvases can be read.
+ *
+ * The world is made of proxies, which cost more per block than a real server does. Compare the results of
+ * benchmarks that use it with each other, and not with the time a server takes.
+ */
+final class MemoryWorld {
+    private static final int CHUNK_BLOCKS = 16 * 256 * 16;
+    private static final ConcurrentHashMap<UUID, World> WORLDS = new ConcurrentHashMap<>();
+    private final UUID uid = UUID.randomUUID();
+    private final HashMap<Long, ChunkData> chunks = new HashMap<>();
+    private final World world = proxy(World.class, (proxy, method, args) -> {
+        switch(method.getName()) {
+            case "getUID": return uid;
+            case "getName": return "memory";
+            case "getChunkAt": {
+                if(args.length == 2 && args[0] instanceof Integer)
+                    return getChunk((Integer) args[0], (Integer) args[1]);
+                break;
+            }
+            case "getBlockAt": {
+                if(args.length == 1 && args[0] instanceof Location) {
+                    Location location = (Location) args[0];
+                    return getBlockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                }
+                if(args.length == 3)
+                    return getBlockAt((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+                break;
+            }
+        }
+        return handleObjectMethod(proxy, method.getName(), args);
+    });
+    private long placed = 0;
+
+    MemoryWorld() {
+        setServer();
+        WORLDS.put(uid, world);
+    }
+
+    /**
+     * Get the world, as the plugin sees it.
+     * @return World.
+     */
+    World getWorld() {
+        return world;
+    }
+
+    /**
+     * Get the material of a block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @return Material, or air if the block was never set.
+     */
+    Material getType(int x, int y, int z) {
+        ChunkData chunk = chunks.get(getKey(x >> 4, z >> 4));
+        Material material = chunk == null ? null : chunk.materials[getIndex(x & 15, y, z & 15)];
+        return material == null ? Material.AIR : material;
+    }
+
+    /**
+     * Get how many blocks have been set since the world was made.
+     * @return Number of placed blocks.
+     */
+    long getPlaced() {
+        return placed;
+    }
+
+    /**
+     * Remove every block, so the world is empty again. Worlds are kept so the server can find them,
+     * so a benchmark that needs an empty world for every call clears one instead of making a new one.
+     */
+    void clear() {
+        chunks.clear();
+    }
+
+    private Chunk getChunk(int chunkX, int chunkZ) {
+        return chunks.computeIfAbsent(getKey(chunkX, chunkZ), key -> new ChunkData(chunkX, chunkZ)).chunk;
+    }
+
+    private Block getBlockAt(int x, int y, int z) {
+        return getChunk(x >> 4, z >> 4).getBlock(x & 15, y, z & 15);
+    }
+
+    private Block getBlock(Material[] blocks, int x, int y, int z, int chunkX, int chunkZ) {
+        int index = getIndex(x, y, z);
+
+        return proxy(Block.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getType": return blocks[index] == null ? Material.AIR : blocks[index];
+                case "setType": {
+                    blocks[index] = (Material) args[0];
+                    placed++;
+                    return null;
+                }
+                case "getX": return (chunkX << 4) + x;
+                case "getY": return y;
+                case "getZ": return (chunkZ << 4) + z;
+                case "getWorld": return world;
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    /**
+     * Set a stand-in server that finds memory worlds, if no server is set yet.
+     */
+    private static synchronized void setServer() {
+        if(Bukkit.getServer() != null)
+            return;
+
+        Logger logger = Logger.getLogger("MemoryWorld");
+        Bukkit.setServer(proxy(Server.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getWorld": {
+                    if(args[0] instanceof UUID)
+                        return WORLDS.get(args[0]);
+                    break;
+                }
+                case "getLogger": return logger;
+                case "getName": return "MemoryServer";
+                case "getVersion": return "memory";
+                case "getBukkitVersion": return "memory";
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        }));
+    }
+
+    /**
+     * Class ChunkData:
+     * The materials of a chunk, and the proxies for it and its blocks.
+     * The proxies are kept, so a benchmark does not measure making them every time.
+     */
+    private final class ChunkData {
+        private final Material[] materials = new Material[CHUNK_BLOCKS];
+        private final Block[] blocks = new Block[CHUNK_BLOCKS];
+        private final Chunk chunk;
+
+        private ChunkData(int chunkX, int chunkZ) {
+            chunk = proxy(Chunk.class, (proxy, method, args) -> {
+                switch(method.getName()) {
+                    case "getX": return chunkX;
+                    case "getZ": return chunkZ;
+                    case "getWorld": return world;
+                    case "getBlock": {
+                        int x = (Integer) args[0];
+                        int y = (Integer) args[1];
+                        int z = (Integer) args[2];
+                        int index = getIndex(x, y, z);
+
+                        if(blocks[index] == null)
+                            blocks[index] = getBlock(materials, x, y, z, chunkX, chunkZ);
+                        return blocks[index];
+                    }
+                }
+                return handleObjectMethod(proxy, method.getName(), args);
+            });
+        }
+    }
+
+    private static int getIndex(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    private static long getKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static Object handleObjectMethod(Object proxy, String name, Object[] args) {
+        switch(name) {
+            case "hashCode": return System.identityHashCode(proxy);
+            case "equals": return proxy == args[0];
+            case "toString": return "MemoryWorld";
+            default: throw new UnsupportedOperationException(String.format("The memory world does not support %s.", name));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MemoryWorld.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
@@ -0,0 +1,114 @@
+package edu.ntnu.tobiasth.mineplot.benchmark;
+
+import edu.ntnu.tobiasth.mineplot.canvas.BlockScheduler;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.ExpressionCache;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import edu.ntnu.tobiasth.mineplot.store.CanvasStore;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class StoreBenchmark:
+ * Measures saving and loading a canvas with a few plots, as bytes in memory and through the canvas store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final int STORE_BATCH = 1000;
+
+    @Param({"64", "256"})
+    public int width;
+
+    private final BlockScheduler scheduler = new BlockScheduler(5);
+    private final ExpressionCache expressionCache = new ExpressionCache(64);
+    private Canvas canvas;
+    private byte[] data;
+    private Path directory;
+    private CanvasStore store;
+    private long sequence = 0;
+
+    @Setup
+    public void setup() throws IOException, Expression.MalformedExpressionException {
+        canvas = CanvasBenchmark.createCanvas(new MemoryWorld(), width, scheduler);
+        canvas.build();
+        canvas.addPlot(new Function("a", Material.BLUE_CONCRETE, new Expression("sin(x)*4", 'x')));
+        canvas.addPlot(new Function("b", Material.RED_CONCRETE, new Expression("x^2/10-3", 'x')));
+        canvas.addPlot(new Function("c", Material.LIME_CONCRETE, new Expression("atan(x)", 'x')));
+        canvas.drawPlots();
+        scheduler.flush();
+
+        data = write();
+        directory = Files.createTempDirectory("mineplot-benchmark");
+        store = new CanvasStore(directory.resolve("canvases.dat"));
+        store.write(OWNER, "bench", ++sequence, data);
+    }
+
+    @TearDown(Level.Iteration)
+    public void compact() throws IOException {
+        store.compact();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(directory.resolve("canvases.dat"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        canvas.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a canvas from bytes. The plots are read as well, but not drawn again.
+     */
+    @Benchmark
+    public Canvas read() throws IOException {
+        return Canvas.read(new DataInputStream(new ByteArrayInputStream(data)), scheduler, OWNER, this::readPlot);
+    }
+
+    /**
+     * Add the canvas to the store. The store is not synced, like between the saves of the plugin.
+     * Each write adds a record to the file, so the writes are counted in batches and the file is compacted between them.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = STORE_BATCH)
+    @Measurement(iterations = 20, batchSize = STORE_BATCH)
+    public long storeWrite() throws IOException {
+        store.write(OWNER, "bench", ++sequence, data);
+        return sequence;
+    }
+
+    @Benchmark
+    public byte[] storeRead() throws IOException {
+        return store.read(OWNER, "bench");
+    }
+
+    private Plot readPlot(DataInput in) throws IOException {
+        return Plot.read(in, expressionCache, ForkJoinPool.commonPool(), 8);
+    }
+}
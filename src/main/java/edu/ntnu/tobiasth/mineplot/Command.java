@@ -1,24 +1,78 @@
 package edu.ntnu.tobiasth.mineplot;
 
+import static edu.ntnu.tobiasth.mineplot.Command.Argument.*;
+
 public enum Command {
-    CANVAS_ADD("canvas add"),
-    CANVAS_CLEAR("canvas clear"),
-    CANVAS_REMOVE("canvas remove"),
+    CANVAS_ADD("canvas add", TEXT, NUMBER, NUMBER, NUMBER, NUMBER, MATERIAL),
+    CANVAS_CLEAR("canvas clear", CANVAS),
+    CANVAS_REMOVE("canvas remove", CANVAS),
     CANVAS_LIST("canvas list"),
-    PLOT_ADD_FUNCTION("plot add function"),
-    PLOT_ADD_POINT("plot add point"),
-    PLOT_REMOVE("plot remove"),
-    PLOT_LIST("plot list"),
+    PLOT_ADD_FUNCTION("plot add function", TEXT, TEXT, TEXT, CANVAS, MATERIAL),
+    PLOT_ADD_HEATMAP("plot add heatmap", TEXT, TEXT, TEXT, TEXT, CANVAS),
+    PLOT_ADD_PARAMETRIC("plot add parametric", TEXT, TEXT, TEXT, TEXT, NUMBER, NUMBER, CANVAS, MATERIAL),
+    PLOT_ADD_POLAR("plot add polar", TEXT, TEXT, TEXT, NUMBER, NUMBER, CANVAS, MATERIAL),
+    PLOT_ADD_POINT("plot add point", TEXT, NUMBER, NUMBER, CANVAS, MATERIAL),
+    PLOT_REMOVE("plot remove", CANVAS, PLOT),
+    PLOT_MOVE("plot move", CANVAS, PLOT, NUMBER),
+    PLOT_RECOLOR("plot recolor", CANVAS, PLOT, MATERIAL),
+    PLOT_LIST("plot list", CANVAS),
+    UNDO("undo"),
+    REDO("redo"),
+    PREVIEW("preview", CANVAS),
+    COMMIT("commit", CANVAS),
+    PROGRESS("progress"),
+    STATS("stats"),
     TOOL("tool"),
     HELP("help");
 
-    private final String identifier;
+    private final String[] words;
+    private final Argument[] arguments;
 
-    Command(String identifier) {
-        this.identifier = identifier;
+    Command(String identifier, Argument... arguments) {
+        this.words = identifier.split(" ");
+        this.arguments = arguments;
     }
 
+    /**
+     * Get the words the command is made of. The array is shared, and must not be changed.
+     * @return Command words.
+     */
     public String[] getIdentifierWords() {
-        return identifier.split(" ");
+        return words;
+    }
+
+    /**
+     * Get what kind of value an argument of the command is.
+     * @param index Argument index, after the command words.
+     * @return Argument kind, or null if the command does not take that many arguments.
+     */
+    public Argument getArgument(int index) {
+        return index >= 0 && index < arguments.length ? arguments[index] : null;
+    }
+
+    /**
+     * Get the index of the first argument of a kind.
+     * @param argument Argument kind.
+     * @return Argument index, or -1 if the command does not take it.
+     */
+    public int getArgumentIndex(Argument argument) {
+        for(int i = 0; i < arguments.length; i++) {
+            if(arguments[i] == argument)
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Enum Argument:
+     * Kinds of command arguments, so the right values can be suggested.
+     */
+    public enum Argument {
+        TEXT,
+        NUMBER,
+        CANVAS,
+        PLOT,
+        MATERIAL
     }
-}
\ No newline at end of file
+}
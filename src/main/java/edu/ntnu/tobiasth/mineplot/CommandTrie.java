@@ -0,0 +1,89 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Class CommandTrie:
+ * The words of every command in a tree, so a command is found by following the words that were sent.
+ *
+ * The tree is built once from the Command enum. The children of each word are sorted, so the words that can come next
+ * are suggested straight from the tree. Words are not case sensitive.
+ */
+class CommandTrie {
+    private final Node root = new Node();
+
+    /**
+     * Build the tree.
+     * @param commands Commands to add.
+     */
+    CommandTrie(Command[] commands) {
+        for(Command command : commands) {
+            Node node = root;
+            for(String word : command.getIdentifierWords()) {
+                node = node.children.computeIfAbsent(word.toLowerCase(), key -> new Node());
+            }
+            node.command = command;
+        }
+    }
+
+    /**
+     * Find the command the sent words start with.
+     * @param args Sent words.
+     * @return Command, or null if the words are not a command.
+     */
+    Command find(String[] args) {
+        Node node = root;
+        Command command = null;
+
+        for(String arg : args) {
+            node = node.children.get(arg.toLowerCase());
+            if(node == null)
+                break;
+            if(node.command != null)
+                command = node.command;
+        }
+
+        return command;
+    }
+
+    /**
+     * Suggest the command words that can come next.
+     * @param args Sent words, where the last is the one being typed.
+     * @return Sorted suggestions.
+     */
+    List<String> complete(String[] args) {
+        Node node = root;
+        for(int i = 0; i < args.length - 1; i++) {
+            node = node.children.get(args[i].toLowerCase());
+            if(node == null)
+                return Collections.emptyList();
+        }
+
+        String prefix = args.length == 0 ? "" : args[args.length - 1].toLowerCase();
+        return startingWith(node.children.navigableKeySet(), prefix);
+    }
+
+    /**
+     * Get the words in a sorted set that start with a prefix.
+     * Only the words that match are looked at, so it stays fast for large sets.
+     * @param words Sorted words.
+     * @param prefix Prefix.
+     * @return Matching words, in order.
+     */
+    static List<String> startingWith(NavigableSet<String> words, String prefix) {
+        return new ArrayList<>(words.subSet(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    /**
+     * Class Node:
+     * A command word, with the words that can follow it.
+     */
+    private static final class Node {
+        private final TreeMap<String, Node> children = new TreeMap<>();
+        private Command command = null;
+    }
+}
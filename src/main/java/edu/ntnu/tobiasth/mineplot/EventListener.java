@@ -5,7 +5,10 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.util.Objects;
 
@@ -16,6 +19,27 @@ class EventListener implements Listener {
         this.mp = plugin;
     }
 
+    @EventHandler(ignoreCancelled = true)
+    public void onBlockBreakEvent(BlockBreakEvent event) {
+        if(mp.isCanvasBlock(event.getBlock())) {
+            event.getPlayer().sendMessage(Message.CANVAS_PROTECTED);
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onBlockPlaceEvent(BlockPlaceEvent event) {
+        if(mp.isCanvasBlock(event.getBlockPlaced())) {
+            event.getPlayer().sendMessage(Message.CANVAS_PROTECTED);
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuitEvent(PlayerQuitEvent event) {
+        mp.commitPreviews(event.getPlayer());
+    }
+
     @EventHandler
     public void onPlayerInteractEvent(PlayerInteractEvent event) {
         Player player = event.getPlayer();
@@ -0,0 +1,96 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.Change;
+
+import java.util.ArrayDeque;
+
+/**
+ * Class Journal:
+ * The changes a player can undo and redo.
+ *
+ * The journal has a memory limit. When a new change goes over it, the oldest changes are forgotten.
+ * Making a new change forgets everything that could be redone.
+ */
+public class Journal {
+    private final long maxMemory;
+    private final ArrayDeque<Change> undoable = new ArrayDeque<>();
+    private final ArrayDeque<Change> redoable = new ArrayDeque<>();
+    private long memory = 0;
+
+    /**
+     * Define a new journal.
+     * @param maxMemory Maximum number of bytes the changes can take.
+     */
+    public Journal(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * Add a change that was just made.
+     * @param change Change.
+     */
+    public void record(Change change) {
+        for(Change forgotten : redoable) {
+            memory -= forgotten.getMemorySize();
+        }
+        redoable.clear();
+
+        undoable.addLast(change);
+        memory += change.getMemorySize();
+
+        while(memory > maxMemory && !undoable.isEmpty()) {
+            memory -= undoable.pollFirst().getMemorySize();
+        }
+    }
+
+    /**
+     * Take the last change that can be undone, and move it to the changes that can be redone.
+     * @return Change to undo, or null if there is none.
+     */
+    public Change undo() {
+        Change change = undoable.pollLast();
+        if(change != null)
+            redoable.addLast(change);
+
+        return change;
+    }
+
+    /**
+     * Take the last change that was undone, and move it back to the changes that can be undone.
+     * @return Change to redo, or null if there is none.
+     */
+    public Change redo() {
+        Change change = redoable.pollLast();
+        if(change != null)
+            undoable.addLast(change);
+
+        return change;
+    }
+
+    /**
+     * Forget all changes to a canvas, like when it is removed.
+     * @param canvas Canvas.
+     */
+    public void forget(Canvas canvas) {
+        for(Change change : undoable) {
+            if(change.getCanvas() == canvas)
+                memory -= change.getMemorySize();
+        }
+        for(Change change : redoable) {
+            if(change.getCanvas() == canvas)
+                memory -= change.getMemorySize();
+        }
+
+        undoable.removeIf(change -> change.getCanvas() == canvas);
+        redoable.removeIf(change -> change.getCanvas() == canvas);
+    }
+
+    /**
+     * Get about how many bytes the journal takes in memory.
+     * @return Memory size in bytes.
+     */
+    public long getMemory() {
+        return memory;
+    }
+}
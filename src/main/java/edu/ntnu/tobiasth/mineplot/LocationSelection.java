@@ -23,4 +23,18 @@ public class LocationSelection {
     public void setRight(Location right) {
         this.right = right;
     }
+
+    /**
+     * Get the number of blocks a canvas between the selected blocks would have.
+     * The canvas is one block thick, so the area is its length along the ground times its height.
+     * @return Number of blocks, or 0 if both blocks are not selected.
+     */
+    public long getArea() {
+        if(Objects.isNull(left) || Objects.isNull(right))
+            return 0;
+
+        long length = Math.max(Math.abs(left.getBlockX() - right.getBlockX()), Math.abs(left.getBlockZ() - right.getBlockZ())) + 1;
+        long height = Math.abs(left.getBlockY() - right.getBlockY()) + 1;
+        return length * height;
+    }
 }
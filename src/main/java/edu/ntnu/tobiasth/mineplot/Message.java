@@ -12,14 +12,31 @@ public abstract class Message {
     public static final String CANVAS_CLEAR_SUCCESS = "Successfully cleared the canvas.";
     public static final String CANVAS_REMOVE_SUCCESS = "Successfully removed the canvas.";
     public static final String CANVAS_EXISTS = "A canvas with that name already exists.";
+    public static final String CANVAS_OVERLAPS = "The canvas would overlap another canvas.";
+    public static final String CANVAS_PROTECTED = "That block is part of a canvas.";
     public static final String NO_CANVASES = "There are no canvases to display.";
     public static final String POINT_OUTSIDE_CANVAS = "The given point was outside the canvas limits.";
 
     public static final String PLOT_ADD_SUCCESS = "Successfully added the new plot.";
+    public static final String PLOT_ADD_STARTED = "Calculating the new plot, it will be drawn when it is done.";
+    public static final String PLOT_RENDER_FAILED = "The plot could not be calculated.";
     public static final String PLOT_REMOVE_SUCCESS = "Successfully removed the plot.";
+    public static final String PLOT_MOVE_SUCCESS = "Successfully moved the plot.";
+    public static final String PLOT_RECOLOR_SUCCESS = "Successfully changed the material of the plot.";
+    public static final String PLOT_NOT_RECOLORABLE = "The colors of a heatmap can not be changed.";
     public static final String PLOT_EXISTS = "A plot with that name already exists on the given canvas.";
     public static final String NO_PLOTS = "There are no plots to display.";
 
+    public static final String UNDO_SUCCESS = "Successfully undid the last change.";
+    public static final String REDO_SUCCESS = "Successfully redid the last undone change.";
+    public static final String NOTHING_TO_UNDO = "There are no changes to undo.";
+    public static final String NOTHING_TO_REDO = "There are no changes to redo.";
+
+    public static final String PREVIEW_STARTED = "Changes to the canvas are now only shown to you. Use /mp commit to place them in the world.";
+    public static final String PREVIEW_SENT = "Sent the preview of the canvas again.";
+    public static final String PREVIEW_COMMITTED = "Successfully placed the previewed canvas in the world.";
+    public static final String NOT_PREVIEWED = "The canvas is not being previewed. Use /mp preview to start.";
+
     public static final String TOGGLE_ON = "Toggled on the coordinate selection tool.";
     public static final String TOGGLE_OFF = "Toggled off the coordinate selection tool.";
     public static final String SET_LEFT_SELECTION = "Set the left block selection.";
@@ -30,12 +47,20 @@ public abstract class Message {
     public static final String INVALID_VALUE_RANGE = "The given value range is not valid.";
     public static final String INVALID_NUMBER = "One of the given numbers is not valid.";
     public static final String INVALID_EXPRESSION = "The given expression is not valid.";
+    public static final String INVALID_PARAMETER_RANGE = "The start of the parameter range must be less than its end.";
     public static final String INVALID_MATERIAL = "The given material does not exist.";
+    public static final String INVALID_PLOT_POSITION = "The given position is not valid. It must be between 1 and the number of plots.";
     public static final String INVALID_PLOT_NAME = "A plot with that name does not exist on the given canvas.";
     public static final String INVALID_CANVAS_NAME = "A canvas with that name does not exist.";
     public static final String INVALID_CANVAS_DIMENSIONS = "The given coordinates are not valid. The canvas must be one thick.";
 
     public static String CANVAS_LIST(String playerName) { return String.format("Canvases for player '%s':", playerName); }
     public static String PLOT_LIST(String canvasName) { return String.format("Plots for canvas '%s':", canvasName); }
+    public static String PROGRESS(double progress, long playerBlocks, long totalBlocks) { return String.format("Your blocks are %.0f%% placed, %s are left. %s blocks are queued for all players.", progress * 100, playerBlocks, totalBlocks); }
+    public static String CANVAS_TOO_LARGE(long area, long maxArea) { return String.format("The canvas would have %s blocks, but canvases can have at most %s blocks.", area, maxArea); }
+    public static String TOO_MANY_PLOTS(int maxPlots) { return String.format("The canvas already has %s plots, which is as many as a canvas can have.", maxPlots); }
+    public static String QUOTA_TOO_LARGE(long blocks, long evaluations) { return String.format("This would place about %s blocks and calculate about %s values, which is more than your quota allows. Try a smaller canvas or plot.", blocks, evaluations); }
+    public static String QUOTA_EXCEEDED(long blocks, long evaluations, double seconds) { return String.format("This would place about %s blocks and calculate about %s values. Your quota allows it in %.0f seconds, please try again then.", blocks, evaluations, Math.ceil(seconds)); }
+    public static String QUOTA_QUEUED(long blocks, long evaluations, double seconds) { return String.format("This will place about %s blocks and calculate about %s values. It is queued by your quota, and starts in %.0f seconds.", blocks, evaluations, Math.ceil(seconds)); }
     public static String TAB(String message) { return String.format("    %s", message); }
 }
\ No newline at end of file
@@ -1,36 +1,198 @@
 package edu.ntnu.tobiasth.mineplot;
 
+import edu.ntnu.tobiasth.mineplot.canvas.BlockScheduler;
 import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.CanvasIndex;
+import edu.ntnu.tobiasth.mineplot.canvas.Change;
+import edu.ntnu.tobiasth.mineplot.canvas.Grid;
+import edu.ntnu.tobiasth.mineplot.canvas.PreviewSink;
+import edu.ntnu.tobiasth.mineplot.canvas.Terrain;
 import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.metrics.Metrics;
+import edu.ntnu.tobiasth.mineplot.metrics.Stats;
+import edu.ntnu.tobiasth.mineplot.plot.Colormap;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.ExpressionCache;
 import edu.ntnu.tobiasth.mineplot.plot.Function;
+import edu.ntnu.tobiasth.mineplot.plot.Heatmap;
+import edu.ntnu.tobiasth.mineplot.plot.Parametric;
 import edu.ntnu.tobiasth.mineplot.plot.Plot;
 import edu.ntnu.tobiasth.mineplot.plot.Point;
+import edu.ntnu.tobiasth.mineplot.plot.Polar;
+import edu.ntnu.tobiasth.mineplot.store.CanvasStore;
+import edu.ntnu.tobiasth.mineplot.store.Mutation;
+import edu.ntnu.tobiasth.mineplot.store.MutationLog;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.block.Block;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public class MinePlot extends JavaPlugin {
-    private final HashMap<UUID, HashMap<String, Canvas>> canvases = new HashMap<>();
+    private static final CommandTrie COMMANDS = new CommandTrie(Command.values());
+    private static final String UNLIMITED_PERMISSION = "mineplot.unlimited";
+    private static final TreeSet<String> MATERIALS = Arrays.stream(Material.values())
+            .filter(material -> material.isBlock() && !material.isLegacy())
+            .map(material -> material.name().toLowerCase())
+            .collect(Collectors.toCollection(TreeSet::new));
+    private final HashMap<UUID, TreeMap<String, Canvas>> canvases = new HashMap<>();
     private final HashMap<UUID, LocationSelection> locationSelections = new HashMap<>();
     private final ArrayList<UUID> activeTools = new ArrayList<>();
+    private final HashMap<UUID, Journal> journals = new HashMap<>();
+    private final HashMap<UUID, Quota> quotas = new HashMap<>();
+    private final Set<Canvas> unsavedCanvases = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final HashSet<UUID> loadedPlayers = new HashSet<>();
+    private final CanvasIndex canvasIndex = new CanvasIndex();
+    private ExpressionCache expressionCache;
+    private BlockScheduler blockScheduler;
+    private ForkJoinPool renderPool;
+    private int heatmapTileRows;
+    private long undoMemory;
+    private double quotaBlocksPerSecond;
+    private double quotaEvaluationsPerSecond;
+    private double quotaBurstSeconds;
+    private long quotaMaxWaitNanos;
+    private long maxCanvasArea;
+    private int maxPlots;
+    private CanvasStore canvasStore;
+    private MutationLog mutationLog;
+    private ExecutorService storeExecutor;
+    private Stats stats;
+    private @Nullable ObjectName statsName;
 
     /**
      * Built-in method that is called by the server when server is enabled.
      */
     @Override
     public void onEnable() {
+        //Create the config file if it does not exist, and read the settings from it.
+        saveDefaultConfig();
+        expressionCache = new ExpressionCache(Math.max(0, getConfig().getInt("expression-cache-size", 256)));
+        heatmapTileRows = Math.max(1, getConfig().getInt("heatmap-tile-rows", 8));
+        undoMemory = Math.max(0, getConfig().getLong("undo-memory-kb", 4096)) * 1024;
+        quotaBlocksPerSecond = Math.max(0, getConfig().getDouble("quota-blocks-per-second", 20000));
+        quotaEvaluationsPerSecond = Math.max(0, getConfig().getDouble("quota-evaluations-per-second", 2000000));
+        quotaBurstSeconds = Math.max(0, getConfig().getDouble("quota-burst-seconds", 5));
+        quotaMaxWaitNanos = (long) (Math.max(0, getConfig().getDouble("quota-max-wait-seconds", 30)) * 1e9);
+        maxCanvasArea = Math.max(1, getConfig().getLong("max-canvas-area", 65536));
+        maxPlots = Math.max(1, getConfig().getInt("max-plots-per-canvas", 16));
+
+        //Place queued blocks every tick, within the time budget.
+        blockScheduler = new BlockScheduler(getConfig().getDouble("block-budget-ms", 5));
+        Bukkit.getScheduler().runTaskTimer(this, blockScheduler, 1, 1);
+
+        //Leave one processor for the main server thread.
+        renderPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+        //Open the saved canvases. They are read when they are first used.
+        storeExecutor = Executors.newSingleThreadExecutor();
+        try {
+            getDataFolder().mkdirs();
+            canvasStore = new CanvasStore(new File(getDataFolder(), "canvases.dat").toPath());
+            mutationLog = new MutationLog(new File(getDataFolder(), "canvases.log").toPath(), canvasStore.getLastSequence());
+        }
+        catch(IOException e) {
+            getLogger().log(Level.SEVERE, "Could not open the saved canvases. Canvases will not be saved.", e);
+            canvasStore = null;
+        }
+
+        //Apply the changes that were logged after the last save, like when the server crashed.
+        //Then index where all saved canvases are, so their blocks are protected before they are loaded.
+        if(Objects.nonNull(mutationLog)) {
+            recoverCanvases();
+            indexCanvases();
+        }
+
+        //Save the canvases that changed since the last save.
+        long saveTicks = Math.max(1, getConfig().getLong("save-interval-seconds", 60)) * 20;
+        Bukkit.getScheduler().runTaskTimer(this, this::saveCanvases, saveTicks, saveTicks);
+
+        //Update the rates of the stats every second, and share them through JMX and a Prometheus file if enabled.
+        stats = new Stats(blockScheduler::getQueueDepth, () -> renderPool.getQueuedSubmissionCount() + renderPool.getQueuedTaskCount());
+        Bukkit.getScheduler().runTaskTimer(this, stats::sample, 20, 20);
+        if(getConfig().getBoolean("jmx", true))
+            registerStats();
+
+        String prometheusFile = getConfig().getString("prometheus-file", "");
+        if(Objects.nonNull(prometheusFile) && !prometheusFile.isEmpty()) {
+            Path path = getDataFolder().toPath().resolve(prometheusFile);
+            long prometheusTicks = Math.max(1, getConfig().getLong("prometheus-interval-seconds", 15)) * 20;
+            Bukkit.getScheduler().runTaskTimer(this, () -> writePrometheus(path), prometheusTicks, prometheusTicks);
+        }
+
         //Register the event listeners from the EventListener class.
         Bukkit.getPluginManager().registerEvents(new EventListener(this), this);
     }
 
+    /**
+     * Built-in method that is called by the server when server is disabled.
+     */
+    @Override
+    public void onDisable() {
+        renderPool.shutdownNow();
+        unregisterStats();
+
+        //Place the remaining blocks, so no canvas is left half drawn. Previews are placed too, as they are saved as previewed.
+        for(TreeMap<String, Canvas> playerCanvases : canvases.values()) {
+            playerCanvases.values().forEach(Canvas::commitPreview);
+        }
+        blockScheduler.flush();
+
+        //Save the last changes, and wait for them to be written.
+        saveCanvases();
+        storeExecutor.shutdown();
+        try {
+            storeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(Objects.nonNull(canvasStore)) {
+            try {
+                mutationLog.close();
+
+                //Drop the old saves of canvases when they take more space than the current ones.
+                if(canvasStore.getWastedBytes() > canvasStore.getLiveBytes())
+                    canvasStore.compact();
+                canvasStore.close();
+            }
+            catch(IOException e) {
+                getLogger().log(Level.SEVERE, "Could not close the saved canvases.", e);
+            }
+        }
+    }
+
     /**
      * Built-in method that is called by the server when a command sender issues a command.
      * @param sender Command sender. Not always a player.
@@ -41,6 +203,7 @@ public class MinePlot extends JavaPlugin {
      */
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull org.bukkit.command.Command command, @NotNull String label, @NotNull String[] args) {
+        long start = System.nanoTime();
         if(sender instanceof Player) {
             try {
                 handleCommand((Player) sender, args);
@@ -53,9 +216,64 @@ public class MinePlot extends JavaPlugin {
             sender.sendMessage(Message.SENDER_NOT_PLAYER);
         }
 
+        Metrics.COMMAND_NANOS.record(System.nanoTime() - start);
         return true;
     }
 
+    /**
+     * Built-in method that is called by the server when a player presses tab while typing a command.
+     * Suggests command words, then canvas names, plot names and materials where the command takes them.
+     * @param sender Command sender. Not always a player.
+     * @param command Command.
+     * @param alias Command alias.
+     * @param args Command arguments, where the last is the one being typed.
+     * @return Sorted suggestions.
+     */
+    @Override
+    public @NotNull List<String> onTabComplete(@NotNull CommandSender sender, @NotNull org.bukkit.command.Command command, @NotNull String alias, @NotNull String[] args) {
+        if(!(sender instanceof Player) || args.length == 0)
+            return Collections.emptyList();
+
+        //Suggest the next command word, if the command is not complete yet.
+        List<String> words = COMMANDS.complete(args);
+        if(!words.isEmpty())
+            return words;
+
+        @Nullable Command issued = COMMANDS.find(args);
+        if(Objects.isNull(issued))
+            return Collections.emptyList();
+
+        int commandLength = issued.getIdentifierWords().length;
+        @Nullable Command.Argument argument = issued.getArgument(args.length - 1 - commandLength);
+        if(Objects.isNull(argument))
+            return Collections.emptyList();
+
+        String prefix = args[args.length - 1];
+        UUID id = ((Player) sender).getUniqueId();
+        switch(argument) {
+            case CANVAS: {
+                return CommandTrie.startingWith(getCanvases(id).navigableKeySet(), prefix);
+            }
+            case PLOT: {
+                //Plots are suggested from the canvas given before them.
+                @Nullable Canvas canvas = getCanvases(id).get(args[commandLength + issued.getArgumentIndex(Command.Argument.CANVAS)]);
+                if(Objects.isNull(canvas))
+                    return Collections.emptyList();
+
+                return Arrays.stream(canvas.getPlots())
+                        .map(Plot::getName)
+                        .filter(name -> name.startsWith(prefix))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            case MATERIAL: {
+                return CommandTrie.startingWith(MATERIALS, prefix.toLowerCase());
+            }
+            default:
+                return Collections.emptyList();
+        }
+    }
+
     /**
      * Handle a player issued command.
      * @param sender Player that sent the command.
@@ -69,24 +287,8 @@ public class MinePlot extends JavaPlugin {
         }
 
         //Find the issued command.
-        @NotNull String[] finalArgs = args;
-        @Nullable Command command;
-        try {
-            command = (Command) Arrays.stream(Command.values()).filter(cmd -> {
-                String[] identifierWords = cmd.getIdentifierWords();
-                Iterator<String> sentWords = Arrays.stream(finalArgs).iterator();
-
-                for(String word : identifierWords) {
-                    if(!sentWords.hasNext() || !word.equalsIgnoreCase(sentWords.next())) {
-                        return false;
-                    }
-                }
-
-                return true;
-            }).toArray()[0];
-        }
-        //If no command matched the user command throw an exception.
-        catch(ArrayIndexOutOfBoundsException e) {
+        @Nullable Command command = COMMANDS.find(args);
+        if(Objects.isNull(command)) {
             sender.sendMessage(Message.UNKNOWN_COMMAND);
             return;
         }
@@ -120,6 +322,21 @@ public class MinePlot extends JavaPlugin {
                 plotAddFunction(sender, Arrays.stream(args).iterator());
                 return;
             }
+            case PLOT_ADD_HEATMAP: {
+                checkArgumentCount(args, 5);
+                plotAddHeatmap(sender, Arrays.stream(args).iterator());
+                return;
+            }
+            case PLOT_ADD_PARAMETRIC: {
+                checkArgumentCount(args, 8);
+                plotAddParametric(sender, Arrays.stream(args).iterator());
+                return;
+            }
+            case PLOT_ADD_POLAR: {
+                checkArgumentCount(args, 7);
+                plotAddPolar(sender, Arrays.stream(args).iterator());
+                return;
+            }
             case PLOT_ADD_POINT: {
                 checkArgumentCount(args, 5);
                 plotAddPoint(sender, Arrays.stream(args).iterator());
@@ -130,11 +347,47 @@ public class MinePlot extends JavaPlugin {
                 plotRemove(sender, Arrays.stream(args).iterator());
                 return;
             }
+            case PLOT_MOVE: {
+                checkArgumentCount(args, 3);
+                plotMove(sender, Arrays.stream(args).iterator());
+                return;
+            }
+            case PLOT_RECOLOR: {
+                checkArgumentCount(args, 3);
+                plotRecolor(sender, Arrays.stream(args).iterator());
+                return;
+            }
             case PLOT_LIST: {
                 checkArgumentCount(args, 1);
                 plotList(sender, Arrays.stream(args).iterator());
                 return;
             }
+            case UNDO: {
+                undo(sender);
+                return;
+            }
+            case REDO: {
+                redo(sender);
+                return;
+            }
+            case PREVIEW: {
+                checkArgumentCount(args, 1);
+                preview(sender, Arrays.stream(args).iterator());
+                return;
+            }
+            case COMMIT: {
+                checkArgumentCount(args, 1);
+                commit(sender, Arrays.stream(args).iterator());
+                return;
+            }
+            case PROGRESS: {
+                progress(sender);
+                return;
+            }
+            case STATS: {
+                stats.getReport().forEach(sender::sendMessage);
+                return;
+            }
             case TOOL: {
                 toggleTool(sender);
                 return;
@@ -168,19 +421,57 @@ public class MinePlot extends JavaPlugin {
 
         Material material = getMaterial(args.next());
 
-        Canvas canvas = new Canvas(name, valueRange, locations.getLeft(), locations.getRight(), material);
+        //Check the size before the canvas is created, as that takes memory for every block.
+        long area = locations.getArea();
+        if(area > maxCanvasArea)
+            throw new IllegalArgumentException(Message.CANVAS_TOO_LARGE(area, maxCanvasArea));
 
-        //Add canvas hashmap if user does not have one.
-        canvases.putIfAbsent(sender.getUniqueId(), new HashMap<>());
+        Canvas canvas = new Canvas(name, valueRange, locations.getLeft(), locations.getRight(), material, blockScheduler, sender.getUniqueId());
 
-        if(canvases.get(sender.getUniqueId()).containsKey(name))
+        if(getCanvases(sender.getUniqueId()).containsKey(name))
             throw new IllegalArgumentException(Message.CANVAS_EXISTS);
 
+        //Every block of the canvas is placed when it is built.
+        admit(sender, area, 0, () -> buildCanvas(sender, canvas));
+    }
+
+    /**
+     * Add a new canvas to the senders canvases, and build it.
+     * @param sender Player that sent the command.
+     * @param canvas Canvas to add.
+     * @throws IllegalArgumentException If a canvas with the same name was added, or it overlaps another canvas.
+     */
+    private void buildCanvas(@NotNull Player sender, @NotNull Canvas canvas) throws IllegalArgumentException {
+        String name = canvas.getName();
+        if(getCanvases(sender.getUniqueId()).containsKey(name))
+            throw new IllegalArgumentException(Message.CANVAS_EXISTS);
+
+        canvasIndex.add(sender.getUniqueId(), name, canvas.getBounds());
+
+        //Take the terrain before the canvas is built over it, and read it off the main thread.
+        Supplier<Terrain> terrain = canvas.snapshotTerrain();
+
         //Save and build canvas if it does not already exist.
-        canvases.get(sender.getUniqueId()).put(name, canvas);
+        getCanvases(sender.getUniqueId()).put(name, canvas);
         canvas.build();
+        logChange(canvas, Mutation.canvasAdd(canvas));
+
+        CompletableFuture.supplyAsync(terrain, renderPool)
+                .whenComplete((result, error) -> Bukkit.getScheduler().runTask(this, () -> {
+                    //Skip the canvas if it was removed in the meantime.
+                    if(getCanvases(sender.getUniqueId()).get(name) != canvas)
+                        return;
 
-        sender.sendMessage(Message.CANVAS_ADD_SUCCESS);
+                    if(Objects.isNull(error)) {
+                        canvas.setTerrain(result);
+                        logChange(canvas, Mutation.terrain(result));
+                    }
+                    else {
+                        getLogger().log(Level.WARNING, String.format("Could not read the terrain under canvas '%s'.", name), error);
+                    }
+                }));
+
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.CANVAS_ADD_SUCCESS));
     }
 
     /**
@@ -190,8 +481,9 @@ public class MinePlot extends JavaPlugin {
      */
     private void canvasClear(Player sender, Iterator<String> args) {
         Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
-        canvas.clear();
-        sender.sendMessage(Message.CANVAS_CLEAR_SUCCESS);
+        recordChange(sender, canvas, canvas.saveState(), canvas::clear);
+        logChange(canvas, Mutation.canvasClear());
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.CANVAS_CLEAR_SUCCESS));
     }
 
     /**
@@ -206,10 +498,26 @@ public class MinePlot extends JavaPlugin {
         //Remove blocks.
         canvas.destroy();
 
-        //Remove canvas from list.
-        canvases.get(sender.getUniqueId()).remove(name);
+        //Remove canvas from list, and forget the changes to it.
+        getCanvases(sender.getUniqueId()).remove(name);
+        canvasIndex.remove(sender.getUniqueId(), name);
+        getJournal(sender).forget(canvas);
+
+        //Remove the saved canvas after any save of it that is already queued.
+        long sequence = logChange(canvas, Mutation.canvasRemove());
+        unsavedCanvases.remove(canvas);
+        if(Objects.nonNull(canvasStore)) {
+            storeExecutor.execute(() -> {
+                try {
+                    canvasStore.remove(sender.getUniqueId(), name, sequence);
+                }
+                catch(IOException e) {
+                    getLogger().log(Level.SEVERE, String.format("Could not remove saved canvas '%s'.", name), e);
+                }
+            });
+        }
 
-        sender.sendMessage(Message.CANVAS_REMOVE_SUCCESS);
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.CANVAS_REMOVE_SUCCESS));
     }
 
     /**
@@ -220,38 +528,169 @@ public class MinePlot extends JavaPlugin {
         sender.sendMessage(Message.CANVAS_LIST(sender.getDisplayName()));
 
         //If sender has no canvases
-        if(!canvases.containsKey(sender.getUniqueId()) || canvases.get(sender.getUniqueId()).isEmpty()) {
+        if(getCanvases(sender.getUniqueId()).isEmpty()) {
             sender.sendMessage(Message.TAB(Message.NO_CANVASES));
             return;
         }
 
         //List canvases
-        for(@NotNull Canvas canvas : canvases.get(sender.getUniqueId()).values()) {
+        for(@NotNull Canvas canvas : getCanvases(sender.getUniqueId()).values()) {
             sender.sendMessage(Message.TAB(canvas.toString()));
         }
     }
 
     /**
      * Add a new function plot. Takes 5 arguments.
+     * The blocks are calculated off the main thread, and placed when they are done.
      * @param sender Player who sent the command.
      * @param args Command arguments.
      */
     private void plotAddFunction(@NotNull Player sender, @NotNull Iterator<String> args) {
         @NotNull String name = args.next();
-        @NotNull String expression = args.next();
-        char variable = args.next().toCharArray()[0];
+        @NotNull Expression expression = getExpression(args.next(), args.next().toCharArray()[0]);
         @NotNull Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
         @NotNull Material material = getMaterial(args.next());
 
         if(Arrays.stream(canvas.getPlots()).anyMatch(plot -> name.equals(plot.getName())))
             throw new IllegalArgumentException(Message.PLOT_EXISTS);
 
-        @NotNull Plot plot = new Function(name, material, expression, variable);
+        @NotNull Function plot = new Function(name, material, expression);
+        @NotNull Grid grid = canvas.getGrid();
+
+        renderPlot(sender, canvas, plot, () -> plot.getCells(grid), cells -> canvas.drawLayer(plot, cells));
+    }
 
+    /**
+     * Add a new heatmap plot. Takes 5 arguments.
+     * The values are calculated off the main thread, and the blocks are placed when they are done.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void plotAddHeatmap(@NotNull Player sender, @NotNull Iterator<String> args) {
+        @NotNull String name = args.next();
+        @NotNull String expressionText = args.next();
+        char xVariable = args.next().toCharArray()[0];
+        char yVariable = args.next().toCharArray()[0];
+        @NotNull Expression expression = getExpression(expressionText, xVariable, yVariable);
+        @NotNull Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+
+        if(Arrays.stream(canvas.getPlots()).anyMatch(plot -> name.equals(plot.getName())))
+            throw new IllegalArgumentException(Message.PLOT_EXISTS);
+
+        @NotNull Heatmap plot = new Heatmap(name, expression, Colormap.DEFAULT, renderPool, heatmapTileRows);
+
+        //Read the canvas on the main thread, as it might change while the values are calculated.
+        ValueRange valueRange = canvas.getValueRange();
+        int width = canvas.getBlocksX() + 1;
+        int height = canvas.getBlocksY() + 1;
+
+        //Blocks where the expression is not defined are left uncovered.
+        renderPlot(sender, canvas, plot, () -> plot.render(valueRange, width, height, null), raster -> plot.apply(canvas, raster));
+    }
+
+    /**
+     * Add a plot to a canvas, and calculate it off the main thread. The result is drawn on the main thread when it is done.
+     * The plot is added right away, so its name can't be taken while it is calculated.
+     * @param sender Player who sent the command.
+     * @param canvas Canvas to add the plot to.
+     * @param plot Plot to add.
+     * @param render Calculates the plot. Must not touch the world.
+     * @param apply Draws the calculated plot on the canvas.
+     * @param <T> Type of the calculated plot.
+     */
+    private <T> void renderPlot(@NotNull Player sender, @NotNull Canvas canvas, @NotNull Plot plot, @NotNull Supplier<T> render, @NotNull Consumer<T> apply) {
+        checkPlotCount(canvas);
+
+        int width = canvas.getBlocksX() + 1;
+        int height = canvas.getBlocksY() + 1;
+        admit(sender, plot.estimateBlocks(width, height), plot.estimateEvaluations(width, height), () -> {
+            //The canvas might have changed while the plot was queued.
+            if(getCanvases(sender.getUniqueId()).get(canvas.getName()) != canvas)
+                throw new IllegalArgumentException(Message.INVALID_CANVAS_NAME);
+            if(Arrays.stream(canvas.getPlots()).anyMatch(other -> plot.getName().equals(other.getName())))
+                throw new IllegalArgumentException(Message.PLOT_EXISTS);
+            checkPlotCount(canvas);
+
+            startRender(sender, canvas, plot, render, apply);
+        });
+    }
+
+    /**
+     * Add a plot to a canvas, and start calculating it. Called by renderPlot when the quota of the sender allows it.
+     */
+    private <T> void startRender(@NotNull Player sender, @NotNull Canvas canvas, @NotNull Plot plot, @NotNull Supplier<T> render, @NotNull Consumer<T> apply) {
         canvas.addPlot(plot);
-        plot.draw(canvas);
+        logChange(canvas, Mutation.plotAdd(plot));
 
-        sender.sendMessage(Message.PLOT_ADD_SUCCESS);
+        CompletableFuture.supplyAsync(render, renderPool)
+                .whenComplete((result, error) -> Bukkit.getScheduler().runTask(this, () -> {
+                    //Skip the plot if it was removed or the canvas was cleared in the meantime.
+                    if(!Arrays.asList(canvas.getPlots()).contains(plot))
+                        return;
+
+                    if(Objects.isNull(error)) {
+                        recordChange(sender, canvas, canvas.saveState().without(plot), () -> apply.accept(result));
+                        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.PLOT_ADD_SUCCESS));
+                    }
+                    else {
+                        canvas.removePlot(plot);
+                        logChange(canvas, Mutation.plotRemove(plot));
+                        sender.sendMessage(Message.PLOT_RENDER_FAILED);
+                    }
+                }));
+
+        sender.sendMessage(Message.PLOT_ADD_STARTED);
+    }
+
+    /**
+     * Add a new parametric curve plot. Takes 8 arguments.
+     * The blocks are calculated off the main thread, and placed when they are done.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void plotAddParametric(@NotNull Player sender, @NotNull Iterator<String> args) {
+        @NotNull String name = args.next();
+        @NotNull String xExpressionText = args.next();
+        @NotNull String yExpressionText = args.next();
+        char variable = args.next().toCharArray()[0];
+        @NotNull Expression xExpression = getExpression(xExpressionText, variable);
+        @NotNull Expression yExpression = getExpression(yExpressionText, variable);
+        double from = parseDouble(args.next());
+        double to = parseDouble(args.next());
+        @NotNull Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+        @NotNull Material material = getMaterial(args.next());
+
+        if(Arrays.stream(canvas.getPlots()).anyMatch(plot -> name.equals(plot.getName())))
+            throw new IllegalArgumentException(Message.PLOT_EXISTS);
+
+        @NotNull Parametric plot = new Parametric(name, material, xExpression, yExpression, from, to);
+        @NotNull Grid grid = canvas.getGrid();
+
+        renderPlot(sender, canvas, plot, () -> plot.getCells(grid), cells -> canvas.drawLayer(plot, cells));
+    }
+
+    /**
+     * Add a new polar curve plot. Takes 7 arguments.
+     * The blocks are calculated off the main thread, and placed when they are done.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void plotAddPolar(@NotNull Player sender, @NotNull Iterator<String> args) {
+        @NotNull String name = args.next();
+        @NotNull String expressionText = args.next();
+        @NotNull Expression expression = getExpression(expressionText, args.next().toCharArray()[0]);
+        double from = parseDouble(args.next());
+        double to = parseDouble(args.next());
+        @NotNull Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+        @NotNull Material material = getMaterial(args.next());
+
+        if(Arrays.stream(canvas.getPlots()).anyMatch(plot -> name.equals(plot.getName())))
+            throw new IllegalArgumentException(Message.PLOT_EXISTS);
+
+        @NotNull Polar plot = new Polar(name, material, expression, from, to);
+        @NotNull Grid grid = canvas.getGrid();
+
+        renderPlot(sender, canvas, plot, () -> plot.getCells(grid), cells -> canvas.drawLayer(plot, cells));
     }
 
     /**
@@ -270,9 +709,18 @@ public class MinePlot extends JavaPlugin {
         if(Arrays.stream(canvas.getPlots()).anyMatch(plot -> name.equals(plot.getName())))
             throw new IllegalArgumentException(Message.PLOT_EXISTS);
 
+        checkPlotCount(canvas);
+
+        //Check before the plot is added, so a point that can't be drawn is never saved with the canvas.
+        if(!canvas.getValueRange().contains(x, y))
+            throw new IllegalArgumentException(Message.POINT_OUTSIDE_CANVAS);
+
         @NotNull Plot plot = new Point(name, material, x, y);
-        canvas.addPlot(plot);
-        plot.draw(canvas);
+        recordChange(sender, canvas, canvas.saveState(), () -> {
+            canvas.addPlot(plot);
+            plot.draw(canvas);
+        });
+        logChange(canvas, Mutation.plotAdd(plot));
 
         sender.sendMessage(Message.PLOT_ADD_SUCCESS);
     }
@@ -289,16 +737,44 @@ public class MinePlot extends JavaPlugin {
         //Get the correct plot if it exists.
         Plot plot = getPlot(canvas, name);
 
-        //Remove blocks.
-        plot.destroy(canvas);
+        //Remove plot from list, which draws what was beneath it.
+        recordChange(sender, canvas, canvas.saveState(), () -> canvas.removePlot(plot));
+        logChange(canvas, Mutation.plotRemove(plot));
 
-        //Remove canvas from list.
-        canvas.removePlot(plot);
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.PLOT_REMOVE_SUCCESS));
+    }
 
-        //Redraw all other plots in case of an overlap.
-        canvas.drawPlots();
+    /**
+     * Moves a plot to another place in the stacking order of a canvas. Takes 3 arguments.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void plotMove(@NotNull Player sender, @NotNull Iterator<String> args) {
+        Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+        Plot plot = getPlot(canvas, args.next());
+        int position = parseInt(args.next());
+
+        //Positions are counted from 1, in the order of the plot list.
+        recordChange(sender, canvas, canvas.saveState(), () -> canvas.movePlot(plot, position - 1));
+        logChange(canvas, Mutation.plotMove(plot, position - 1));
 
-        sender.sendMessage(Message.PLOT_REMOVE_SUCCESS);
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.PLOT_MOVE_SUCCESS));
+    }
+
+    /**
+     * Changes the material of a plot. Takes 3 arguments.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void plotRecolor(@NotNull Player sender, @NotNull Iterator<String> args) {
+        Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+        Plot plot = getPlot(canvas, args.next());
+        Material material = getMaterial(args.next());
+
+        recordChange(sender, canvas, canvas.saveState(), () -> canvas.recolorPlot(plot, material));
+        logChange(canvas, Mutation.plotRecolor(plot, material));
+
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.PLOT_RECOLOR_SUCCESS));
     }
 
     /**
@@ -321,6 +797,400 @@ public class MinePlot extends JavaPlugin {
         }
     }
 
+    /**
+     * Undoes the last change of the sender. Takes no arguments.
+     * @param sender Player who sent the command.
+     */
+    private void undo(@NotNull Player sender) {
+        @Nullable Change change = getJournal(sender).undo();
+        if(Objects.isNull(change))
+            throw new IllegalArgumentException(Message.NOTHING_TO_UNDO);
+
+        change.undo();
+        logChange(change.getCanvas(), Mutation.plots(change.getCanvas()));
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.UNDO_SUCCESS));
+    }
+
+    /**
+     * Redoes the last change the sender undid. Takes no arguments.
+     * @param sender Player who sent the command.
+     */
+    private void redo(@NotNull Player sender) {
+        @Nullable Change change = getJournal(sender).redo();
+        if(Objects.isNull(change))
+            throw new IllegalArgumentException(Message.NOTHING_TO_REDO);
+
+        change.redo();
+        logChange(change.getCanvas(), Mutation.plots(change.getCanvas()));
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.REDO_SUCCESS));
+    }
+
+    /**
+     * Make a change to a canvas, and record it so the sender can undo it.
+     * @param sender Player who made the change.
+     * @param canvas Canvas to change.
+     * @param before State of the canvas before the change.
+     * @param operation Change to make.
+     */
+    private void recordChange(@NotNull Player sender, @NotNull Canvas canvas, @NotNull Canvas.State before, @NotNull Runnable operation) {
+        canvas.startRecording();
+
+        Change change;
+        try {
+            operation.run();
+        }
+        finally {
+            change = canvas.stopRecording(before);
+        }
+
+        getJournal(sender).record(change);
+        unsavedCanvases.add(canvas);
+    }
+
+    /**
+     * Admit a request against the quota of the sender, from its estimated cost.
+     * It starts right away if the quota allows it, or is queued until it does. If it would have to wait too long, it is rejected.
+     * @param sender Player who sent the command.
+     * @param blocks Estimated number of blocks the request places.
+     * @param evaluations Estimated number of values the request calculates.
+     * @param request Starts the work, on the main thread. If it is queued, its errors are sent to the sender.
+     * @throws IllegalArgumentException If the request is rejected, or fails when it starts right away.
+     */
+    private void admit(@NotNull Player sender, long blocks, long evaluations, @NotNull Runnable request) throws IllegalArgumentException {
+        if(sender.hasPermission(UNLIMITED_PERMISSION)) {
+            request.run();
+            return;
+        }
+
+        Quota quota = getQuota(sender);
+        if(quota.getShortestWait(blocks, evaluations) > quotaMaxWaitNanos)
+            throw new IllegalArgumentException(Message.QUOTA_TOO_LARGE(blocks, evaluations));
+
+        long wait = quota.getWait(blocks, evaluations);
+        if(wait > quotaMaxWaitNanos)
+            throw new IllegalArgumentException(Message.QUOTA_EXCEEDED(blocks, evaluations, wait / 1e9));
+
+        //Only take the cost of requests that start, so a request that fails right away is free.
+        if(wait == 0) {
+            request.run();
+            quota.take(blocks, evaluations);
+            return;
+        }
+
+        quota.take(blocks, evaluations);
+        sender.sendMessage(Message.QUOTA_QUEUED(blocks, evaluations, wait / 1e9));
+
+        //Round up to whole ticks, so the request never starts before the quota allows it.
+        long ticks = (wait + 49_999_999) / 50_000_000;
+        Bukkit.getScheduler().runTaskLater(this, () -> {
+            try {
+                request.run();
+            }
+            catch(IllegalArgumentException e) {
+                sender.sendMessage(e.getMessage());
+            }
+        }, ticks);
+    }
+
+    /**
+     * Gets the quota of a player, and creates it if it does not exist.
+     * @param player Player.
+     * @return Quota.
+     */
+    private @NotNull Quota getQuota(@NotNull Player player) {
+        return quotas.computeIfAbsent(player.getUniqueId(), id -> new Quota(quotaBlocksPerSecond, quotaEvaluationsPerSecond, quotaBurstSeconds));
+    }
+
+    /**
+     * Checks that another plot can be added to a canvas.
+     * @param canvas Canvas.
+     * @throws IllegalArgumentException If the canvas has as many plots as it may have.
+     */
+    private void checkPlotCount(@NotNull Canvas canvas) throws IllegalArgumentException {
+        if(canvas.getPlots().length >= maxPlots)
+            throw new IllegalArgumentException(Message.TOO_MANY_PLOTS(maxPlots));
+    }
+
+    /**
+     * Gets the undo journal of a player, and creates it if it does not exist.
+     * @param player Player.
+     * @return Journal.
+     */
+    private @NotNull Journal getJournal(@NotNull Player player) {
+        journals.putIfAbsent(player.getUniqueId(), new Journal(undoMemory));
+        return journals.get(player.getUniqueId());
+    }
+
+    /**
+     * Starts a preview of a canvas, where changes to it are only shown to the sender until they are committed.
+     * If the canvas is already previewed, the whole preview is sent again. Takes 1 argument.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void preview(@NotNull Player sender, @NotNull Iterator<String> args) {
+        Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+        boolean isPreviewed = canvas.isPreviewed();
+
+        canvas.startPreview(new PreviewSink(sender, canvas.getWorld()));
+        if(isPreviewed)
+            blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.PREVIEW_SENT));
+        else
+            sender.sendMessage(Message.PREVIEW_STARTED);
+    }
+
+    /**
+     * Places a previewed canvas in the world, as it was last previewed. Takes 1 argument.
+     * @param sender Player who sent the command.
+     * @param args Command arguments.
+     */
+    private void commit(@NotNull Player sender, @NotNull Iterator<String> args) {
+        Canvas canvas = getCanvas(sender.getUniqueId(), args.next());
+        if(!canvas.isPreviewed())
+            throw new IllegalArgumentException(Message.NOT_PREVIEWED);
+
+        canvas.commitPreview();
+        blockScheduler.whenDone(sender.getUniqueId(), () -> sender.sendMessage(Message.PREVIEW_COMMITTED));
+    }
+
+    /**
+     * Places the previewed canvases of a player in the world, like when they leave.
+     * The canvases are saved as they are previewed, so the world has to catch up with them.
+     * @param player Player.
+     */
+    protected void commitPreviews(@NotNull Player player) {
+        @Nullable TreeMap<String, Canvas> playerCanvases = canvases.get(player.getUniqueId());
+        if(Objects.nonNull(playerCanvases))
+            playerCanvases.values().forEach(Canvas::commitPreview);
+    }
+
+    /**
+     * Shows how far the placing of the senders blocks has come. Takes no arguments.
+     * @param sender Player who sent the command.
+     */
+    private void progress(@NotNull Player sender) {
+        UUID id = sender.getUniqueId();
+        sender.sendMessage(Message.PROGRESS(blockScheduler.getProgress(id), blockScheduler.getQueueDepth(id), blockScheduler.getQueueDepth()));
+    }
+
+    /**
+     * Register the stats with the platform MBean server, so they can be read with JMX.
+     */
+    private void registerStats() {
+        try {
+            statsName = new ObjectName("edu.ntnu.tobiasth.mineplot:type=Stats");
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, statsName);
+        }
+        catch(JMException e) {
+            getLogger().log(Level.WARNING, "Could not register the stats with JMX.", e);
+            statsName = null;
+        }
+    }
+
+    /**
+     * Remove the stats from the platform MBean server, so a reloaded plugin can register them again.
+     */
+    private void unregisterStats() {
+        if(Objects.isNull(statsName))
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(statsName);
+        }
+        catch(JMException e) {
+            getLogger().log(Level.WARNING, "Could not remove the stats from JMX.", e);
+        }
+        statsName = null;
+    }
+
+    /**
+     * Writes the stats to a file in the Prometheus text format, off the main thread.
+     * The file is written next to the old one and moved over it, so a reader never sees half a file.
+     * @param path File to write.
+     */
+    private void writePrometheus(@NotNull Path path) {
+        //The queue depths are read on the main thread, where they change.
+        byte[] text = stats.toPrometheus().getBytes(StandardCharsets.UTF_8);
+
+        storeExecutor.execute(() -> {
+            try {
+                Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+                Files.write(temporary, text);
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(IOException e) {
+                getLogger().log(Level.WARNING, String.format("Could not write the stats to '%s'.", path), e);
+            }
+        });
+    }
+
+    /**
+     * Add a change to the mutation log, and mark the canvas to be saved.
+     * @param canvas Changed canvas.
+     * @param mutation Change, as written by the Mutation class.
+     * @return Sequence number of the logged change, or 0 if canvases are not saved.
+     */
+    private long logChange(@NotNull Canvas canvas, @NotNull byte[] mutation) {
+        unsavedCanvases.add(canvas);
+        return Objects.isNull(mutationLog) ? 0 : mutationLog.append(canvas.getOwner(), canvas.getName(), mutation);
+    }
+
+    /**
+     * Writes the canvases that changed since the last save, and adds them to the store off the main thread.
+     * Canvases are written on the main thread, as they can change while they are saved.
+     * When they are stored, the logged changes they include are dropped from the mutation log.
+     */
+    private void saveCanvases() {
+        if(Objects.isNull(canvasStore)) {
+            unsavedCanvases.clear();
+            return;
+        }
+
+        //Every change logged so far is in the canvases as they are now.
+        long sequence = mutationLog.getLastSequence();
+
+        for(Canvas canvas : unsavedCanvases) {
+            byte[] data;
+            try {
+                data = writeCanvas(canvas);
+            }
+            catch(IOException e) {
+                getLogger().log(Level.SEVERE, String.format("Could not save canvas '%s'.", canvas.getName()), e);
+                continue;
+            }
+
+            storeExecutor.execute(() -> {
+                try {
+                    canvasStore.write(canvas.getOwner(), canvas.getName(), sequence, data);
+                }
+                catch(IOException e) {
+                    getLogger().log(Level.SEVERE, String.format("Could not save canvas '%s'.", canvas.getName()), e);
+                }
+            });
+        }
+
+        if(!unsavedCanvases.isEmpty())
+            storeExecutor.execute(this::compactLog);
+        unsavedCanvases.clear();
+    }
+
+    /**
+     * Drop the logged changes that are included in the saved canvases.
+     * Must be called on the store executor, or before anything is given to it, so no canvas is saved while it runs.
+     */
+    private void compactLog() {
+        try {
+            //The saved canvases must be on the disk before the logged changes they replace are dropped.
+            canvasStore.sync();
+            mutationLog.compact(record -> record.getSequence() > canvasStore.getSequence(record.getOwner(), record.getName()));
+        }
+        catch(IOException e) {
+            getLogger().log(Level.WARNING, "Could not compact the mutation log.", e);
+        }
+    }
+
+    /**
+     * Applies the logged changes that are newer than the saved canvases, and saves the result.
+     * Canvases that can't be read, like when their world is not loaded, keep their logged changes for the next time.
+     */
+    private void recoverCanvases() {
+        LinkedHashMap<UUID, LinkedHashMap<String, ArrayList<MutationLog.Record>>> pending = new LinkedHashMap<>();
+        for(MutationLog.Record record : mutationLog.getRecords()) {
+            if(record.getSequence() > canvasStore.getSequence(record.getOwner(), record.getName())) {
+                pending.computeIfAbsent(record.getOwner(), owner -> new LinkedHashMap<>())
+                        .computeIfAbsent(record.getName(), name -> new ArrayList<>()).add(record);
+            }
+        }
+
+        pending.forEach((owner, canvasRecords) -> canvasRecords.forEach((name, records) -> {
+            ArrayList<byte[]> changes = new ArrayList<>();
+            records.forEach(record -> changes.add(record.getData()));
+            long sequence = records.get(records.size() - 1).getSequence();
+
+            try {
+                byte[] saved = canvasStore.read(owner, name);
+                Canvas snapshot = Objects.isNull(saved) ? null : Canvas.read(new DataInputStream(new ByteArrayInputStream(saved)), blockScheduler, owner, this::readPlot);
+                Canvas canvas = Mutation.apply(snapshot, changes, blockScheduler, owner, this::readPlot);
+
+                if(Objects.isNull(canvas))
+                    canvasStore.remove(owner, name, sequence);
+                else
+                    canvasStore.write(owner, name, sequence, writeCanvas(canvas));
+            }
+            catch(IOException e) {
+                getLogger().log(Level.WARNING, String.format("Could not recover canvas '%s'. Its logged changes are kept.", name), e);
+            }
+        }));
+
+        compactLog();
+    }
+
+    /**
+     * Adds every saved canvas to the canvas index. Only the start of each canvas is read, where its place is.
+     */
+    private void indexCanvases() {
+        for(UUID owner : canvasStore.getOwners()) {
+            for(String name : canvasStore.getNames(owner)) {
+                try {
+                    //The name, world and corners come first, and a name from a command is short.
+                    byte[] start = canvasStore.read(owner, name, 1024);
+                    canvasIndex.add(owner, name, Canvas.readBounds(new DataInputStream(new ByteArrayInputStream(start))));
+                }
+                catch(IOException | IllegalArgumentException e) {
+                    getLogger().log(Level.WARNING, String.format("Could not index saved canvas '%s'.", name), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a canvas as it is stored.
+     * @param canvas Canvas.
+     * @return Written canvas.
+     * @throws IOException If writing fails.
+     */
+    private @NotNull byte[] writeCanvas(@NotNull Canvas canvas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        canvas.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a stored plot.
+     * @param in Input to read from.
+     * @return Plot.
+     * @throws IOException If reading fails.
+     */
+    private @NotNull Plot readPlot(@NotNull DataInput in) throws IOException {
+        return Plot.read(in, expressionCache, renderPool, heatmapTileRows);
+    }
+
+    /**
+     * Gets the canvases of a player. The saved canvases of the player are read the first time.
+     * After that, the canvases in memory are the ones that count, and the store is only written to.
+     * @param playerID Player UUID.
+     * @return Canvases, sorted by name.
+     */
+    private @NotNull TreeMap<String, Canvas> getCanvases(@NotNull UUID playerID) {
+        canvases.putIfAbsent(playerID, new TreeMap<>());
+        TreeMap<String, Canvas> playerCanvases = canvases.get(playerID);
+
+        if(!loadedPlayers.add(playerID) || Objects.isNull(canvasStore))
+            return playerCanvases;
+
+        for(String name : canvasStore.getNames(playerID)) {
+            try {
+                byte[] data = canvasStore.read(playerID, name);
+                Canvas canvas = Canvas.read(new DataInputStream(new ByteArrayInputStream(data)), blockScheduler, playerID, this::readPlot);
+                playerCanvases.put(name, canvas);
+            }
+            catch(IOException e) {
+                getLogger().log(Level.WARNING, String.format("Could not read saved canvas '%s'.", name), e);
+            }
+        }
+
+        return playerCanvases;
+    }
+
     /**
      * Activates or deactivates a players coordinate selection tool. Takes no arguments.
      * @param sender Player who sent the command.
@@ -347,6 +1217,15 @@ public class MinePlot extends JavaPlugin {
         return activeTools.contains(player.getUniqueId());
     }
 
+    /**
+     * Check if a block is part of a canvas, loaded or not.
+     * @param block Block to check.
+     * @return True if the block is part of a canvas, false if not.
+     */
+    protected boolean isCanvasBlock(Block block) {
+        return canvasIndex.contains(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+    }
+
     /**
      * Set a players left selection.
      * @param player Player to change the selection for.
@@ -413,6 +1292,21 @@ public class MinePlot extends JavaPlugin {
         }
     }
 
+    /**
+     * Parses an integer from the given string, and throws an exception if the number is invalid.
+     * @param number Number to be parsed.
+     * @return Integer.
+     * @throws IllegalArgumentException If the number format is not correct.
+     */
+    private int parseInt(String number) throws IllegalArgumentException {
+        try {
+            return Integer.parseInt(number);
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException(Message.INVALID_NUMBER);
+        }
+    }
+
     /**
      * Gets the given material, and is case insensitive.
      * @param name Material name.
@@ -427,6 +1321,22 @@ public class MinePlot extends JavaPlugin {
         return material;
     }
 
+    /**
+     * Gets the parsed expression from the shared expression cache.
+     * @param expression Math expression.
+     * @param variables Variables the expression is dependant on.
+     * @return Expression.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    private @NotNull Expression getExpression(@NotNull String expression, char... variables) throws IllegalArgumentException {
+        try {
+            return expressionCache.get(expression, variables);
+        }
+        catch(Expression.MalformedExpressionException e) {
+            throw new IllegalArgumentException(Message.INVALID_EXPRESSION);
+        }
+    }
+
     /**
      * Gets the given canvas.
      * @param playerID Player UUID.
@@ -435,7 +1345,7 @@ public class MinePlot extends JavaPlugin {
      * @throws IllegalArgumentException If the canvas name is invalid.
      */
     private @NotNull Canvas getCanvas(UUID playerID, String name) throws IllegalArgumentException {
-        @Nullable Canvas canvas = canvases.get(playerID).get(name);
+        @Nullable Canvas canvas = getCanvases(playerID).get(name);
         if(Objects.isNull(canvas))
             throw new IllegalArgumentException(Message.INVALID_CANVAS_NAME);
 
@@ -0,0 +1,120 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Class Quota:
+ * Limits how many blocks a player can place and how many values they can calculate per second.
+ *
+ * Each limit is a token bucket, which fills up at its rate until it holds a burst of work.
+ * A request takes its estimated cost when it is admitted, and may leave a bucket below zero.
+ * It then waits until the bucket is back at zero before it starts, and later requests wait behind it.
+ * All methods must be called on the main thread.
+ */
+public class Quota {
+    private final LongSupplier clock;
+    private final Bucket blocks;
+    private final Bucket evaluations;
+
+    /**
+     * Define a new quota, with full buckets.
+     * @param blocksPerSecond Blocks that may be placed per second, or 0 for no limit.
+     * @param evaluationsPerSecond Values that may be calculated per second, or 0 for no limit.
+     * @param burstSeconds Seconds of work each bucket holds when it is full.
+     */
+    public Quota(double blocksPerSecond, double evaluationsPerSecond, double burstSeconds) {
+        this(blocksPerSecond, evaluationsPerSecond, burstSeconds, System::nanoTime);
+    }
+
+    /**
+     * Define a new quota, with full buckets, that reads the time from a clock.
+     * @param blocksPerSecond Blocks that may be placed per second, or 0 for no limit.
+     * @param evaluationsPerSecond Values that may be calculated per second, or 0 for no limit.
+     * @param burstSeconds Seconds of work each bucket holds when it is full.
+     * @param clock Gets the time in nanoseconds, like System.nanoTime.
+     */
+    Quota(double blocksPerSecond, double evaluationsPerSecond, double burstSeconds, LongSupplier clock) {
+        this.clock = clock;
+        this.blocks = new Bucket(blocksPerSecond, burstSeconds, clock.getAsLong());
+        this.evaluations = new Bucket(evaluationsPerSecond, burstSeconds, clock.getAsLong());
+    }
+
+    /**
+     * Get how long a request must wait before it can start, if it is admitted now.
+     * @param blockCost Estimated number of blocks the request places.
+     * @param evaluationCost Estimated number of values the request calculates.
+     * @return Nanoseconds to wait, or 0 if it can start right away.
+     */
+    public long getWait(long blockCost, long evaluationCost) {
+        long now = clock.getAsLong();
+        return Math.max(blocks.getWait(blockCost, now), evaluations.getWait(evaluationCost, now));
+    }
+
+    /**
+     * Get how long a request would have to wait if both buckets were full.
+     * A request that has to wait longer than allowed even then is too large to ever be admitted.
+     * @param blockCost Estimated number of blocks the request places.
+     * @param evaluationCost Estimated number of values the request calculates.
+     * @return Nanoseconds to wait.
+     */
+    public long getShortestWait(long blockCost, long evaluationCost) {
+        return Math.max(blocks.getShortestWait(blockCost), evaluations.getShortestWait(evaluationCost));
+    }
+
+    /**
+     * Take the cost of an admitted request from the buckets.
+     * @param blockCost Estimated number of blocks the request places.
+     * @param evaluationCost Estimated number of values the request calculates.
+     */
+    public void take(long blockCost, long evaluationCost) {
+        long now = clock.getAsLong();
+        blocks.take(blockCost, now);
+        evaluations.take(evaluationCost, now);
+    }
+
+    /**
+     * Class Bucket:
+     * Tokens for one kind of work, refilled when they are read.
+     */
+    private static final class Bucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokensPerSecond, double burstSeconds, long now) {
+            this.tokensPerNano = Math.max(0, tokensPerSecond) / 1e9;
+            this.capacity = Math.max(0, tokensPerSecond) * Math.max(0, burstSeconds);
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        private long getWait(long cost, long now) {
+            if(tokensPerNano == 0)
+                return 0;
+
+            refill(now);
+            return tokens >= cost ? 0 : (long) Math.ceil((cost - tokens) / tokensPerNano);
+        }
+
+        private long getShortestWait(long cost) {
+            if(tokensPerNano == 0)
+                return 0;
+
+            return capacity >= cost ? 0 : (long) Math.ceil((cost - capacity) / tokensPerNano);
+        }
+
+        private void take(long cost, long now) {
+            if(tokensPerNano == 0)
+                return;
+
+            refill(now);
+            tokens -= cost;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import edu.ntnu.tobiasth.mineplot.canvas.BlockScheduler;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.MemorySink;
+import edu.ntnu.tobiasth.mineplot.canvas.PngExporter;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.plot.Colormap;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import edu.ntnu.tobiasth.mineplot.plot.Heatmap;
+import edu.ntnu.tobiasth.mineplot.plot.Parametric;
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import edu.ntnu.tobiasth.mineplot.plot.Point;
+import edu.ntnu.tobiasth.mineplot.plot.Polar;
+import org.bukkit.Location;
+import org.bukkit.Material;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class Render:
+ * Draws canvases from a file without a server, and saves each of them as a PNG image.
+ *
+ * Each line of the file is a MinePlot command, written like in the game without /mp. Only the commands that add
+ * canvases and plots can be used. As there is no selection, canvas add takes the width and height of the canvas in
+ * blocks after the material. Lines that start with # are skipped. For example:
+ *
+ * canvas add waves -10 10 -2 2 white_concrete 200 60
+ * plot add function sine sin(x) x waves blue_concrete
+ *
+ * Usage: java -cp MinePlot.jar:spigot-api.jar edu.ntnu.tobiasth.mineplot.Render definitions.txt output [scale]
+ */
+public final class Render {
+    private static final UUID OWNER = new UUID(0, 0);
+    private static final int HEATMAP_TILE_ROWS = 8;
+    private static final CommandTrie COMMANDS = new CommandTrie(Command.values());
+
+    private final BlockScheduler scheduler = new BlockScheduler(0);
+    private final LinkedHashMap<String, Canvas> canvases = new LinkedHashMap<>();
+    private final LinkedHashMap<String, MemorySink> sinks = new LinkedHashMap<>();
+
+    private Render() {}
+
+    public static void main(String[] args) {
+        if(args.length < 2) {
+            System.err.println("Usage: Render <definitions file> <output folder> [pixels per block]");
+            System.exit(2);
+        }
+
+        try {
+            int scale = args.length > 2 ? parseSize(args[2]) : 4;
+            File output = new File(args[1]);
+            if(!output.isDirectory() && !output.mkdirs())
+                throw new IOException(String.format("Could not make the folder '%s'.", output));
+
+            Render render = new Render();
+            List<String> lines = Files.readAllLines(new File(args[0]).toPath(), StandardCharsets.UTF_8);
+            for(int i = 0; i < lines.size(); i++) {
+                try {
+                    render.run(lines.get(i).trim());
+                }
+                catch(IllegalArgumentException e) {
+                    throw new IllegalArgumentException(String.format("Line %s: %s", i + 1, e.getMessage()), e);
+                }
+                catch(NoSuchElementException e) {
+                    throw new IllegalArgumentException(String.format("Line %s: %s", i + 1, Message.INVALID_ARGUMENT_COUNT), e);
+                }
+            }
+
+            render.save(output, scale);
+        }
+        catch(IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run one line of the file.
+     * @param line Line, without spaces around it.
+     * @throws IllegalArgumentException If the line is not a valid command, or the command fails.
+     */
+    private void run(String line) throws IllegalArgumentException {
+        if(line.isEmpty() || line.startsWith("#"))
+            return;
+
+        String[] words = line.split("\\s+");
+        Command command = COMMANDS.find(words);
+        if(Objects.isNull(command))
+            throw new IllegalArgumentException(Message.UNKNOWN_COMMAND);
+
+        Iterator<String> args = Arrays.asList(words).subList(command.getIdentifierWords().length, words.length).iterator();
+        switch(command) {
+            case CANVAS_ADD: {
+                canvasAdd(args);
+                break;
+            }
+            case PLOT_ADD_FUNCTION: {
+                String name = args.next();
+                Expression expression = getExpression(args.next(), args.next().charAt(0));
+                Canvas canvas = getCanvas(args.next());
+                addPlot(canvas, new Function(name, getMaterial(args.next()), expression));
+                break;
+            }
+            case PLOT_ADD_HEATMAP: {
+                String name = args.next();
+                String expressionText = args.next();
+                Expression expression = getExpression(expressionText, args.next().charAt(0), args.next().charAt(0));
+                Canvas canvas = getCanvas(args.next());
+                addPlot(canvas, new Heatmap(name, expression, Colormap.DEFAULT, ForkJoinPool.commonPool(), HEATMAP_TILE_ROWS));
+                break;
+            }
+            case PLOT_ADD_PARAMETRIC: {
+                String name = args.next();
+                String xExpressionText = args.next();
+                String yExpressionText = args.next();
+                char variable = args.next().charAt(0);
+                Expression xExpression = getExpression(xExpressionText, variable);
+                Expression yExpression = getExpression(yExpressionText, variable);
+                double from = parseDouble(args.next());
+                double to = parseDouble(args.next());
+                Canvas canvas = getCanvas(args.next());
+                addPlot(canvas, new Parametric(name, getMaterial(args.next()), xExpression, yExpression, from, to));
+                break;
+            }
+            case PLOT_ADD_POLAR: {
+                String name = args.next();
+                String expressionText = args.next();
+                Expression expression = getExpression(expressionText, args.next().charAt(0));
+                double from = parseDouble(args.next());
+                double to = parseDouble(args.next());
+                Canvas canvas = getCanvas(args.next());
+                addPlot(canvas, new Polar(name, getMaterial(args.next()), expression, from, to));
+                break;
+            }
+            case PLOT_ADD_POINT: {
+                String name = args.next();
+                double x = parseDouble(args.next());
+                double y = parseDouble(args.next());
+                Canvas canvas = getCanvas(args.next());
+                addPlot(canvas, new Point(name, getMaterial(args.next()), x, y));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(String.format("The command '%s' can't be used when rendering.", String.join(" ", command.getIdentifierWords())));
+        }
+    }
+
+    /**
+     * Add a canvas along the x-axis, drawn in memory.
+     * @param args Name, value range, material, width and height.
+     * @throws IllegalArgumentException If the arguments are not valid, or the name is taken.
+     */
+    private void canvasAdd(Iterator<String> args) throws IllegalArgumentException {
+        String name = args.next();
+        ValueRange valueRange = new ValueRange(parseDouble(args.next()), parseDouble(args.next()), parseDouble(args.next()), parseDouble(args.next()));
+        Material material = getMaterial(args.next());
+        int width = parseSize(args.next());
+        int height = parseSize(args.next());
+
+        if(canvases.containsKey(name))
+            throw new IllegalArgumentException(Message.CANVAS_EXISTS);
+
+        //The canvas has no world, so the locations only give its size.
+        MemorySink sink = new MemorySink(0, 0, 0, width - 1, height - 1, 0);
+        Canvas canvas = new Canvas(name, valueRange, new Location(null, 0, 0, 0), new Location(null, width - 1, height - 1, 0), material, scheduler, OWNER, sink);
+        canvas.build();
+
+        canvases.put(name, canvas);
+        sinks.put(name, sink);
+    }
+
+    /**
+     * Draw a plot on top of a canvas.
+     * @param canvas Canvas.
+     * @param plot Plot to add.
+     * @throws IllegalArgumentException If the canvas has a plot with the name, or the plot can't be drawn.
+     */
+    private void addPlot(Canvas canvas, Plot plot) throws IllegalArgumentException {
+        if(Arrays.stream(canvas.getPlots()).anyMatch(other -> plot.getName().equals(other.getName())))
+            throw new IllegalArgumentException(Message.PLOT_EXISTS);
+
+        canvas.addPlot(plot);
+        plot.draw(canvas);
+    }
+
+    /**
+     * Place every block that was drawn, and save each canvas as an image named after it.
+     * @param output Folder to save the images in.
+     * @param scale Size of each block, in pixels.
+     * @throws IOException If an image can't be written.
+     */
+    private void save(File output, int scale) throws IOException {
+        long start = System.nanoTime();
+        scheduler.flush();
+
+        for(String name : sinks.keySet()) {
+            File file = new File(output, name + ".png");
+            PngExporter.write(sinks.get(name), scale, file);
+            System.out.println(String.format("Saved canvas '%s' to %s.", name, file));
+        }
+
+        System.out.println(String.format("Rendered %s canvases in %s ms.", sinks.size(), (System.nanoTime() - start) / 1000000));
+    }
+
+    private Canvas getCanvas(String name) throws IllegalArgumentException {
+        Canvas canvas = canvases.get(name);
+        if(Objects.isNull(canvas))
+            throw new IllegalArgumentException(Message.INVALID_CANVAS_NAME);
+
+        return canvas;
+    }
+
+    private static Expression getExpression(String expression, char... variables) throws IllegalArgumentException {
+        try {
+            return variables.length == 1 ? new Expression(expression, variables[0]) : new Expression(expression, variables[0], variables[1]);
+        }
+        catch(Expression.MalformedExpressionException e) {
+            throw new IllegalArgumentException(Message.INVALID_EXPRESSION);
+        }
+    }
+
+    private static Material getMaterial(String name) throws IllegalArgumentException {
+        Material material = Material.getMaterial(name.toUpperCase());
+        if(Objects.isNull(material))
+            throw new IllegalArgumentException(Message.INVALID_MATERIAL);
+
+        return material;
+    }
+
+    private static double parseDouble(String number) throws IllegalArgumentException {
+        try {
+            return Double.parseDouble(number);
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException(Message.INVALID_NUMBER);
+        }
+    }
+
+    private static int parseSize(String number) throws IllegalArgumentException {
+        try {
+            int size = Integer.parseInt(number);
+            if(size < 1)
+                throw new IllegalArgumentException(Message.INVALID_CANVAS_DIMENSIONS);
+
+            return size;
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException(Message.INVALID_NUMBER);
+        }
+    }
+}
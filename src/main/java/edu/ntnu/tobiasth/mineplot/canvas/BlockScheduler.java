@@ -0,0 +1,206 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Class BlockScheduler:
+ * Places queued blocks over several ticks, so large canvases don't freeze the server.
+ *
+ * Every tick, blocks are placed until the time budget is used up. Each player has their own queue,
+ * and the players take turns placing a small batch each, so one large canvas can't hold up everyone else.
+ * The jobs of one player are done in the order they were added, so later drawings always end up on top.
+ * All methods must be called on the main thread.
+ */
+public class BlockScheduler implements Runnable {
+    private static final int BATCH_SIZE = 64;
+    private final long budgetNanos;
+    private final HashMap<UUID, Queue> queues = new HashMap<>();
+    private final ArrayDeque<UUID> turns = new ArrayDeque<>();
+    private long queuedBlocks = 0;
+
+    /**
+     * Define a new block scheduler.
+     * @param budgetMillis Time in milliseconds that may be spent placing blocks each tick.
+     */
+    public BlockScheduler(double budgetMillis) {
+        this.budgetNanos = Math.max(0, (long) (budgetMillis * 1e6));
+    }
+
+    /**
+     * Add a job to the end of a players queue.
+     * @param owner Player the blocks are placed for.
+     * @param job Job to add.
+     */
+    public void submit(UUID owner, Job job) {
+        Queue queue = queues.get(owner);
+        if(queue == null) {
+            queue = new Queue();
+            queues.put(owner, queue);
+            turns.addLast(owner);
+        }
+
+        queue.jobs.addLast(job);
+        queue.total += job.size;
+        queuedBlocks += job.size;
+    }
+
+    /**
+     * Run an action when all the blocks queued for a player so far are placed.
+     * @param owner Player to wait for.
+     * @param action Action to run on the main thread.
+     */
+    public void whenDone(UUID owner, Runnable action) {
+        if(!queues.containsKey(owner)) {
+            action.run();
+            return;
+        }
+
+        submit(owner, new Job(0) {
+            @Override
+            protected void write(int from, int to) {}
+
+            @Override
+            protected void done() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Place blocks until the time budget of this tick is used up. Called by the server every tick.
+     */
+    @Override
+    public void run() {
+        if(turns.isEmpty())
+            return;
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        long queuedBefore = queuedBlocks;
+
+        while(!turns.isEmpty() && System.nanoTime() < deadline) {
+            UUID owner = turns.pollFirst();
+            Queue queue = queues.get(owner);
+
+            writeBatch(queue, BATCH_SIZE);
+
+            if(queue.jobs.isEmpty())
+                queues.remove(owner);
+            else
+                turns.addLast(owner);
+        }
+
+        Metrics.TICK_BLOCKS.record(queuedBefore - queuedBlocks);
+        Metrics.TICK_NANOS.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Place all queued blocks right away, like when the server shuts down.
+     */
+    public void flush() {
+        while(!turns.isEmpty()) {
+            UUID owner = turns.pollFirst();
+            writeBatch(queues.remove(owner), Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Place up to the given number of blocks from the front of a queue.
+     */
+    private void writeBatch(Queue queue, int count) {
+        while(count > 0 && !queue.jobs.isEmpty()) {
+            Job job = queue.jobs.peekFirst();
+
+            int end = (int) Math.min(job.size, (long) job.written + count);
+            job.write(job.written, end);
+
+            int written = end - job.written;
+            job.written = end;
+            queue.written += written;
+            queuedBlocks -= written;
+            count -= written;
+
+            if(job.written == job.size) {
+                queue.jobs.pollFirst();
+                job.done();
+            }
+        }
+
+        //Start counting the progress over when the queue has been emptied.
+        if(queue.jobs.isEmpty()) {
+            queue.total = 0;
+            queue.written = 0;
+        }
+    }
+
+    /**
+     * Get the number of blocks waiting to be placed for all players.
+     * @return Queue depth.
+     */
+    public long getQueueDepth() {
+        return queuedBlocks;
+    }
+
+    /**
+     * Get the number of blocks waiting to be placed for a player.
+     * @param owner Player.
+     * @return Queue depth.
+     */
+    public long getQueueDepth(UUID owner) {
+        Queue queue = queues.get(owner);
+        return queue == null ? 0 : queue.total - queue.written;
+    }
+
+    /**
+     * Get how much of the work queued for a player is done, since the last time the queue was empty.
+     * @param owner Player.
+     * @return Progress between 0 and 1, which is 1 if nothing is queued.
+     */
+    public double getProgress(UUID owner) {
+        Queue queue = queues.get(owner);
+        return queue == null || queue.total == 0 ? 1 : (double) queue.written / queue.total;
+    }
+
+    /**
+     * Class Job:
+     * A number of blocks to place, in order.
+     */
+    public abstract static class Job {
+        private final int size;
+        private int written = 0;
+
+        /**
+         * Define a new job.
+         * @param size Number of blocks to place.
+         */
+        protected Job(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Place a range of blocks. The ranges follow each other, from 0 to the size of the job.
+         * @param from Index of the first block, inclusive.
+         * @param to Index of the last block, exclusive.
+         */
+        protected abstract void write(int from, int to);
+
+        /**
+         * Called when the last block is placed.
+         */
+        protected void done() {}
+    }
+
+    /**
+     * Class Queue:
+     * The jobs of one player, and how far they have come.
+     */
+    private static final class Queue {
+        private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+        private long total = 0;
+        private long written = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * Interface BlockSink:
+ * Where the blocks of a canvas are placed. This is a world on a server, but a canvas can also be drawn in memory,
+ * so plots can be rendered and timed without a server.
+ *
+ * Blocks are given in the order of BlockWriter, where all blocks in a chunk come after each other.
+ */
+public interface BlockSink {
+    /**
+     * Place a block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @param material Material to place.
+     * @return True if the block was placed, false if it already had the material.
+     */
+    boolean setBlock(int x, int y, int z, Material material);
+
+    /**
+     * Place a block with a full block state, like the direction of stairs.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @param data Block state to place.
+     * @return True if the block was placed, false if it already had the block state.
+     */
+    boolean setBlock(int x, int y, int z, BlockData data);
+}
@@ -0,0 +1,179 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.metrics.Metrics;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+
+/**
+ * Class BlockWriter:
+ * Places a batch of blocks in a block sink, stored as primitive arrays instead of a location for each block.
+ *
+ * The blocks are sorted so all blocks in a chunk are placed after each other, and the chunk is only looked up once.
+ * Blocks that already have the right material are skipped by the sink. In a world, it must be used on the main thread.
+ */
+public class BlockWriter {
+    private final BlockSink sink;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] zs;
+    private final Material[] materials;
+    private BlockData[] blockData = null;
+    private int[] order;
+    private int size = 0;
+    private long placed = 0;
+    private long skipped = 0;
+
+    /**
+     * Define a new block writer that places the blocks in a world.
+     * @param world World to place the blocks in.
+     * @param capacity Number of blocks that can be added.
+     */
+    public BlockWriter(World world, int capacity) {
+        this(new WorldSink(world), capacity);
+    }
+
+    /**
+     * Define a new block writer.
+     * @param sink Where to place the blocks.
+     * @param capacity Number of blocks that can be added.
+     */
+    public BlockWriter(BlockSink sink, int capacity) {
+        this.sink = sink;
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+        this.zs = new int[capacity];
+        this.materials = new Material[capacity];
+    }
+
+    /**
+     * Add a block to place.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @param material Material to place.
+     * @throws IllegalStateException If the writer is full, or already sorted.
+     */
+    public void add(int x, int y, int z, Material material) throws IllegalStateException {
+        if(size == xs.length || order != null)
+            throw new IllegalStateException("No more blocks can be added to the writer.");
+
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        materials[size++] = material;
+    }
+
+    /**
+     * Add a block to place with a full block state, like the direction of stairs.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @param data Block state to place.
+     * @throws IllegalStateException If the writer is full, or already sorted.
+     */
+    public void add(int x, int y, int z, BlockData data) throws IllegalStateException {
+        //Check before the block data is stored, so a full writer throws instead of writing past its end.
+        if(size == xs.length || order != null)
+            throw new IllegalStateException("No more blocks can be added to the writer.");
+
+        if(blockData == null)
+            blockData = new BlockData[xs.length];
+
+        blockData[size] = data;
+        add(x, y, z, data.getMaterial());
+    }
+
+    /**
+     * Sort the blocks by chunk. Blocks in the same chunk keep the order they were added in.
+     * Must be called after the last block is added, and before any are placed.
+     */
+    public void sort() {
+        long[] keys = new long[size];
+        for(int i = 0; i < size; i++) {
+            keys[i] = getChunkKey(xs[i] >> 4, zs[i] >> 4);
+        }
+
+        //Find the distinct chunks in sorted order.
+        long[] chunks = keys.clone();
+        Arrays.sort(chunks);
+        int chunkCount = 0;
+        for(int i = 0; i < chunks.length; i++) {
+            if(i == 0 || chunks[i] != chunks[i - 1])
+                chunks[chunkCount++] = chunks[i];
+        }
+
+        //Count the blocks in each chunk, and place each block after the ones before it in its chunk.
+        int[] starts = new int[chunkCount + 1];
+        int[] buckets = new int[size];
+        for(int i = 0; i < size; i++) {
+            buckets[i] = Arrays.binarySearch(chunks, 0, chunkCount, keys[i]);
+            starts[buckets[i] + 1]++;
+        }
+        for(int i = 0; i < chunkCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+
+        order = new int[size];
+        for(int i = 0; i < size; i++) {
+            order[starts[buckets[i]]++] = i;
+        }
+    }
+
+    /**
+     * Place the blocks between two positions in the sorted order.
+     * @param from First position, inclusive.
+     * @param to Last position, exclusive.
+     */
+    public void write(int from, int to) {
+        if(order == null)
+            sort();
+
+        long placedBefore = placed;
+        for(int i = from; i < to; i++) {
+            int block = order[i];
+            BlockData data = blockData == null ? null : blockData[block];
+
+            boolean changed = data == null
+                    ? sink.setBlock(xs[block], ys[block], zs[block], materials[block])
+                    : sink.setBlock(xs[block], ys[block], zs[block], data);
+            if(changed)
+                placed++;
+            else
+                skipped++;
+        }
+
+        Metrics.BLOCKS_PLACED.add(placed - placedBefore);
+        Metrics.BLOCKS_SKIPPED.add(to - from - (placed - placedBefore));
+    }
+
+    /**
+     * Get the number of blocks that were added.
+     * @return Number of blocks.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of blocks that were placed so far.
+     * @return Number of placed blocks.
+     */
+    public long getPlaced() {
+        return placed;
+    }
+
+    /**
+     * Get the number of blocks that already had the right material so far.
+     * @return Number of skipped blocks.
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
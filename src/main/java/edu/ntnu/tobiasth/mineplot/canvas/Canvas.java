@@ -2,12 +2,24 @@ package edu.ntnu.tobiasth.mineplot.canvas;
 
 import edu.ntnu.tobiasth.mineplot.Message;
 import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 public class Canvas {
     private final String name;
@@ -16,8 +28,45 @@ public class Canvas {
     private final Location endLocation;
     private final Material material;
     private final ArrayList<Plot> plots = new ArrayList<>();
+    private final IdentityHashMap<Plot, Layer> layers = new IdentityHashMap<>();
+    private final BlockScheduler scheduler;
+    private final UUID owner;
+    private final BlockSink sink;
+    private BlockSink preview = null;
+    private final Raster raster;
+    private Terrain terrain = null;
+    private boolean composing = false;
+    private long[] recorded = null;
+    private int recordedCount = 0;
 
-    public Canvas(String name, ValueRange valueRange, Location a, Location b, Material material) throws IllegalArgumentException {
+    /**
+     * Define a new canvas in the world of its corners. The blocks are not placed until it is built.
+     * @param name Canvas name.
+     * @param valueRange Value range of the canvas.
+     * @param a One corner of the canvas.
+     * @param b The opposite corner of the canvas.
+     * @param material Background material.
+     * @param scheduler Scheduler that places the blocks of the canvas.
+     * @param owner Player the blocks are placed for.
+     * @throws IllegalArgumentException If the corners are not in a plane, or the value range is invalid.
+     */
+    public Canvas(String name, ValueRange valueRange, Location a, Location b, Material material, BlockScheduler scheduler, UUID owner) throws IllegalArgumentException {
+        this(name, valueRange, a, b, material, scheduler, owner, new WorldSink(a.getWorld()));
+    }
+
+    /**
+     * Define a new canvas that places its blocks in a block sink. The blocks are not placed until it is built.
+     * @param name Canvas name.
+     * @param valueRange Value range of the canvas.
+     * @param a One corner of the canvas.
+     * @param b The opposite corner of the canvas.
+     * @param material Background material.
+     * @param scheduler Scheduler that places the blocks of the canvas.
+     * @param owner Player the blocks are placed for.
+     * @param sink Where to place the blocks.
+     * @throws IllegalArgumentException If the corners are not in a plane, or the value range is invalid.
+     */
+    public Canvas(String name, ValueRange valueRange, Location a, Location b, Material material, BlockScheduler scheduler, UUID owner, BlockSink sink) throws IllegalArgumentException {
         //If the given coordinates are not a plane.
         if((a.getBlockX() - b.getBlockX() != 0) && (a.getBlockZ() - b.getBlockZ() != 0))
             throw new IllegalArgumentException(Message.INVALID_CANVAS_DIMENSIONS);
@@ -29,21 +78,26 @@ public class Canvas {
         this.name = name;
         this.valueRange = valueRange;
         this.material = material;
+        this.scheduler = scheduler;
+        this.owner = owner;
+        this.sink = sink;
 
         //The location with the highest Y coordinate is the endLocation.
         boolean aIsStartLocation = a.getBlockY() < b.getBlockY();
         this.startLocation = aIsStartLocation ? a : b;
         this.endLocation = aIsStartLocation ? b : a;
 
-        //Build the new canvas
-        this.build();
+        this.raster = new Raster((getBlocksX() + 1) * (getBlocksY() + 1));
     }
 
     /**
      * Builds the canvas.
+     * Every block is placed, as the canvas can't know what is in the world already.
      */
     public void build() {
-        fill(material);
+        raster.forget();
+        raster.fill(material);
+        flush();
     }
 
     /**
@@ -51,100 +105,544 @@ public class Canvas {
      */
     public void clear() {
         plots.clear();
-        fill(material);
+        layers.clear();
+        raster.fill(material);
+        flush();
     }
 
     /**
-     * Destroys the canvas.
+     * Destroys the canvas, and puts back the terrain that was there before it.
+     * If the terrain is not known, the blocks are replaced with air.
      */
     public void destroy() {
-        fill(Material.AIR);
+        //The terrain is put back in the world, even if the canvas is only previewed.
+        preview = null;
+        raster.forget();
+
+        BlockWriter writer = new BlockWriter(sink, raster.getSize());
+        if(terrain == null) {
+            for(int i = 0; i < raster.getSize(); i++) {
+                addBlock(writer, i, Material.AIR);
+            }
+        }
+        else {
+            BlockData[] palette = terrain.createPalette();
+            int cell = 0;
+            for(int run = 0; run < terrain.getRunCount(); run++) {
+                BlockData data = palette[terrain.getRunValue(run)];
+                for(int i = 0; i < terrain.getRunLength(run); i++, cell++) {
+                    writer.add(getBlockX(cell), getBlockY(cell), getBlockZ(cell), data);
+                }
+            }
+        }
+
+        submit(writer);
     }
 
     /**
-     * Replace all canvas blocks with the given material.
-     * @param material Material to replace blocks with.
+     * Take snapshots of the chunks the canvas is in, so the terrain there can be read off the main thread.
+     * Must be called on the main thread, before the canvas is built.
+     * @return Reads the terrain from the snapshots. Can be called on any thread.
      */
-    private void fill(Material material) {
-        int[] xCoords = { startLocation.getBlockX(), endLocation.getBlockX() };
-        int[] yCoords = { startLocation.getBlockY(), endLocation.getBlockY() };
-        int[] zCoords = { startLocation.getBlockZ(), endLocation.getBlockZ() };
-        Arrays.sort(xCoords);
-        Arrays.sort(yCoords);
-        Arrays.sort(zCoords);
-
+    public Supplier<Terrain> snapshotTerrain() {
         World world = startLocation.getWorld();
+        int size = raster.getSize();
+
+        //The canvas is a vertical plane, so the first row has a block in every chunk it is in.
+        HashMap<Long, ChunkSnapshot> chunks = new HashMap<>();
+        for(int column = 0; column <= getBlocksX(); column++) {
+            int chunkX = getBlockX(column) >> 4;
+            int chunkZ = getBlockZ(column) >> 4;
+            chunks.computeIfAbsent(BlockWriter.getChunkKey(chunkX, chunkZ), key -> world.getChunkAt(chunkX, chunkZ).getChunkSnapshot());
+        }
 
-        for(int x = xCoords[0]; x <= xCoords[1]; x++) {
-            for(int y = yCoords[0]; y <= yCoords[1]; y++) {
-                for(int z = zCoords[0]; z <= zCoords[1]; z++) {
-                    Location current = new Location(world, x, y, z);
-                    current.getBlock().setType(material);
-                }
+        return () -> {
+            Terrain.Builder builder = new Terrain.Builder();
+            for(int cell = 0; cell < size; cell++) {
+                int x = getBlockX(cell);
+                int z = getBlockZ(cell);
+
+                ChunkSnapshot chunk = chunks.get(BlockWriter.getChunkKey(x >> 4, z >> 4));
+                builder.add(chunk.getBlockData(x & 15, getBlockY(cell), z & 15).getAsString());
             }
+
+            return builder.build();
+        };
+    }
+
+    /**
+     * Set the terrain that was there before the canvas, which is put back when the canvas is destroyed.
+     * @param terrain Terrain.
+     * @throws IllegalArgumentException If the terrain does not have one block for each block of the canvas.
+     */
+    public void setTerrain(Terrain terrain) throws IllegalArgumentException {
+        if(terrain.getSize() != raster.getSize())
+            throw new IllegalArgumentException(Message.INVALID_CANVAS_DIMENSIONS);
+
+        this.terrain = terrain;
+    }
+
+    /**
+     * Place the blocks that differ between the raster and what has been drawn.
+     * While the plots are being drawn again, this waits until all of them are done.
+     */
+    private void flush() {
+        if(composing)
+            return;
+
+        Raster.Changes changes = raster.takeChanges();
+        if(changes.getCount() == 0)
+            return;
+
+        if(recorded != null)
+            record(changes);
+
+        BlockWriter writer = new BlockWriter(preview == null ? sink : preview, changes.getCount());
+        for(int i = 0; i < changes.getCount(); i++) {
+            addBlock(writer, changes.getIndex(i), changes.getMaterial(i));
         }
+
+        submit(writer);
     }
 
     /**
-     * Draw a point on the canvas.
-     * The point is given as (x, y) and placed based on the defined value range.
-     * @param x The value on the x-axis.
-     * @param y The value on the y-axis.
-     * @param material The material to replace block with.
-     * @throws IllegalArgumentException If the given point is outside the canvas.
+     * Start placing the blocks that change in a preview sink instead, like one that only shows them to a player.
+     * The world is not changed until the preview is committed. If the canvas is already previewed,
+     * every block is sent to the new preview sink, like when the player has loaded the chunks again.
+     * @param preview Where to place the changed blocks.
      */
-    public void drawValue(double x, double y, Material material) throws IllegalArgumentException {
-        //Calculate how many percent from the left the point is.
-        double relativeX = (x - valueRange.getMinX()) / (valueRange.getMaxX() - valueRange.getMinX());
-        double relativeY = (y - valueRange.getMinY()) / (valueRange.getMaxY() - valueRange.getMinY());
+    public void startPreview(BlockSink preview) {
+        boolean isPreviewed = this.preview != null;
+        this.preview = preview;
 
-        //If the percent is under 0 or over 1, the block is not on the canvas.
-        if(relativeX > 1 || relativeY > 1 || relativeX < 0 || relativeY < 0)
-            throw new IllegalArgumentException(Message.POINT_OUTSIDE_CANVAS);
+        if(isPreviewed) {
+            raster.forgetDrawn();
+            flush();
+        }
+    }
+
+    /**
+     * Stop the preview, and place the canvas as it was last previewed in the world.
+     * Every block is compared with the world, and only the ones that differ are placed.
+     */
+    public void commitPreview() {
+        if(preview == null)
+            return;
+
+        preview = null;
+        raster.forgetDrawn();
+        flush();
+    }
+
+    public boolean isPreviewed() {
+        return preview != null;
+    }
+
+    /**
+     * Add changed blocks to the recording.
+     * @param changes Changed blocks.
+     */
+    private void record(Raster.Changes changes) {
+        if(recordedCount + changes.getCount() > recorded.length)
+            recorded = Arrays.copyOf(recorded, Math.max(recorded.length * 2, recordedCount + changes.getCount()));
+
+        for(int i = 0; i < changes.getCount(); i++) {
+            recorded[recordedCount++] = Change.pack(changes.getIndex(i), changes.getPreviousPaletteIndex(i), changes.getPaletteIndex(i));
+        }
+    }
+
+    /**
+     * Start recording the blocks that are changed, so the changes can be undone.
+     */
+    public void startRecording() {
+        recorded = new long[16];
+        recordedCount = 0;
+    }
+
+    /**
+     * Stop recording, and get the recorded changes.
+     * @param before State of the canvas before the recording started.
+     * @return Recorded change.
+     * @throws IllegalStateException If nothing is being recorded.
+     */
+    public Change stopRecording(State before) throws IllegalStateException {
+        if(recorded == null)
+            throw new IllegalStateException("The canvas is not recording.");
 
-        int blocksFromStartX = (int) Math.round(relativeX * getBlocksX());
-        int blocksFromStartY = (int) Math.round(relativeY * getBlocksY());
+        Change change = new Change(this, before, saveState(), Arrays.copyOf(recorded, recordedCount));
+        recorded = null;
+        return change;
+    }
+
+    /**
+     * Get the plots of the canvas and what they cover, so they can be put back later.
+     * @return Canvas state.
+     */
+    public State saveState() {
+        return new State(plots, layers);
+    }
+
+    /**
+     * Put back the plots and layers of a saved state. Blocks are not changed.
+     * @param state Saved state.
+     */
+    void restore(State state) {
+        plots.clear();
+        layers.clear();
+
+        for(int i = 0; i < state.plots.length; i++) {
+            Plot plot = state.plots[i];
+            plots.add(plot);
+
+            if(state.layers[i] != null)
+                layers.put(plot, state.layers[i]);
+            if(plot.getMaterial() != state.materials[i])
+                plot.setMaterial(state.materials[i]);
+        }
+    }
+
+    void setPaletteIndex(int index, short value) {
+        raster.setPaletteIndex(index, value);
+    }
+
+    void flushChanges() {
+        flush();
+    }
 
-        drawBlock(blocksFromStartX, blocksFromStartY, material);
+    /**
+     * Queue the blocks of a writer, sorted by chunk.
+     * @param writer Writer with all blocks added.
+     */
+    private void submit(BlockWriter writer) {
+        writer.sort();
+
+        scheduler.submit(owner, new BlockScheduler.Job(writer.getSize()) {
+            @Override
+            protected void write(int from, int to) {
+                writer.write(from, to);
+            }
+        });
     }
 
     /**
-     * Draw a block on the canvas.
-     * The block is given as (x, y) and placed relative to the lower left corner.
-     * @param x Number of blocks right from the origin.
-     * @param y Number of blocks up from the origin.
+     * Add a block of the canvas to a writer, at its place in the world.
+     * @param writer Writer to add the block to.
+     * @param cell Block index, as given by Grid.getIndex.
      * @param material The material to replace block with.
-     * @throws IllegalArgumentException If the given point is outside the canvas.
      */
-    public void drawBlock(int x, int y, Material material) throws IllegalArgumentException {
-        //If the block is outside the canvas.
-        if(y > getBlocksY() || x > getBlocksX() || y < 0 || x < 0)
-            throw new IllegalArgumentException(Message.POINT_OUTSIDE_CANVAS);
+    private void addBlock(BlockWriter writer, int cell, Material material) {
+        writer.add(getBlockX(cell), getBlockY(cell), getBlockZ(cell), material);
+    }
 
-        Location location = new Location(startLocation.getWorld(), startLocation.getBlockX(), startLocation.getBlockY(), startLocation.getBlockZ());
+    /**
+     * Get the in-game x coordinate of a block of the canvas.
+     * @param cell Block index, as given by Grid.getIndex.
+     * @return Block x coordinate.
+     */
+    private int getBlockX(int cell) {
+        return isParallelToX() ? startLocation.getBlockX() + getOffset(cell) : startLocation.getBlockX();
+    }
+
+    private int getBlockY(int cell) {
+        return startLocation.getBlockY() + cell / (getBlocksX() + 1);
+    }
+
+    private int getBlockZ(int cell) {
+        return isParallelToX() ? startLocation.getBlockZ() : startLocation.getBlockZ() + getOffset(cell);
+    }
+
+    /**
+     * Get how far along the canvas a block is in-game, from the start location.
+     * @param cell Block index, as given by Grid.getIndex.
+     * @return Offset along the in-game axis of the canvas.
+     */
+    private int getOffset(int cell) {
+        int x = cell % (getBlocksX() + 1);
 
         //Invert the x value if positive on the canvas is negative in-game.
-        if(isInvertedX())
-            x *= -1;
+        return isInvertedX() ? -x : x;
+    }
 
-        if(isParallelToX())
-            location.add(x, y, 0);
-        else
-            location.add(0, y, x);
+    /**
+     * Set the blocks a plot covers, and draw it in its place in the stacking order.
+     * Only the blocks the plot covered before or covers now are drawn again.
+     * @param plot Plot on the canvas.
+     * @param cells Set of block indices, as given by Grid.getIndex.
+     * @throws IllegalArgumentException If one of the blocks is outside the canvas.
+     */
+    public void drawLayer(Plot plot, BitSet cells) throws IllegalArgumentException {
+        if(cells.length() > raster.getSize())
+            throw new IllegalArgumentException(Message.POINT_OUTSIDE_CANVAS);
 
-        location.getBlock().setType(material);
+        setLayer(plot, new Layer(cells, plot.getMaterial()));
     }
 
     /**
-     * Draws all the plots on the canvas.
-     * Useful if you remove a plot and it is overlapping another.
+     * Set the material of every block a plot covers, and draw it in its place in the stacking order.
+     * @param plot Plot on the canvas.
+     * @param materials Material for each block, row by row from the lower left corner. Null where the plot is not drawn.
+     * @throws IllegalArgumentException If the array does not have one entry for each block.
+     */
+    public void drawLayer(Plot plot, Material[] materials) throws IllegalArgumentException {
+        if(materials.length != raster.getSize())
+            throw new IllegalArgumentException(Message.POINT_OUTSIDE_CANVAS);
+
+        setLayer(plot, new Layer(materials));
+    }
+
+    private void setLayer(Plot plot, Layer layer) {
+        //Skip plots that were removed while they were calculated.
+        if(!plots.contains(plot))
+            return;
+
+        BitSet changed = (BitSet) layer.getCells().clone();
+        Layer previous = layers.put(plot, layer);
+        if(previous != null)
+            changed.or(previous.getCells());
+
+        composite(changed);
+    }
+
+    /**
+     * Set the raster to the background with every layer on top, in the order of the plots, for the given blocks only.
+     * Then place the blocks that changed.
+     * @param cells Set of block indices to draw again.
+     */
+    private void composite(BitSet cells) {
+        for(int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+            raster.set(i, material);
+        }
+
+        for(Plot plot : plots) {
+            Layer layer = layers.get(plot);
+            if(layer == null)
+                continue;
+
+            BitSet covered = (BitSet) layer.getCells().clone();
+            covered.and(cells);
+            for(int i = covered.nextSetBit(0); i >= 0; i = covered.nextSetBit(i + 1)) {
+                raster.set(i, layer.getMaterial(i));
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Move a plot to another place in the stacking order, where later plots are drawn on top.
+     * Only the blocks of the plot are drawn again, and no plot is calculated.
+     * @param plot Plot on the canvas.
+     * @param position New position, where 0 is the bottom.
+     * @throws IllegalArgumentException If the position is not valid.
+     */
+    public void movePlot(Plot plot, int position) throws IllegalArgumentException {
+        if(position < 0 || position >= plots.size())
+            throw new IllegalArgumentException(Message.INVALID_PLOT_POSITION);
+
+        plots.remove(plot);
+        plots.add(position, plot);
+
+        Layer layer = layers.get(plot);
+        if(layer != null)
+            composite(layer.getCells());
+    }
+
+    /**
+     * Change the material of a plot. Only the blocks of the plot are drawn again, and no plot is calculated.
+     * @param plot Plot on the canvas.
+     * @param material New material.
+     * @throws IllegalArgumentException If the plot can't change material.
+     */
+    public void recolorPlot(Plot plot, Material material) throws IllegalArgumentException {
+        plot.setMaterial(material);
+
+        Layer layer = layers.get(plot);
+        if(layer != null) {
+            layers.put(plot, layer.withMaterial(material));
+            composite(layer.getCells());
+        }
+    }
+
+    /**
+     * Calculates and draws all the plots on the canvas again, on top of the background.
+     * Only the blocks that end up different from before are placed. Plots that can't be drawn on the canvas are removed.
      */
     public void drawPlots() {
+        raster.fill(material);
+        layers.clear();
+
+        composing = true;
+        try {
+            plots.removeIf(plot -> !tryDraw(plot));
+        }
+        finally {
+            composing = false;
+        }
+
+        flush();
+    }
+
+    /**
+     * Write the canvas, its plots and what has been drawn, so it can be read again after a restart.
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    public void write(DataOutput out) throws IOException {
+        writeDefinition(out);
+        raster.write(out);
+
+        out.writeInt(plots.size());
         for(Plot plot : plots) {
+            plot.write(out);
+
+            //Plots that are still being calculated have no layer yet.
+            Layer layer = layers.get(plot);
+            out.writeBoolean(layer != null);
+            if(layer != null)
+                layer.write(out);
+        }
+
+        out.writeBoolean(terrain != null);
+        if(terrain != null)
+            terrain.write(out);
+    }
+
+    /**
+     * Write what the canvas is defined by, which is its name, place, value range and background, but not its plots.
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeDefinition(DataOutput out) throws IOException {
+        out.writeUTF(name);
+
+        UUID world = startLocation.getWorld().getUID();
+        out.writeLong(world.getMostSignificantBits());
+        out.writeLong(world.getLeastSignificantBits());
+        writeLocation(out, startLocation);
+        writeLocation(out, endLocation);
+
+        out.writeDouble(valueRange.getMinX());
+        out.writeDouble(valueRange.getMaxX());
+        out.writeDouble(valueRange.getMinY());
+        out.writeDouble(valueRange.getMaxY());
+        out.writeUTF(material.name());
+    }
+
+    /**
+     * Read a canvas written by Canvas.write. No blocks are placed, as they are still in the world,
+     * except for plots that were not done calculating when the canvas was written.
+     * @param in Input to read from.
+     * @param scheduler Scheduler that places the blocks of the canvas.
+     * @param owner Player the blocks are placed for.
+     * @param plotReader Reads the plots of the canvas.
+     * @return Canvas.
+     * @throws IOException If reading fails, the canvas is not valid or its world is not loaded.
+     */
+    public static Canvas read(DataInput in, BlockScheduler scheduler, UUID owner, PlotReader plotReader) throws IOException {
+        Canvas canvas = readDefinition(in, scheduler, owner);
+
+        try {
+            canvas.raster.read(in);
+
+            int plotCount = in.readInt();
+            for(int i = 0; i < plotCount; i++) {
+                Plot plot = plotReader.read(in);
+                canvas.plots.add(plot);
+
+                if(in.readBoolean())
+                    canvas.layers.put(plot, Layer.read(in, canvas.raster.getSize()));
+            }
+
+            if(in.readBoolean())
+                canvas.setTerrain(Terrain.read(in));
+
+            //A plot that can't be drawn has no blocks, so it is dropped instead of the whole canvas.
+            canvas.plots.removeIf(plot -> !canvas.layers.containsKey(plot) && !canvas.tryDraw(plot));
+
+            return canvas;
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read where a canvas written by Canvas.write or Canvas.writeDefinition is, without reading the rest of it.
+     * @param in Input to read from.
+     * @return Canvas bounds.
+     * @throws IOException If reading fails.
+     */
+    public static CanvasBounds readBounds(DataInput in) throws IOException {
+        in.readUTF();
+        UUID world = new UUID(in.readLong(), in.readLong());
+        return new CanvasBounds(world, in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    /**
+     * Read a canvas written by Canvas.writeDefinition. The canvas has no plots, and is not built.
+     * @param in Input to read from.
+     * @param scheduler Scheduler that places the blocks of the canvas.
+     * @param owner Player the blocks are placed for.
+     * @return Canvas.
+     * @throws IOException If reading fails, the canvas is not valid or its world is not loaded.
+     */
+    public static Canvas readDefinition(DataInput in, BlockScheduler scheduler, UUID owner) throws IOException {
+        String name = in.readUTF();
+
+        World world = Bukkit.getWorld(new UUID(in.readLong(), in.readLong()));
+        if(world == null)
+            throw new IOException(String.format("The world of canvas '%s' is not loaded.", name));
+
+        Location start = readLocation(in, world);
+        Location end = readLocation(in, world);
+        ValueRange valueRange = new ValueRange(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        Material material = Plot.readMaterial(in);
+
+        try {
+            return new Canvas(name, valueRange, start, end, material, scheduler, owner);
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void writeLocation(DataOutput out, Location location) throws IOException {
+        out.writeInt(location.getBlockX());
+        out.writeInt(location.getBlockY());
+        out.writeInt(location.getBlockZ());
+    }
+
+    private static Location readLocation(DataInput in, World world) throws IOException {
+        return new Location(world, in.readInt(), in.readInt(), in.readInt());
+    }
+
+    /**
+     * Draw a plot, if it can be drawn on the canvas.
+     * A plot that can't, like a point outside the value range, is left without a layer.
+     * @param plot Plot on the canvas.
+     * @return True if the plot was drawn or is being calculated, false if it can't be drawn.
+     */
+    private boolean tryDraw(Plot plot) {
+        try {
             plot.draw(this);
+            return true;
+        }
+        catch(IllegalArgumentException e) {
+            return false;
         }
     }
 
+    /**
+     * Replace all the plots of the canvas, and calculate and draw them again.
+     * Only the blocks that end up different from before are placed.
+     * @param plots New plots, in stacking order.
+     */
+    public void replacePlots(List<Plot> plots) {
+        this.plots.clear();
+        this.plots.addAll(plots);
+        drawPlots();
+    }
+
     /**
      * Returns if the canvas is parallel to the in-game x-axis.
      * @return True if parallel to x-axis, false if parallel to z-axis.
@@ -173,11 +671,16 @@ public class Canvas {
     }
 
     /**
-     * Removes a plot from a canvas plot list.
+     * Removes a plot from a canvas plot list, and draws what was beneath it.
+     * Only the blocks of the plot are drawn again, and no plot is calculated.
      * @param plot Plot to remove.
      */
     public void removePlot(Plot plot) {
         plots.remove(plot);
+
+        Layer layer = layers.remove(plot);
+        if(layer != null)
+            composite(layer.getCells());
     }
 
     /**
@@ -199,6 +702,14 @@ public class Canvas {
         return Math.abs(endLocation.getBlockY() - startLocation.getBlockY());
     }
 
+    /**
+     * Get the grid that converts between values and blocks on the canvas.
+     * @return Canvas grid.
+     */
+    public Grid getGrid() {
+        return new Grid(valueRange, getBlocksX(), getBlocksY());
+    }
+
     /**
      * Get the name of the canvas.
      * @return Canvas name.
@@ -223,6 +734,32 @@ public class Canvas {
         return plots.toArray(new Plot[0]);
     }
 
+    /**
+     * Get the blocks the canvas takes up in the world.
+     * @return Canvas bounds.
+     */
+    public CanvasBounds getBounds() {
+        return new CanvasBounds(startLocation.getWorld().getUID(),
+                startLocation.getBlockX(), startLocation.getBlockY(), startLocation.getBlockZ(),
+                endLocation.getBlockX(), endLocation.getBlockY(), endLocation.getBlockZ());
+    }
+
+    /**
+     * Get the world the canvas is in.
+     * @return World.
+     */
+    public World getWorld() {
+        return startLocation.getWorld();
+    }
+
+    /**
+     * Get the player the canvas belongs to.
+     * @return Owner UUID.
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+
     /**
      * Get canvas material.
      * @return Canvas material.
@@ -243,4 +780,76 @@ public class Canvas {
                 endLocation.getBlockX(), endLocation.getBlockY(), endLocation.getBlockZ(), valueRange.getMaxX(), valueRange.getMaxY());
     }
 
-}
\ No newline at end of file
+    /**
+     * Interface PlotReader:
+     * Reads a plot written by Plot.write, with whatever the plot needs to be calculated.
+     */
+    @FunctionalInterface
+    public interface PlotReader {
+        Plot read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Class State:
+     * The plots of a canvas in stacking order, with their layers and materials at one point in time.
+     */
+    public static final class State {
+        private final Plot[] plots;
+        private final Layer[] layers;
+        private final Material[] materials;
+
+        private State(ArrayList<Plot> plots, IdentityHashMap<Plot, Layer> layers) {
+            this.plots = plots.toArray(new Plot[0]);
+            this.layers = new Layer[this.plots.length];
+            this.materials = new Material[this.plots.length];
+
+            for(int i = 0; i < this.plots.length; i++) {
+                this.layers[i] = layers.get(this.plots[i]);
+                this.materials[i] = this.plots[i].getMaterial();
+            }
+        }
+
+        private State(Plot[] plots, Layer[] layers, Material[] materials) {
+            this.plots = plots;
+            this.layers = layers;
+            this.materials = materials;
+        }
+
+        /**
+         * Get the same state without a plot, like before the plot was added.
+         * @param plot Plot to leave out.
+         * @return New state.
+         */
+        public State without(Plot plot) {
+            int count = 0;
+            Plot[] otherPlots = new Plot[plots.length];
+            Layer[] otherLayers = new Layer[plots.length];
+            Material[] otherMaterials = new Material[plots.length];
+
+            for(int i = 0; i < plots.length; i++) {
+                if(plots[i] != plot) {
+                    otherPlots[count] = plots[i];
+                    otherLayers[count] = layers[i];
+                    otherMaterials[count++] = materials[i];
+                }
+            }
+
+            return new State(Arrays.copyOf(otherPlots, count), Arrays.copyOf(otherLayers, count), Arrays.copyOf(otherMaterials, count));
+        }
+
+        /**
+         * Get about how many bytes the state takes in memory.
+         * Layers can be shared with the canvas and other states, so this can be more than is really used.
+         * @return Memory size in bytes.
+         */
+        long getMemorySize() {
+            long size = 48 + 12L * plots.length;
+            for(Layer layer : layers) {
+                if(layer != null)
+                    size += layer.getMemorySize();
+            }
+
+            return size;
+        }
+    }
+}
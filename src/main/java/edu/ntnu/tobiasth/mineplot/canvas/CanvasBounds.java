@@ -0,0 +1,81 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import java.util.UUID;
+
+/**
+ * Class CanvasBounds:
+ * The blocks a canvas takes up in the world, as a box from the lowest to the highest corner.
+ */
+public final class CanvasBounds {
+    private final UUID world;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    /**
+     * Define new bounds between two corners, in any order.
+     * @param world UUID of the world.
+     * @param x1 X coordinate of one corner.
+     * @param y1 Y coordinate of one corner.
+     * @param z1 Z coordinate of one corner.
+     * @param x2 X coordinate of the opposite corner.
+     * @param y2 Y coordinate of the opposite corner.
+     * @param z2 Z coordinate of the opposite corner.
+     */
+    public CanvasBounds(UUID world, int x1, int y1, int z1, int x2, int y2, int z2) {
+        this.world = world;
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
+    }
+
+    /**
+     * Check if a block is inside the bounds.
+     * @param world UUID of the world of the block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @return True if the block is inside, false if not.
+     */
+    public boolean contains(UUID world, int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ && this.world.equals(world);
+    }
+
+    /**
+     * Check if the bounds share any block with other bounds.
+     * @param other Other bounds.
+     * @return True if they overlap, false if not.
+     */
+    public boolean overlaps(CanvasBounds other) {
+        return minX <= other.maxX && other.minX <= maxX
+                && minY <= other.maxY && other.minY <= maxY
+                && minZ <= other.maxZ && other.minZ <= maxZ
+                && world.equals(other.world);
+    }
+
+    public UUID getWorld() {
+        return world;
+    }
+
+    public int getMinChunkX() {
+        return minX >> 4;
+    }
+
+    public int getMaxChunkX() {
+        return maxX >> 4;
+    }
+
+    public int getMinChunkZ() {
+        return minZ >> 4;
+    }
+
+    public int getMaxChunkZ() {
+        return maxZ >> 4;
+    }
+}
@@ -0,0 +1,134 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Class CanvasIndex:
+ * Finds the canvas a block belongs to, without looking through every canvas.
+ *
+ * Each world has a map from chunks to the canvases in them. A canvas is one block thick, so it is only in a row of chunks,
+ * and few canvases share a chunk. Finding the canvas of a block is one lookup in the map and a check of those few canvases,
+ * which takes the same time no matter how many canvases there are. Saved canvases that are not loaded are indexed too.
+ * Must be used on the main thread.
+ */
+public class CanvasIndex {
+    private final HashMap<UUID, HashMap<Long, ArrayList<Entry>>> worlds = new HashMap<>();
+    private final HashMap<UUID, HashMap<String, Entry>> entries = new HashMap<>();
+
+    /**
+     * Add a canvas to the index.
+     * @param owner Player the canvas belongs to.
+     * @param name Canvas name.
+     * @param bounds Blocks the canvas takes up.
+     * @throws IllegalArgumentException If the canvas overlaps another canvas.
+     */
+    public void add(UUID owner, String name, CanvasBounds bounds) throws IllegalArgumentException {
+        HashMap<Long, ArrayList<Entry>> chunks = worlds.computeIfAbsent(bounds.getWorld(), world -> new HashMap<>());
+
+        //Only canvases in the same chunks can overlap.
+        for(int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for(int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                ArrayList<Entry> chunk = chunks.get(BlockWriter.getChunkKey(chunkX, chunkZ));
+                if(chunk == null)
+                    continue;
+
+                for(Entry entry : chunk) {
+                    if(entry.bounds.overlaps(bounds) && !(entry.owner.equals(owner) && entry.name.equals(name)))
+                        throw new IllegalArgumentException(Message.CANVAS_OVERLAPS);
+                }
+            }
+        }
+
+        remove(owner, name);
+
+        Entry entry = new Entry(owner, name, bounds);
+        entries.computeIfAbsent(owner, id -> new HashMap<>()).put(name, entry);
+        for(int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for(int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                chunks.computeIfAbsent(BlockWriter.getChunkKey(chunkX, chunkZ), key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Remove a canvas from the index. Nothing happens if it is not indexed.
+     * @param owner Player the canvas belongs to.
+     * @param name Canvas name.
+     */
+    public void remove(UUID owner, String name) {
+        HashMap<String, Entry> ownerEntries = entries.get(owner);
+        Entry entry = ownerEntries == null ? null : ownerEntries.remove(name);
+        if(entry == null)
+            return;
+
+        CanvasBounds bounds = entry.bounds;
+        HashMap<Long, ArrayList<Entry>> chunks = worlds.get(bounds.getWorld());
+        for(int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for(int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                long key = BlockWriter.getChunkKey(chunkX, chunkZ);
+                ArrayList<Entry> chunk = chunks.get(key);
+                chunk.remove(entry);
+                if(chunk.isEmpty())
+                    chunks.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Check if a block belongs to a canvas.
+     * @param world UUID of the world of the block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @return True if the block is part of a canvas, false if not.
+     */
+    public boolean contains(UUID world, int x, int y, int z) {
+        ArrayList<Entry> chunk = getChunk(world, x, z);
+        if(chunk == null)
+            return false;
+
+        for(Entry entry : chunk) {
+            if(entry.bounds.contains(world, x, y, z))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Get how many canvases a lookup of a block checks at most, which is the number of canvases in its chunk.
+     * @param world UUID of the world of the block.
+     * @param x Block x coordinate.
+     * @param z Block z coordinate.
+     * @return Number of canvases.
+     */
+    int getCheckedCount(UUID world, int x, int z) {
+        ArrayList<Entry> chunk = getChunk(world, x, z);
+        return chunk == null ? 0 : chunk.size();
+    }
+
+    private ArrayList<Entry> getChunk(UUID world, int x, int z) {
+        HashMap<Long, ArrayList<Entry>> chunks = worlds.get(world);
+        return chunks == null ? null : chunks.get(BlockWriter.getChunkKey(x >> 4, z >> 4));
+    }
+
+    /**
+     * Class Entry:
+     * An indexed canvas.
+     */
+    private static final class Entry {
+        private final UUID owner;
+        private final String name;
+        private final CanvasBounds bounds;
+
+        private Entry(UUID owner, String name, CanvasBounds bounds) {
+            this.owner = owner;
+            this.name = name;
+            this.bounds = bounds;
+        }
+    }
+}
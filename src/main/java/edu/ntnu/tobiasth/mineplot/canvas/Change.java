@@ -0,0 +1,87 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+/**
+ * Class Change:
+ * The blocks one operation changed on a canvas, and the plots before and after it, so it can be undone and redone.
+ *
+ * Each changed block is packed into a single long, with the block index in the upper 32 bits and the palette index
+ * of the old and the new material in the lower 32. Undoing and redoing goes through the raster of the canvas,
+ * so only blocks that differ are placed again.
+ */
+public final class Change {
+    //A rough size of the objects around the arrays, for the memory count.
+    private static final int OVERHEAD_BYTES = 96;
+    private final Canvas canvas;
+    private final Canvas.State before;
+    private final Canvas.State after;
+    private final long[] blocks;
+
+    Change(Canvas canvas, Canvas.State before, Canvas.State after, long[] blocks) {
+        this.canvas = canvas;
+        this.before = before;
+        this.after = after;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Put the canvas back as it was before the change.
+     */
+    public void undo() {
+        canvas.restore(before);
+
+        for(int i = blocks.length - 1; i >= 0; i--) {
+            canvas.setPaletteIndex(getBlock(blocks[i]), getOldValue(blocks[i]));
+        }
+
+        canvas.flushChanges();
+    }
+
+    /**
+     * Make the change again after it was undone.
+     */
+    public void redo() {
+        canvas.restore(after);
+
+        for(long block : blocks) {
+            canvas.setPaletteIndex(getBlock(block), getNewValue(block));
+        }
+
+        canvas.flushChanges();
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Get the number of blocks the change placed.
+     * @return Number of blocks.
+     */
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * Get about how many bytes the change takes in memory.
+     * @return Memory size in bytes.
+     */
+    public long getMemorySize() {
+        return OVERHEAD_BYTES + 8L * blocks.length + before.getMemorySize() + after.getMemorySize();
+    }
+
+    static long pack(int block, short oldValue, short newValue) {
+        return ((long) block << 32) | ((oldValue & 0xFFFFL) << 16) | (newValue & 0xFFFFL);
+    }
+
+    private static int getBlock(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static short getOldValue(long packed) {
+        return (short) (packed >>> 16);
+    }
+
+    private static short getNewValue(long packed) {
+        return (short) packed;
+    }
+}
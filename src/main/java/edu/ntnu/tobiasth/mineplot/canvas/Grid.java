@@ -0,0 +1,107 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+/**
+ * Class Grid:
+ * Converts between the values of a value range and the blocks of a canvas, without touching the world.
+ * Columns and rows are counted from the lower left corner, and go from 0 to the number of blocks in each direction.
+ */
+public class Grid {
+    private final ValueRange valueRange;
+    private final int blocksX;
+    private final int blocksY;
+
+    public Grid(ValueRange valueRange, int blocksX, int blocksY) {
+        this.valueRange = valueRange;
+        this.blocksX = blocksX;
+        this.blocksY = blocksY;
+    }
+
+    /**
+     * Get the column a value on the x-axis is drawn in.
+     * Values outside the value range give columns outside the canvas.
+     * @param x The value on the x-axis.
+     * @return Column, or Long.MIN_VALUE if the value is NaN.
+     */
+    public long getColumn(double x) {
+        return toBlock(x, valueRange.getMinX(), valueRange.getMaxX(), blocksX);
+    }
+
+    /**
+     * Get the row a value on the y-axis is drawn in.
+     * Values outside the value range give rows outside the canvas.
+     * @param y The value on the y-axis.
+     * @return Row, or Long.MIN_VALUE if the value is NaN.
+     */
+    public long getRow(double y) {
+        return toBlock(y, valueRange.getMinY(), valueRange.getMaxY(), blocksY);
+    }
+
+    /**
+     * Get the value on the x-axis in the middle of a column.
+     * @param column Column.
+     * @return The value on the x-axis.
+     */
+    public double getX(int column) {
+        return toValue(column, valueRange.getMinX(), valueRange.getMaxX(), blocksX);
+    }
+
+    /**
+     * Get the value on the y-axis in the middle of a row.
+     * @param row Row.
+     * @return The value on the y-axis.
+     */
+    public double getY(int row) {
+        return toValue(row, valueRange.getMinY(), valueRange.getMaxY(), blocksY);
+    }
+
+    /**
+     * Whether or not a block is on the canvas.
+     * @param column Column.
+     * @param row Row.
+     * @return True if on the canvas, false if not.
+     */
+    public boolean contains(long column, long row) {
+        return column >= 0 && column <= blocksX && row >= 0 && row <= blocksY;
+    }
+
+    /**
+     * Get the index of a block when all blocks are numbered row by row from the lower left corner.
+     * @param column Column.
+     * @param row Row.
+     * @return Block index.
+     */
+    public int getIndex(int column, int row) {
+        return row * getWidth() + column;
+    }
+
+    /**
+     * Get the number of columns, which is one more than the number of blocks in the x direction.
+     * @return Number of columns.
+     */
+    public int getWidth() {
+        return blocksX + 1;
+    }
+
+    /**
+     * Get the number of rows, which is one more than the number of blocks in the y direction.
+     * @return Number of rows.
+     */
+    public int getHeight() {
+        return blocksY + 1;
+    }
+
+    public ValueRange getValueRange() {
+        return valueRange;
+    }
+
+    private static long toBlock(double value, double min, double max, int blocks) {
+        if(Double.isNaN(value))
+            return Long.MIN_VALUE;
+
+        return Math.round((value - min) / (max - min) * blocks);
+    }
+
+    private static double toValue(int block, double min, double max, int blocks) {
+        return blocks > 0 ? min + (max - min) * block / blocks : min;
+    }
+}
@@ -0,0 +1,163 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import org.bukkit.Material;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Class Layer:
+ * The blocks a plot covers on a canvas, and the material of each.
+ * Most plots have one material, while a heatmap has one for every block.
+ */
+class Layer {
+    private static final byte ONE_MATERIAL = 0;
+    private static final byte MATERIAL_PER_BLOCK = 1;
+    private final BitSet cells;
+    private final Material[] materials;
+    private final Material material;
+
+    /**
+     * Define a layer with one material.
+     * @param cells Set of block indices, as given by Grid.getIndex.
+     * @param material Material of all the blocks.
+     */
+    Layer(BitSet cells, Material material) {
+        this.cells = cells;
+        this.materials = null;
+        this.material = material;
+    }
+
+    /**
+     * Define a layer with a material for each block. Blocks without a material are not covered.
+     * @param materials Material for each block, row by row from the lower left corner.
+     */
+    Layer(Material[] materials) {
+        this.cells = new BitSet(materials.length);
+        this.materials = materials;
+        this.material = null;
+
+        for(int i = 0; i < materials.length; i++) {
+            if(materials[i] != null)
+                cells.set(i);
+        }
+    }
+
+    BitSet getCells() {
+        return cells;
+    }
+
+    Material getMaterial(int index) {
+        return materials == null ? material : materials[index];
+    }
+
+    /**
+     * Get about how many bytes the layer takes in memory.
+     * @return Memory size in bytes.
+     */
+    long getMemorySize() {
+        return 32 + cells.size() / 8 + (materials == null ? 0 : 4L * materials.length);
+    }
+
+    /**
+     * Get a layer with the same blocks in another material. Layers are never changed, so old states can keep them.
+     * @param material New material.
+     * @return New layer.
+     */
+    Layer withMaterial(Material material) {
+        return new Layer(cells, material);
+    }
+
+    /**
+     * Write the blocks and materials of the layer.
+     * A layer with one material is written as a bit set, and other layers as a small palette and runs of palette indices.
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    void write(DataOutput out) throws IOException {
+        if(materials == null) {
+            out.writeByte(ONE_MATERIAL);
+            out.writeUTF(material.name());
+
+            long[] words = cells.toLongArray();
+            out.writeInt(words.length);
+            for(long word : words) {
+                out.writeLong(word);
+            }
+            return;
+        }
+
+        ArrayList<Material> palette = new ArrayList<>();
+        short[] indices = new short[materials.length];
+        for(int i = 0; i < materials.length; i++) {
+            if(materials[i] == null) {
+                indices[i] = -1;
+                continue;
+            }
+
+            int index = palette.indexOf(materials[i]);
+            if(index < 0) {
+                index = palette.size();
+                palette.add(materials[i]);
+            }
+            indices[i] = (short) index;
+        }
+
+        out.writeByte(MATERIAL_PER_BLOCK);
+        out.writeShort(palette.size());
+        for(Material paletteMaterial : palette) {
+            out.writeUTF(paletteMaterial.name());
+        }
+        Raster.writeRuns(out, indices);
+    }
+
+    /**
+     * Read a layer written by Layer.write.
+     * @param in Input to read from.
+     * @param size Number of blocks on the canvas.
+     * @return Layer.
+     * @throws IOException If reading fails, or the layer does not fit the canvas.
+     */
+    static Layer read(DataInput in, int size) throws IOException {
+        byte type = in.readByte();
+
+        if(type == ONE_MATERIAL) {
+            Material material = Plot.readMaterial(in);
+            long[] words = new long[in.readInt()];
+            if(words.length > (size + 63) / 64)
+                throw new IOException("The saved layer does not fit the canvas.");
+
+            for(int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+
+            //The last word can have bits past the last block, which must not be set.
+            BitSet blocks = BitSet.valueOf(words);
+            if(blocks.length() > size)
+                throw new IOException("The saved layer does not fit the canvas.");
+
+            return new Layer(blocks, material);
+        }
+
+        if(type != MATERIAL_PER_BLOCK)
+            throw new IOException(String.format("Unknown layer type %s.", type));
+
+        Material[] palette = new Material[in.readShort()];
+        for(int i = 0; i < palette.length; i++) {
+            palette[i] = Plot.readMaterial(in);
+        }
+
+        short[] indices = new short[size];
+        Raster.readRuns(in, indices, palette.length);
+
+        Material[] materials = new Material[size];
+        for(int i = 0; i < size; i++) {
+            materials[i] = indices[i] < 0 ? null : palette[indices[i]];
+        }
+        return new Layer(materials);
+    }
+}
@@ -0,0 +1,130 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+/**
+ * Class MemorySink:
+ * Places blocks in memory instead of a world, so a canvas can be drawn without a server.
+ *
+ * The blocks of a box are stored as indices into a palette of the materials that have been placed, one short for
+ * each block. Block states are stored as their material. Blocks that have not been placed are empty.
+ */
+public class MemorySink implements BlockSink {
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final short[] blocks;
+    private final ArrayList<Material> palette = new ArrayList<>();
+    private final EnumMap<Material, Short> paletteIndices = new EnumMap<>(Material.class);
+    private long placed = 0;
+
+    /**
+     * Define a new memory sink for the blocks between two corners, in any order.
+     * @param x1 X coordinate of one corner.
+     * @param y1 Y coordinate of one corner.
+     * @param z1 Z coordinate of one corner.
+     * @param x2 X coordinate of the opposite corner.
+     * @param y2 Y coordinate of the opposite corner.
+     * @param z2 Z coordinate of the opposite corner.
+     * @throws IllegalArgumentException If the box has too many blocks to store.
+     */
+    public MemorySink(int x1, int y1, int z1, int x2, int y2, int z2) throws IllegalArgumentException {
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.sizeX = Math.abs(x1 - x2) + 1;
+        this.sizeY = Math.abs(y1 - y2) + 1;
+        this.sizeZ = Math.abs(z1 - z2) + 1;
+
+        long size = (long) sizeX * sizeY * sizeZ;
+        if(size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The box has too many blocks to store in memory.");
+
+        this.blocks = new short[(int) size];
+        //Index 0 is an empty block.
+        palette.add(null);
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, Material material) {
+        int index = getIndex(x, y, z);
+        short value = paletteIndices.computeIfAbsent(material, key -> {
+            palette.add(key);
+            return (short) (palette.size() - 1);
+        });
+
+        if(blocks[index] == value)
+            return false;
+
+        blocks[index] = value;
+        placed++;
+        return true;
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, BlockData data) {
+        return setBlock(x, y, z, data.getMaterial());
+    }
+
+    /**
+     * Get the material of a block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @return Material, or null if no block was placed there.
+     * @throws IllegalArgumentException If the block is outside the box.
+     */
+    public Material getMaterial(int x, int y, int z) throws IllegalArgumentException {
+        return palette.get(blocks[getIndex(x, y, z)]);
+    }
+
+    /**
+     * Get the number of blocks that were placed, not counting blocks that already had the material.
+     * @return Number of placed blocks.
+     */
+    public long getPlaced() {
+        return placed;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    private int getIndex(int x, int y, int z) throws IllegalArgumentException {
+        int offsetX = x - minX;
+        int offsetY = y - minY;
+        int offsetZ = z - minZ;
+
+        if(offsetX < 0 || offsetX >= sizeX || offsetY < 0 || offsetY >= sizeY || offsetZ < 0 || offsetZ >= sizeZ)
+            throw new IllegalArgumentException(String.format("The block at %s, %s, %s is outside the memory sink.", x, y, z));
+
+        return (offsetY * sizeZ + offsetZ) * sizeX + offsetX;
+    }
+}
@@ -0,0 +1,102 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import org.bukkit.DyeColor;
+import org.bukkit.Material;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+
+/**
+ * Class PngExporter:
+ * Saves a canvas drawn in a memory sink as a PNG image.
+ *
+ * The canvas is seen from the side, with the lowest coordinate on the left and the highest block at the top.
+ * Blocks are colored after the dye in their name, like blue for blue concrete, since Bukkit has no color for each
+ * material. Other blocks are gray, and empty blocks and air are transparent.
+ */
+public final class PngExporter {
+    private static final int OTHER_COLOR = 0xFF7F7F7F;
+    private static final EnumMap<Material, Integer> COLORS = new EnumMap<>(Material.class);
+
+    private PngExporter() {}
+
+    /**
+     * Draw the blocks of a memory sink as an image. The sink must be one block thick, like a canvas.
+     * @param sink Memory sink.
+     * @param scale Size of each block, in pixels.
+     * @return Image.
+     * @throws IllegalArgumentException If the sink is thicker than one block, or the scale is less than 1.
+     */
+    public static BufferedImage render(MemorySink sink, int scale) throws IllegalArgumentException {
+        if(sink.getSizeX() > 1 && sink.getSizeZ() > 1)
+            throw new IllegalArgumentException("Only a sink that is one block thick can be saved as an image.");
+        if(scale < 1)
+            throw new IllegalArgumentException("The scale must be at least 1.");
+
+        //A canvas along the z-axis is one block wide in the x direction.
+        boolean alongX = sink.getSizeZ() == 1;
+        int width = alongX ? sink.getSizeX() : sink.getSizeZ();
+        int height = sink.getSizeY();
+
+        BufferedImage image = new BufferedImage(width * scale, height * scale, BufferedImage.TYPE_INT_ARGB);
+        int[] row = new int[width * scale];
+
+        for(int y = 0; y < height; y++) {
+            for(int column = 0; column < width; column++) {
+                Material material = alongX
+                        ? sink.getMaterial(sink.getMinX() + column, sink.getMinY() + y, sink.getMinZ())
+                        : sink.getMaterial(sink.getMinX(), sink.getMinY() + y, sink.getMinZ() + column);
+
+                int color = getColor(material);
+                for(int i = 0; i < scale; i++) {
+                    row[column * scale + i] = color;
+                }
+            }
+
+            //The image starts at the top, and the sink at the bottom.
+            int top = (height - 1 - y) * scale;
+            for(int i = 0; i < scale; i++) {
+                image.setRGB(0, top + i, row.length, 1, row, 0, row.length);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Save the blocks of a memory sink as a PNG image.
+     * @param sink Memory sink.
+     * @param scale Size of each block, in pixels.
+     * @param file File to write.
+     * @throws IOException If the file can't be written.
+     * @throws IllegalArgumentException If the sink is thicker than one block, or the scale is less than 1.
+     */
+    public static void write(MemorySink sink, int scale, File file) throws IOException, IllegalArgumentException {
+        if(!ImageIO.write(render(sink, scale), "png", file))
+            throw new IOException("No PNG writer is available.");
+    }
+
+    /**
+     * Get the color of a material.
+     * @param material Material, or null for an empty block.
+     * @return Color as ARGB.
+     */
+    static synchronized int getColor(Material material) {
+        if(material == null || material == Material.AIR)
+            return 0;
+
+        return COLORS.computeIfAbsent(material, key -> {
+            //Take the longest match, so light blue is not blue.
+            DyeColor match = null;
+            for(DyeColor dye : DyeColor.values()) {
+                if(key.name().startsWith(dye.name() + "_") && (match == null || dye.name().length() > match.name().length()))
+                    match = dye;
+            }
+
+            return match == null ? OTHER_COLOR : 0xFF000000 | match.getColor().asRGB();
+        });
+    }
+}
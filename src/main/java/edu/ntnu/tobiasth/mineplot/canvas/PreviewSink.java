@@ -0,0 +1,54 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+
+import java.util.EnumMap;
+
+/**
+ * Class PreviewSink:
+ * Shows blocks to one player only, as fake block changes, without changing the world.
+ *
+ * The blocks come in the batches of the block scheduler, sorted by chunk, so a large preview is spread over
+ * several ticks like real blocks. The client forgets the fake blocks when it loads the chunks again.
+ * Must be used on the main thread.
+ */
+public class PreviewSink implements BlockSink {
+    private final Player player;
+    private final World world;
+    private final Location location;
+    private final EnumMap<Material, BlockData> blockData = new EnumMap<>(Material.class);
+
+    /**
+     * Define a new preview sink.
+     * @param player Player to show the blocks to.
+     * @param world World the blocks are shown in.
+     */
+    public PreviewSink(Player player, World world) {
+        this.player = player;
+        this.world = world;
+        this.location = new Location(world, 0, 0, 0);
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, Material material) {
+        return setBlock(x, y, z, blockData.computeIfAbsent(material, Material::createBlockData));
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, BlockData data) {
+        //Blocks for a player who left or is in another world are dropped. The preview can be sent again when they are back.
+        if(!player.isOnline() || !world.equals(player.getWorld()))
+            return false;
+
+        //The location is only read while the change is sent, so it is reused for every block.
+        location.setX(x);
+        location.setY(y);
+        location.setZ(z);
+        player.sendBlockChange(location, data);
+        return true;
+    }
+}
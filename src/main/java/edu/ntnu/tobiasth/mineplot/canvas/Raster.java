@@ -0,0 +1,275 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import org.bukkit.Material;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Class Raster:
+ * Remembers the material of every block on a canvas, so only the blocks that change have to be placed.
+ *
+ * Materials are stored as indices into a palette, which takes two bytes for each block. The raster keeps both what the
+ * canvas should look like and what has been drawn, and the difference between them is taken out as a list of changes.
+ * Only blocks that have been set since the last changes were taken are compared.
+ */
+public class Raster {
+    private static final short UNKNOWN = -1;
+    private final ArrayList<Material> palette = new ArrayList<>();
+    private final HashMap<Material, Short> paletteIndices = new HashMap<>();
+    private final short[] target;
+    private final short[] drawn;
+    private final BitSet dirty;
+
+    /**
+     * Define a new raster, where no blocks are known to be drawn.
+     * @param size Number of blocks.
+     */
+    public Raster(int size) {
+        this.target = new short[size];
+        this.drawn = new short[size];
+        this.dirty = new BitSet(size);
+        forget();
+    }
+
+    /**
+     * Set the material a block should have.
+     * @param index Block index, as given by Grid.getIndex.
+     * @param material Material.
+     */
+    public void set(int index, Material material) {
+        target[index] = getPaletteIndex(material);
+        dirty.set(index);
+    }
+
+    /**
+     * Set the material every block should have.
+     * @param material Material.
+     */
+    public void fill(Material material) {
+        Arrays.fill(target, getPaletteIndex(material));
+        dirty.set(0, target.length);
+    }
+
+    /**
+     * Get the material a block should have.
+     * @param index Block index, as given by Grid.getIndex.
+     * @return Material, or null if it has not been set.
+     */
+    public Material get(int index) {
+        return target[index] == UNKNOWN ? null : palette.get(target[index]);
+    }
+
+    /**
+     * Forget what has been drawn, like when the blocks have been changed some other way.
+     * The next changes will then include every block that has been set.
+     */
+    public void forget() {
+        Arrays.fill(target, UNKNOWN);
+        Arrays.fill(drawn, UNKNOWN);
+        dirty.clear();
+    }
+
+    /**
+     * Forget what has been drawn, but keep what every block should be, like when the blocks were drawn somewhere else.
+     * The next changes will then include every block that has been set.
+     */
+    public void forgetDrawn() {
+        Arrays.fill(drawn, UNKNOWN);
+        dirty.set(0, target.length);
+    }
+
+    /**
+     * Take out the blocks where what should be drawn differs from what has been drawn, and mark them as drawn.
+     * @return Changed blocks.
+     */
+    public Changes takeChanges() {
+        int count = 0;
+        int[] indices = new int[dirty.cardinality()];
+        short[] values = new short[indices.length];
+        short[] previousValues = new short[indices.length];
+
+        for(int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            if(target[i] != drawn[i]) {
+                indices[count] = i;
+                previousValues[count] = drawn[i];
+                values[count++] = target[i];
+                drawn[i] = target[i];
+            }
+        }
+        dirty.clear();
+
+        return new Changes(count, indices, values, previousValues);
+    }
+
+    /**
+     * Set the palette index a block should have, as given by Changes.
+     * Unknown blocks are skipped, as there is no material to put back.
+     * @param index Block index, as given by Grid.getIndex.
+     * @param value Palette index.
+     */
+    void setPaletteIndex(int index, short value) {
+        if(value == UNKNOWN)
+            return;
+
+        target[index] = value;
+        dirty.set(index);
+    }
+
+    public int getSize() {
+        return target.length;
+    }
+
+    /**
+     * Write the palette and what has been drawn. Blocks are written as runs of the same material,
+     * as most of a canvas is usually background.
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeShort(palette.size());
+        for(Material material : palette) {
+            out.writeUTF(material.name());
+        }
+
+        writeRuns(out, drawn);
+    }
+
+    /**
+     * Read what has been drawn, as written by Raster.write. The blocks should have the same materials as they are drawn with.
+     * @param in Input to read from.
+     * @throws IOException If reading fails, or the raster has another size.
+     */
+    void read(DataInput in) throws IOException {
+        palette.clear();
+        paletteIndices.clear();
+
+        int paletteSize = in.readShort();
+        for(int i = 0; i < paletteSize; i++) {
+            Material material = Plot.readMaterial(in);
+            palette.add(material);
+            paletteIndices.putIfAbsent(material, (short) i);
+        }
+
+        readRuns(in, drawn, paletteSize);
+        System.arraycopy(drawn, 0, target, 0, drawn.length);
+        dirty.clear();
+    }
+
+    /**
+     * Write palette indices as runs of the same index.
+     * @param out Output to write to.
+     * @param values Palette indices, where -1 is unknown.
+     * @throws IOException If writing fails.
+     */
+    static void writeRuns(DataOutput out, short[] values) throws IOException {
+        out.writeInt(values.length);
+        for(int i = 0; i < values.length;) {
+            int run = 1;
+            while(i + run < values.length && values[i + run] == values[i]) {
+                run++;
+            }
+
+            out.writeShort(values[i]);
+            out.writeInt(run);
+            i += run;
+        }
+    }
+
+    /**
+     * Read palette indices written by Raster.writeRuns.
+     * @param in Input to read from.
+     * @param values Array to read into, which must have the written length.
+     * @param paletteSize Number of materials in the palette.
+     * @throws IOException If reading fails, or the indices do not fit the array or palette.
+     */
+    static void readRuns(DataInput in, short[] values, int paletteSize) throws IOException {
+        if(in.readInt() != values.length)
+            throw new IOException("The saved blocks do not fit the canvas.");
+
+        for(int i = 0; i < values.length;) {
+            short value = in.readShort();
+            int run = in.readInt();
+            if(value < UNKNOWN || value >= paletteSize || run <= 0 || run > values.length - i)
+                throw new IOException("The saved blocks are corrupt.");
+
+            Arrays.fill(values, i, i + run, value);
+            i += run;
+        }
+    }
+
+    private short getPaletteIndex(Material material) {
+        Short index = paletteIndices.get(material);
+        if(index == null) {
+            index = (short) palette.size();
+            palette.add(material);
+            paletteIndices.put(material, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Class Changes:
+     * Blocks that have to be placed to make the world look like the raster.
+     */
+    public final class Changes {
+        private final int count;
+        private final int[] indices;
+        private final short[] values;
+        private final short[] previousValues;
+
+        private Changes(int count, int[] indices, short[] values, short[] previousValues) {
+            this.count = count;
+            this.indices = indices;
+            this.values = values;
+            this.previousValues = previousValues;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the index of a changed block.
+         * @param i Number of the change.
+         * @return Block index, as given by Grid.getIndex.
+         */
+        public int getIndex(int i) {
+            return indices[i];
+        }
+
+        /**
+         * Get the new material of a changed block.
+         * @param i Number of the change.
+         * @return Material.
+         */
+        public Material getMaterial(int i) {
+            return palette.get(values[i]);
+        }
+
+        /**
+         * Get the palette index of the new material of a changed block.
+         * @param i Number of the change.
+         * @return Palette index.
+         */
+        short getPaletteIndex(int i) {
+            return values[i];
+        }
+
+        /**
+         * Get the palette index of the material a changed block had before.
+         * @param i Number of the change.
+         * @return Palette index, which is negative if the block was not known.
+         */
+        short getPreviousPaletteIndex(int i) {
+            return previousValues[i];
+        }
+    }
+}
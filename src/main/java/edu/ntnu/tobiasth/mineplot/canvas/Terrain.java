@@ -0,0 +1,188 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Class Terrain:
+ * The blocks that were in the world where a canvas was built, so they can be put back when it is removed.
+ *
+ * Blocks are stored in the same order as the raster, as runs of the same block state with the block states in a palette.
+ * Each row of a canvas is at one height, so it is mostly long runs of air, stone or dirt.
+ */
+public final class Terrain {
+    private static final String AIR = "minecraft:air";
+    private final String[] palette;
+    private final short[] values;
+    private final int[] lengths;
+    private final int size;
+
+    private Terrain(String[] palette, short[] values, int[] lengths, int size) {
+        this.palette = palette;
+        this.values = values;
+        this.lengths = lengths;
+        this.size = size;
+    }
+
+    /**
+     * Get the number of blocks.
+     * @return Number of blocks.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    int getRunCount() {
+        return values.length;
+    }
+
+    int getRunLength(int run) {
+        return lengths[run];
+    }
+
+    short getRunValue(int run) {
+        return values[run];
+    }
+
+    /**
+     * Create the block data of each palette entry. Unknown block states, like from an older server version, are air.
+     * Must be called on the main thread.
+     * @return Block data, by palette index.
+     */
+    BlockData[] createPalette() {
+        BlockData[] blockData = new BlockData[palette.length];
+        for(int i = 0; i < palette.length; i++) {
+            try {
+                blockData[i] = Bukkit.createBlockData(palette[i]);
+            }
+            catch(IllegalArgumentException e) {
+                blockData[i] = Bukkit.createBlockData(AIR);
+            }
+        }
+
+        return blockData;
+    }
+
+    /**
+     * Write the terrain. Run lengths are written with as few bytes as they need.
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeShort(palette.length);
+        for(String state : palette) {
+            out.writeUTF(state);
+        }
+
+        out.writeInt(values.length);
+        for(int i = 0; i < values.length; i++) {
+            out.writeShort(values[i]);
+            writeVarInt(out, lengths[i]);
+        }
+    }
+
+    /**
+     * Read terrain written by Terrain.write.
+     * @param in Input to read from.
+     * @return Terrain.
+     * @throws IOException If reading fails, or the terrain is corrupt.
+     */
+    public static Terrain read(DataInput in) throws IOException {
+        int size = in.readInt();
+        String[] palette = new String[in.readShort()];
+        for(int i = 0; i < palette.length; i++) {
+            palette[i] = in.readUTF();
+        }
+
+        int runs = in.readInt();
+        if(runs < 0 || runs > size)
+            throw new IOException("The saved terrain is corrupt.");
+
+        short[] values = new short[runs];
+        int[] lengths = new int[runs];
+        long total = 0;
+        for(int i = 0; i < runs; i++) {
+            values[i] = in.readShort();
+            lengths[i] = readVarInt(in);
+            total += lengths[i];
+
+            if(values[i] < 0 || values[i] >= palette.length || lengths[i] <= 0)
+                throw new IOException("The saved terrain is corrupt.");
+        }
+        if(total != size)
+            throw new IOException("The saved terrain is corrupt.");
+
+        return new Terrain(palette, values, lengths, size);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IOException("The saved terrain is corrupt.");
+    }
+
+    /**
+     * Class Builder:
+     * Collects the block states of a terrain one block at a time, in raster order.
+     */
+    static final class Builder {
+        private final ArrayList<String> palette = new ArrayList<>();
+        private final HashMap<String, Short> paletteIndices = new HashMap<>();
+        private short[] values = new short[64];
+        private int[] lengths = new int[64];
+        private int runs = 0;
+        private int size = 0;
+
+        /**
+         * Add the next block.
+         * @param state Block state, as given by BlockData.getAsString.
+         */
+        void add(String state) {
+            Short value = paletteIndices.get(state);
+            if(value == null) {
+                value = (short) palette.size();
+                palette.add(state);
+                paletteIndices.put(state, value);
+            }
+
+            size++;
+            if(runs > 0 && values[runs - 1] == value) {
+                lengths[runs - 1]++;
+                return;
+            }
+
+            if(runs == values.length) {
+                values = Arrays.copyOf(values, runs * 2);
+                lengths = Arrays.copyOf(lengths, runs * 2);
+            }
+            values[runs] = value;
+            lengths[runs++] = 1;
+        }
+
+        Terrain build() {
+            return new Terrain(palette.toArray(new String[0]), Arrays.copyOf(values, runs), Arrays.copyOf(lengths, runs), size);
+        }
+    }
+}
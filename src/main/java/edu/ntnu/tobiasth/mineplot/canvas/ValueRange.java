@@ -28,4 +28,14 @@ public class ValueRange {
     public double getMaxY() {
         return maxY;
     }
+
+    /**
+     * Whether or not a point is inside the value range.
+     * @param x The value on the x-axis.
+     * @param y The value on the y-axis.
+     * @return True if the point is inside, false if not or if one of the values is NaN.
+     */
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
 }
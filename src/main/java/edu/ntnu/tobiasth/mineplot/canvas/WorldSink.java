@@ -0,0 +1,62 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * Class WorldSink:
+ * Places blocks in a world on the server.
+ *
+ * The last chunk is kept, so a chunk is only looked up once when its blocks come after each other.
+ * Blocks that already have the right material are skipped, and the rest are placed without physics updates,
+ * so the canvas doesn't drop sand or pop torches while it is drawn. Must be used on the main thread.
+ */
+public class WorldSink implements BlockSink {
+    private final World world;
+    private Chunk chunk = null;
+
+    /**
+     * Define a new world sink.
+     * @param world World to place the blocks in.
+     */
+    public WorldSink(World world) {
+        this.world = world;
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, Material material) {
+        Block block = getBlock(x, y, z);
+        if(block.getType() == material)
+            return false;
+
+        block.setType(material, false);
+        return true;
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, BlockData data) {
+        Block block = getBlock(x, y, z);
+        if(block.getBlockData().equals(data))
+            return false;
+
+        block.setBlockData(data, false);
+        return true;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    private Block getBlock(int x, int y, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+
+        if(chunk == null || chunk.getX() != chunkX || chunk.getZ() != chunkZ)
+            chunk = world.getChunkAt(chunkX, chunkZ);
+
+        return chunk.getBlock(x & 15, y, z & 15);
+    }
+}
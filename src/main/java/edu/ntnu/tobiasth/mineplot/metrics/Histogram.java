@@ -0,0 +1,96 @@
+package edu.ntnu.tobiasth.mineplot.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class Histogram:
+ * Counts recorded values in buckets, so percentiles can be read without keeping every value.
+ *
+ * Like an HDR histogram, each power of two is split into 16 buckets, so a percentile is never more than about 6% off,
+ * for any value from 0 to Long.MAX_VALUE. Recording a value is one array increment and does not allocate,
+ * and values can be recorded from any thread.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     * @param value Value.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Get the value that a share of the recorded values are less than or equal to.
+     * @param percentile Share of the values, from 0 to 100.
+     * @return Highest value in the bucket of the percentile, or 0 if nothing is recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = count.sum();
+        if(total == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if(seen >= target)
+                return Math.min(getHighestValue(bucket), max.get());
+        }
+
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the bucket of a value. Values below 16 have their own bucket,
+     * and larger values share a bucket with the values that have the same 5 highest bits.
+     * @param value Value, 0 or more.
+     * @return Bucket index.
+     */
+    static int getBucket(long value) {
+        if(value < SUB_BUCKETS)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Get the highest value in a bucket.
+     * @param bucket Bucket index.
+     * @return Highest value.
+     */
+    static long getHighestValue(int bucket) {
+        if(bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package edu.ntnu.tobiasth.mineplot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class Metrics:
+ * Counters and histograms for the work MinePlot does, shared by the whole plugin.
+ *
+ * The counters are striped, so threads that count at the same time don't wait for each other.
+ * The hot paths count once for each batch of work, like a row of values or a batch of blocks, and not once per value.
+ * Stats reads them and reports them.
+ */
+public final class Metrics {
+    /**
+     * Values calculated by expressions. A point of a curve counts as one value.
+     */
+    public static final LongAdder EVALUATIONS = new LongAdder();
+
+    /**
+     * Blocks placed by canvases.
+     */
+    public static final LongAdder BLOCKS_PLACED = new LongAdder();
+
+    /**
+     * Blocks canvases skipped, because they already had the right material.
+     */
+    public static final LongAdder BLOCKS_SKIPPED = new LongAdder();
+
+    /**
+     * Nanoseconds it took to handle each command, on the main thread.
+     */
+    public static final Histogram COMMAND_NANOS = new Histogram();
+
+    /**
+     * Nanoseconds it took to find the blocks of each function.
+     */
+    public static final Histogram FUNCTION_NANOS = new Histogram();
+
+    /**
+     * Blocks written by the block scheduler in each tick it had blocks to place.
+     */
+    public static final Histogram TICK_BLOCKS = new Histogram();
+
+    /**
+     * Nanoseconds the block scheduler spent in each tick it had blocks to place.
+     */
+    public static final Histogram TICK_NANOS = new Histogram();
+
+    private Metrics() {}
+}
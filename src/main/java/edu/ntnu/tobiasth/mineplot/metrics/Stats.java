@@ -0,0 +1,190 @@
+package edu.ntnu.tobiasth.mineplot.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Class Stats:
+ * Reports the metrics of MinePlot, with the rates of the last second and how much work is waiting.
+ *
+ * The rates are updated by calling sample once a second on the main thread. Everything can be read from any thread,
+ * like by JMX, and the queue depths are read when they are asked for.
+ */
+public class Stats implements StatsMBean {
+    private final LongSupplier blockQueueDepth;
+    private final LongSupplier renderQueueDepth;
+    private final LongSupplier clock;
+    private long lastSample;
+    private long lastEvaluations = 0;
+    private long lastTickBlocks = 0;
+    private long lastTicks = 0;
+    private volatile double evaluationsPerSecond = 0;
+    private volatile double blocksPerTick = 0;
+
+    /**
+     * Define new stats.
+     * @param blockQueueDepth Gets the number of blocks waiting to be placed.
+     * @param renderQueueDepth Gets the number of plot calculations waiting to run.
+     */
+    public Stats(LongSupplier blockQueueDepth, LongSupplier renderQueueDepth) {
+        this(blockQueueDepth, renderQueueDepth, System::nanoTime);
+    }
+
+    /**
+     * Define new stats that read the time from a clock.
+     * @param blockQueueDepth Gets the number of blocks waiting to be placed.
+     * @param renderQueueDepth Gets the number of plot calculations waiting to run.
+     * @param clock Gets the time in nanoseconds, like System.nanoTime.
+     */
+    Stats(LongSupplier blockQueueDepth, LongSupplier renderQueueDepth, LongSupplier clock) {
+        this.blockQueueDepth = blockQueueDepth;
+        this.renderQueueDepth = renderQueueDepth;
+        this.clock = clock;
+        this.lastSample = clock.getAsLong();
+    }
+
+    /**
+     * Update the rates with the work done since the last call.
+     */
+    public void sample() {
+        long now = clock.getAsLong();
+        long evaluations = Metrics.EVALUATIONS.sum();
+        long tickBlocks = Metrics.TICK_BLOCKS.getSum();
+        long ticks = Metrics.TICK_BLOCKS.getCount();
+
+        double seconds = (now - lastSample) / 1e9;
+        evaluationsPerSecond = seconds > 0 ? (evaluations - lastEvaluations) / seconds : 0;
+        blocksPerTick = ticks > lastTicks ? (tickBlocks - lastTickBlocks) / (double) (ticks - lastTicks) : 0;
+
+        lastSample = now;
+        lastEvaluations = evaluations;
+        lastTickBlocks = tickBlocks;
+        lastTicks = ticks;
+    }
+
+    /**
+     * Get the stats as lines of text, to show to a player.
+     * @return Lines.
+     */
+    public List<String> getReport() {
+        List<String> lines = new ArrayList<>();
+        lines.add("MinePlot stats. Rates are for the last second, percentiles since the server started.");
+        lines.add(format("Evaluations: %.0f/s, %d in total.", getEvaluationsPerSecond(), getEvaluations()));
+        lines.add(format("Blocks: %.1f per tick while drawing, %d placed, %d skipped.", getBlocksPerTick(), getBlocksPlaced(), getBlocksSkipped()));
+        lines.add(format("Commands: %d, p50 %.3f ms, p99 %.3f ms.", getCommands(), getCommandLatencyP50Micros() / 1e3, getCommandLatencyP99Micros() / 1e3));
+        lines.add(format("Function sampling: p50 %.3f ms, p99 %.3f ms.", getFunctionSamplingP50Micros() / 1e3, getFunctionSamplingP99Micros() / 1e3));
+        lines.add(format("Block placing: p99 %.2f ms per tick.", getTickTimeP99Millis()));
+        lines.add(format("Queues: %d blocks, %d plot calculations.", getBlockQueueDepth(), getRenderQueueDepth()));
+        return lines;
+    }
+
+    /**
+     * Get the stats in the Prometheus text format, for the textfile collector of the node exporter.
+     * @return Text.
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        appendMetric(text, "mineplot_evaluations_total", "counter", "Values calculated by expressions.", Metrics.EVALUATIONS.sum());
+        appendMetric(text, "mineplot_blocks_placed_total", "counter", "Blocks placed by canvases.", Metrics.BLOCKS_PLACED.sum());
+        appendMetric(text, "mineplot_blocks_skipped_total", "counter", "Blocks that already had the right material.", Metrics.BLOCKS_SKIPPED.sum());
+        appendSummary(text, "mineplot_command_seconds", "Time to handle a command.", Metrics.COMMAND_NANOS, 1e-9);
+        appendSummary(text, "mineplot_function_sampling_seconds", "Time to find the blocks of a function.", Metrics.FUNCTION_NANOS, 1e-9);
+        appendSummary(text, "mineplot_tick_blocks", "Blocks placed in each tick with blocks to place.", Metrics.TICK_BLOCKS, 1);
+        appendSummary(text, "mineplot_tick_seconds", "Time spent placing blocks in each tick with blocks to place.", Metrics.TICK_NANOS, 1e-9);
+        appendMetric(text, "mineplot_block_queue_depth", "gauge", "Blocks waiting to be placed.", getBlockQueueDepth());
+        appendMetric(text, "mineplot_render_queue_depth", "gauge", "Plot calculations waiting to run.", getRenderQueueDepth());
+        return text.toString();
+    }
+
+    @Override
+    public long getEvaluations() {
+        return Metrics.EVALUATIONS.sum();
+    }
+
+    @Override
+    public double getEvaluationsPerSecond() {
+        return evaluationsPerSecond;
+    }
+
+    @Override
+    public long getBlocksPlaced() {
+        return Metrics.BLOCKS_PLACED.sum();
+    }
+
+    @Override
+    public long getBlocksSkipped() {
+        return Metrics.BLOCKS_SKIPPED.sum();
+    }
+
+    @Override
+    public double getBlocksPerTick() {
+        return blocksPerTick;
+    }
+
+    @Override
+    public long getCommands() {
+        return Metrics.COMMAND_NANOS.getCount();
+    }
+
+    @Override
+    public double getCommandLatencyP50Micros() {
+        return Metrics.COMMAND_NANOS.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getCommandLatencyP99Micros() {
+        return Metrics.COMMAND_NANOS.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getFunctionSamplingP50Micros() {
+        return Metrics.FUNCTION_NANOS.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getFunctionSamplingP99Micros() {
+        return Metrics.FUNCTION_NANOS.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getTickTimeP99Millis() {
+        return Metrics.TICK_NANOS.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public long getBlockQueueDepth() {
+        return blockQueueDepth.getAsLong();
+    }
+
+    @Override
+    public long getRenderQueueDepth() {
+        return renderQueueDepth.getAsLong();
+    }
+
+    private static void appendMetric(StringBuilder text, String name, String type, String help, double value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static void appendSummary(StringBuilder text, String name, String help, Histogram histogram, double scale) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for(double quantile : new double[] {0.5, 0.9, 0.99}) {
+            text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(formatValue(histogram.getPercentile(quantile * 100) * scale)).append('\n');
+        }
+        text.append(name).append("_sum ").append(formatValue(histogram.getSum() * scale)).append('\n');
+        text.append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+
+    private static String formatValue(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+}
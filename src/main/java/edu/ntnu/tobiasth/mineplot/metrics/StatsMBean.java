@@ -0,0 +1,34 @@
+package edu.ntnu.tobiasth.mineplot.metrics;
+
+/**
+ * Interface StatsMBean:
+ * The stats MinePlot shows in JMX, like in JConsole or VisualVM.
+ * Rates are for the last second, and percentiles for everything since the server started.
+ */
+public interface StatsMBean {
+    long getEvaluations();
+
+    double getEvaluationsPerSecond();
+
+    long getBlocksPlaced();
+
+    long getBlocksSkipped();
+
+    double getBlocksPerTick();
+
+    long getCommands();
+
+    double getCommandLatencyP50Micros();
+
+    double getCommandLatencyP99Micros();
+
+    double getFunctionSamplingP50Micros();
+
+    double getFunctionSamplingP99Micros();
+
+    double getTickTimeP99Millis();
+
+    long getBlockQueueDepth();
+
+    long getRenderQueueDepth();
+}
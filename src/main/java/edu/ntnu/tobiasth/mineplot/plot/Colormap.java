@@ -0,0 +1,75 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import org.bukkit.Material;
+
+/**
+ * Class Colormap:
+ * Maps values to block materials through a precomputed lookup table.
+ * The colors are spread evenly over the table, from the lowest value to the highest.
+ */
+public class Colormap {
+    public static final Colormap DEFAULT = new Colormap(
+            Material.BLUE_CONCRETE,
+            Material.LIGHT_BLUE_CONCRETE,
+            Material.CYAN_CONCRETE,
+            Material.LIME_CONCRETE,
+            Material.YELLOW_CONCRETE,
+            Material.ORANGE_CONCRETE,
+            Material.RED_CONCRETE);
+
+    private static final int TABLE_SIZE = 256;
+    private final Material[] table = new Material[TABLE_SIZE];
+
+    /**
+     * Define a new colormap.
+     * @param colors Materials from the lowest to the highest value.
+     * @throws IllegalArgumentException If no colors are given.
+     */
+    public Colormap(Material... colors) throws IllegalArgumentException {
+        if(colors.length == 0)
+            throw new IllegalArgumentException("A colormap needs at least one color.");
+
+        for(int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = colors[i * colors.length / TABLE_SIZE];
+        }
+    }
+
+    /**
+     * Map every value to a material, scaled between the lowest and highest finite value.
+     * @param values Values to map.
+     * @param undefined Material for values that are NaN or infinite.
+     * @return Material for each value, at the same indices as the values.
+     */
+    public Material[] map(double[] values, Material undefined) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for(double value : values) {
+            if(!Double.isNaN(value) && !Double.isInfinite(value)) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+
+        //If all values are equal, they all get the lowest color.
+        double scale = max > min ? (TABLE_SIZE - 1) / (max - min) : 0;
+
+        Material[] result = new Material[values.length];
+        for(int i = 0; i < values.length; i++) {
+            double value = values[i];
+            if(Double.isNaN(value) || Double.isInfinite(value))
+                result[i] = undefined;
+            else
+                result[i] = table[(int) ((value - min) * scale)];
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the material for the highest values.
+     * @return Material.
+     */
+    public Material getHighest() {
+        return table[TABLE_SIZE - 1];
+    }
+}
@@ -0,0 +1,148 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import edu.ntnu.tobiasth.mineplot.Message;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.Grid;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.metrics.Metrics;
+import org.bukkit.Material;
+
+import java.util.BitSet;
+
+/**
+ * Class Curve:
+ * A plot of the points (x(t), y(t)) for a range of the parameter t.
+ *
+ * The curve is sampled adaptively. A range of t is only split while the points at its ends land more than
+ * one block apart, so steep or dense parts get more samples without leaving holes, and flat parts get few.
+ * Ranges where interval evaluation shows the curve is outside the canvas are skipped.
+ */
+public abstract class Curve extends Plot {
+    private static final int MAX_DEPTH = 20;
+    private final double from;
+    private final double to;
+
+    protected Curve(String name, Material material, double from, double to) throws IllegalArgumentException {
+        super(name, material);
+
+        if(!(from < to))
+            throw new IllegalArgumentException(Message.INVALID_PARAMETER_RANGE);
+
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Get the point of the curve for a value of the parameter.
+     * @param t Parameter value.
+     * @param point Array to write the x value to at index 0, and the y value at index 1.
+     */
+    protected abstract void getPoint(double t, double[] point);
+
+    /**
+     * Get intervals containing every point of the curve for a range of the parameter.
+     * @param from First parameter value.
+     * @param to Last parameter value.
+     * @return Interval of the x values at index 0, and of the y values at index 1.
+     */
+    protected abstract Interval[] getRange(double from, double to);
+
+    @Override
+    public void draw(Canvas canvas) throws IllegalArgumentException {
+        canvas.drawLayer(this, getCells(canvas.getGrid()));
+    }
+
+    /**
+     * The curve starts with one sample per block along the longest side, and is usually refined a few times over.
+     */
+    @Override
+    public long estimateEvaluations(int width, int height) {
+        return 4L * Math.max(width, height);
+    }
+
+    /**
+     * A curve can cross the canvas several times, so it is estimated to pass through each column and row twice.
+     */
+    @Override
+    public long estimateBlocks(int width, int height) {
+        return 2L * (width + height);
+    }
+
+    /**
+     * Get the blocks the curve passes through.
+     * This does not touch the world, so it is safe to call off the main thread.
+     * @param grid Grid of the canvas.
+     * @return Set of block indices, as given by Grid.getIndex.
+     */
+    public BitSet getCells(Grid grid) {
+        BitSet cells = new BitSet(grid.getWidth() * grid.getHeight());
+
+        //Start with about one sample for each block along the longest side, then refine where needed.
+        int segments = Math.max(grid.getWidth(), grid.getHeight());
+        double[] point = new double[2];
+        double previousT = from;
+        getPoint(previousT, point);
+        long previousColumn = grid.getColumn(point[0]);
+        long previousRow = grid.getRow(point[1]);
+        mark(cells, grid, previousColumn, previousRow);
+        long refined = 0;
+
+        for(int i = 1; i <= segments; i++) {
+            double t = from + (to - from) * i / segments;
+            getPoint(t, point);
+            long column = grid.getColumn(point[0]);
+            long row = grid.getRow(point[1]);
+            mark(cells, grid, column, row);
+
+            refined += refine(cells, grid, previousT, previousColumn, previousRow, t, column, row, point, 0);
+
+            previousT = t;
+            previousColumn = column;
+            previousRow = row;
+        }
+
+        Metrics.EVALUATIONS.add(segments + 1 + refined);
+        return cells;
+    }
+
+    /**
+     * Sample the middle of a parameter range while the points at its ends are more than one block apart.
+     * @return Number of new samples.
+     */
+    private int refine(BitSet cells, Grid grid, double t0, long column0, long row0, double t1, long column1, long row1, double[] point, int depth) {
+        boolean isUndefined = column0 == Long.MIN_VALUE || column1 == Long.MIN_VALUE || row0 == Long.MIN_VALUE || row1 == Long.MIN_VALUE;
+        boolean isConnected = !isUndefined && Math.abs(column1 - column0) <= 1 && Math.abs(row1 - row0) <= 1;
+        if(isConnected || depth >= MAX_DEPTH)
+            return 0;
+
+        //Skip the range if the curve can't be on the canvas anywhere inside it.
+        if(!grid.contains(column0, row0) || !grid.contains(column1, row1)) {
+            Interval[] range = getRange(t0, t1);
+            ValueRange valueRange = grid.getValueRange();
+            if(range[0].isOutside(valueRange.getMinX(), valueRange.getMaxX()) || range[1].isOutside(valueRange.getMinY(), valueRange.getMaxY()))
+                return 0;
+        }
+
+        double t = (t0 + t1) / 2;
+        getPoint(t, point);
+        long column = grid.getColumn(point[0]);
+        long row = grid.getRow(point[1]);
+        mark(cells, grid, column, row);
+
+        return 1 + refine(cells, grid, t0, column0, row0, t, column, row, point, depth + 1)
+                + refine(cells, grid, t, column, row, t1, column1, row1, point, depth + 1);
+    }
+
+    private static void mark(BitSet cells, Grid grid, long column, long row) {
+        if(grid.contains(column, row))
+            cells.set(grid.getIndex((int) column, (int) row));
+    }
+
+    public double getFrom() {
+        return from;
+    }
+
+    public double getTo() {
+        return to;
+    }
+}
@@ -1,6 +1,10 @@
 package edu.ntnu.tobiasth.mineplot.plot;
 
+import edu.ntnu.tobiasth.mineplot.metrics.Metrics;
+
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
 
 /**
  * Class Expression:
@@ -8,18 +12,72 @@ import java.util.Arrays;
  */
 public class Expression {
     private final String exp;
-    private final char variable;
+    private final char[] variables;
+    private final ExpressionNode root;
+    private final int sharedCount;
+    private final int removedNodeCount;
+    private volatile DoubleBinaryOperator evaluator;
+    private volatile boolean compiled = false;
+    private final AtomicInteger evaluations = new AtomicInteger();
     private static final boolean DEBUG = false;
+    private static final int COMPILE_THRESHOLD = 4096;
 
     /**
      * Define a new math expression.
+     * The expression is parsed and optimized once, so getting values later does not have to read the string again.
 
      * @param exp Math expression
      * @param variable Variable the expression is dependant on
+     * @throws MalformedExpressionException If the expression is malformed
      */
-    public Expression(String exp, char variable) {
+    public Expression(String exp, char variable) throws MalformedExpressionException {
+        this(exp, new char[] { variable });
+    }
+
+    /**
+     * Define a new math expression with two variables.
+     *
+     * @param exp Math expression
+     * @param variable First variable the expression is dependant on
+     * @param secondVariable Second variable the expression is dependant on
+     * @throws MalformedExpressionException If the expression is malformed
+     */
+    public Expression(String exp, char variable, char secondVariable) throws MalformedExpressionException {
+        this(exp, new char[] { variable, secondVariable });
+    }
+
+    /**
+     * Define a new math expression with one or two variables.
+     *
+     * @param exp Math expression
+     * @param variables Variables the expression is dependant on
+     * @throws MalformedExpressionException If the expression is malformed
+     * @throws IllegalArgumentException If there are not one or two variables
+     */
+    Expression(String exp, char[] variables) throws MalformedExpressionException, IllegalArgumentException {
+        if(variables.length < 1 || variables.length > 2)
+            throw new IllegalArgumentException("An expression must have one or two variables.");
+
         this.exp = exp;
-        this.variable = variable;
+        this.variables = variables.clone();
+
+        ExpressionOptimizer optimizer = new ExpressionOptimizer();
+        this.root = optimizer.optimize(new ExpressionParser(exp, variables).parse());
+        this.sharedCount = optimizer.getSharedCount();
+        this.removedNodeCount = optimizer.getRemovedNodeCount();
+        this.evaluator = this::evaluateTree;
+
+        if(DEBUG)
+            System.out.printf("Optimized %s, removed %s nodes and shared %s%n", exp, removedNodeCount, sharedCount);
+    }
+
+    /**
+     * Get the variables the expression is dependant on.
+     *
+     * @return Variables, in the order their values are given
+     */
+    public char[] getVariables() {
+        return variables.clone();
     }
 
     /**
@@ -37,11 +95,176 @@ public class Expression {
      *
      * @param variableValue Value to insert instead of the variable
      * @return Expression value
+     */
+    public double getValue(double variableValue) {
+        countEvaluations(1);
+        return evaluator.applyAsDouble(variableValue, 0);
+    }
+
+    /**
+     * Get the expression value for specific values of both variables.
+     *
+     * @param x Value to insert instead of the first variable
+     * @param y Value to insert instead of the second variable
+     * @return Expression value
+     */
+    public double getValue(double x, double y) {
+        countEvaluations(1);
+        return evaluator.applyAsDouble(x, y);
+    }
+
+    /**
+     * Get the expression values for many values of the variable in one call.
+     *
+     * The expression tree is evaluated one node at a time for the whole array,
+     * and a compiled expression is evaluated in a single loop.
+     *
+     * @param variableValues Values to insert instead of the variable
+     * @param out Array to write the expression values to, at the same indices as the variable values
+     * @throws IllegalArgumentException If the output array is shorter than the variable values
+     */
+    public void evaluate(double[] variableValues, double[] out) throws IllegalArgumentException {
+        evaluate(variableValues, null, out);
+    }
+
+    /**
+     * Get the expression values for many values of both variables in one call.
+     *
+     * @param xValues Values to insert instead of the first variable
+     * @param yValues Values to insert instead of the second variable, at the same indices as the first
+     * @param out Array to write the expression values to, at the same indices as the variable values
+     * @throws IllegalArgumentException If the second variable values or the output array are shorter than the first variable values
+     */
+    public void evaluate(double[] xValues, double[] yValues, double[] out) throws IllegalArgumentException {
+        int length = xValues.length;
+        if(out.length < length || (yValues != null && yValues.length < length))
+            throw new IllegalArgumentException("The arrays are shorter than the variable values.");
+
+        countEvaluations(length);
+        Metrics.EVALUATIONS.add(length);
+
+        if(compiled) {
+            DoubleBinaryOperator compiledEvaluator = evaluator;
+            for(int i = 0; i < length; i++)
+                out[i] = compiledEvaluator.applyAsDouble(xValues[i], yValues == null ? 0 : yValues[i]);
+        }
+        else {
+            //The first buffers hold the values of shared nodes, and are only created when they are used.
+            double[][] buffers = new double[sharedCount + root.getBufferCount()][];
+            for(int i = sharedCount; i < buffers.length; i++)
+                buffers[i] = new double[length];
+
+            root.evaluate(xValues, yValues, out, length, buffers, sharedCount);
+        }
+    }
+
+    /**
+     * Get the expression value from the expression tree, until the expression is compiled.
+     * The values of shared parts are kept for the rest of the call, so each one is calculated once.
+     *
+     * @param x Value to insert instead of the first variable
+     * @param y Value to insert instead of the second variable
+     * @return Expression value
+     */
+    private double evaluateTree(double x, double y) {
+        if(sharedCount == 0)
+            return root.evaluate(x, y, null);
+
+        double[] shared = new double[sharedCount];
+        Arrays.fill(shared, Double.NaN);
+        return root.evaluate(x, y, shared);
+    }
+
+    /**
+     * Get an interval containing every value the expression takes between two values of the variable.
+     * This is much cheaper than sampling the range, and can be used to skip ranges where nothing would be drawn.
+     *
+     * @param from First value of the variable
+     * @param to Last value of the variable
+     * @return Interval of the expression values
+     */
+    public Interval getRange(double from, double to) {
+        return root.evaluate(Interval.of(from, to), Interval.of(0, 0));
+    }
+
+    /**
+     * Count evaluations, and compile the expression once it has been evaluated enough times for it to pay off.
+     * Expressions are shared between threads, so only the thread whose evaluations reach the threshold compiles it.
+     *
+     * @param count Number of new evaluations
+     */
+    private void countEvaluations(int count) {
+        //Counting stops at the threshold, so the count can't overflow on expressions that are used for a long time.
+        if(evaluations.get() >= COMPILE_THRESHOLD)
+            return;
+
+        int before = evaluations.getAndAdd(count);
+        if(before < COMPILE_THRESHOLD && (long) before + count >= COMPILE_THRESHOLD)
+            compile();
+    }
+
+    /**
+     * Compile the expression to bytecode, and use the compiled version for all further evaluations.
+     * If the expression can't be compiled, the expression tree is still used.
+     *
+     * @return True if the expression is compiled, false if not.
+     */
+    public synchronized boolean compile() {
+        if(isCompiled())
+            return true;
+
+        try {
+            //The evaluator is written before the flag, so a thread that sees the flag also sees the compiled evaluator.
+            evaluator = ExpressionCompiler.compile(root, sharedCount);
+            compiled = true;
+            evaluations.set(COMPILE_THRESHOLD);
+            return true;
+        }
+        catch(IllegalStateException e) {
+            if(DEBUG)
+                e.printStackTrace();
+
+            return false;
+        }
+    }
+
+    /**
+     * Get how many nodes the optimization removed from the parsed expression.
+     *
+     * @return Number of removed nodes
+     */
+    public int getRemovedNodeCount() {
+        return removedNodeCount;
+    }
+
+    /**
+     * Whether or not the expression is evaluated by generated bytecode.
+     *
+     * @return True if compiled, false if the expression tree is used.
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Get the expression value for a specific value of the variable by interpreting the expression string.
+     *
+     * This is much slower than getValue, but is kept as a reference to compare the parsed expression against.
+     * Only the first variable is replaced.
+     *
+     * The string interpreter is wrong for some expressions, where getValue is right on purpose:
+     * a plus after a parenthesis is dropped, so (0.7)+3 gives 0.73, and a plus before a negative value is dropped,
+     * so x+x^6 subtracts instead for negative x. Values written in scientific notation, like 1.0E-5, are split apart.
+     * It fails with an exception on a minus before a function or parenthesis, on double minuses, on NaN or infinite
+     * values inside the expression, and when the variable is a letter of a function name, like x in exp.
+     *
+     * @param variableValue Value to insert instead of the variable
+     * @return Expression value
      * @throws MalformedExpressionException If the expression is malformed
      */
-    public double getValue(double variableValue) throws MalformedExpressionException {
+    public double getReferenceValue(double variableValue) throws MalformedExpressionException {
         try {
-            String expression = this.exp.replaceAll(String.valueOf(variable), String.valueOf(variableValue));
+            String expression = this.exp.replaceAll(String.valueOf(variables[0]), String.valueOf(variableValue));
             return getExpressionValue(expression);
         }
         catch(Exception e) {
@@ -327,6 +550,7 @@ public class Expression {
     /**
      * Enum Operator:
      * Contains all supported math operators, and their order of execution.
+     * Operators declared first bind the strongest when the expression is parsed.
      */
     enum Operator {
         RAISE("^"),
@@ -355,6 +579,15 @@ public class Expression {
             return symbol;
         }
 
+        /**
+         * Get how strong the operator binds compared to the other operators.
+         *
+         * @return Precedence, where higher binds stronger
+         */
+        public int getPrecedence() {
+            return Operator.values().length - ordinal();
+        }
+
         /**
          * Use the math operation on two numbers.
          *
@@ -0,0 +1,125 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class ExpressionCache:
+ * Keeps the most recently used expressions, so plots of the same formula share one parsed and compiled expression.
+ * All methods are thread safe.
+ */
+public class ExpressionCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, Expression> expressions;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Define a new expression cache.
+     *
+     * @param maxSize Maximum number of expressions to keep
+     * @throws IllegalArgumentException If the size is negative
+     */
+    public ExpressionCache(int maxSize) throws IllegalArgumentException {
+        if(maxSize < 0)
+            throw new IllegalArgumentException("The cache size can not be negative.");
+
+        this.maxSize = maxSize;
+
+        //Access order makes the first entry the least recently used.
+        this.expressions = new LinkedHashMap<String, Expression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                if(size() > ExpressionCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the expression for the given string and variables, and parse it if it is not cached.
+     *
+     * @param exp Math expression
+     * @param variables One or two variables the expression is dependant on
+     * @return Expression
+     * @throws Expression.MalformedExpressionException If the expression is malformed
+     * @throws IllegalArgumentException If there are not one or two variables
+     */
+    public Expression get(String exp, char... variables) throws Expression.MalformedExpressionException, IllegalArgumentException {
+        String key = getKey(exp, variables);
+
+        synchronized(this) {
+            Expression cached = expressions.get(key);
+            if(cached != null) {
+                hits++;
+                return cached;
+            }
+
+            misses++;
+        }
+
+        //Parse outside the lock, so other players don't wait for it.
+        Expression expression = new Expression(exp, variables);
+
+        synchronized(this) {
+            Expression cached = expressions.get(key);
+            if(cached != null)
+                return cached;
+
+            expressions.put(key, expression);
+            return expression;
+        }
+    }
+
+    /**
+     * Get the cache key for an expression, which ignores whitespace.
+     *
+     * @param exp Math expression
+     * @param variables Variables the expression is dependant on
+     * @return Cache key
+     */
+    private static String getKey(String exp, char[] variables) {
+        StringBuilder key = new StringBuilder().append(variables).append(':');
+        for(char c : exp.toCharArray()) {
+            if(!Character.isWhitespace(c))
+                key.append(c);
+        }
+
+        return key.toString();
+    }
+
+    public synchronized int getSize() {
+        return expressions.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get string with the cache statistics.
+     *
+     * @return Info string.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Expression cache: %s/%s expressions, %s hits, %s misses, %s evictions.", expressions.size(), maxSize, hits, misses, evictions);
+    }
+}
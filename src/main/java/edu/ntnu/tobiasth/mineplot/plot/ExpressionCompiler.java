@@ -0,0 +1,404 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Class ExpressionCompiler:
+ * Turns an expression tree into a generated class implementing DoubleBinaryOperator and DoubleUnaryOperator.
+ *
+ * The class file is written by hand, with one straight-line method that loads the variables and constants,
+ * uses the double instructions for operators, and calls the java.lang.Math methods for functions.
+ * Shared parts are stored in a local variable the first time they are calculated.
+ * The single variable method passes 0 as the second variable to the two variable method.
+ * This lets the JIT compiler inline the whole expression like it was written in Java.
+ */
+class ExpressionCompiler {
+    private static final String PACKAGE = "edu/ntnu/tobiasth/mineplot/plot/generated/";
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    private static final int CLASS_VERSION = 52; //Java 8, so no stack map frames are needed.
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DLOAD = 0x18;
+    private static final int DLOAD_1 = 0x27;
+    private static final int DLOAD_3 = 0x29;
+    private static final int DSTORE = 0x39;
+    private static final int DUP2 = 0x5c;
+    private static final int WIDE = 0xc4;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int LDC2_W = 0x14;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final BitSet storedShared = new BitSet();
+    private final int sharedCount;
+
+    private ExpressionCompiler(int sharedCount) {
+        this.sharedCount = sharedCount;
+    }
+
+    /**
+     * Compile an expression tree.
+     *
+     * @param root Root node of the expression tree
+     * @param sharedCount Number of shared nodes in the expression
+     * @return Compiled expression
+     * @throws IllegalStateException If the class could not be generated or loaded
+     */
+    static DoubleBinaryOperator compile(ExpressionNode root, int sharedCount) throws IllegalStateException {
+        String className = PACKAGE + "CompiledExpression" + classCount.incrementAndGet();
+
+        try {
+            byte[] bytes = new ExpressionCompiler(sharedCount).writeClass(className, root);
+            Class<?> compiled = new GeneratedClassLoader(ExpressionCompiler.class.getClassLoader()).define(className.replace('/', '.'), bytes);
+            return (DoubleBinaryOperator) compiled.getConstructor().newInstance();
+        }
+        catch(Exception | LinkageError e) {
+            throw new IllegalStateException("Could not compile the expression.", e);
+        }
+    }
+
+    /**
+     * Write the complete class file.
+     *
+     * @param className Internal name of the class
+     * @param root Root node of the expression tree
+     * @return Class file bytes
+     * @throws IOException Never, as everything is written to memory
+     * @throws NoSuchMethodException If a function has no matching method in java.lang.Math
+     */
+    private byte[] writeClass(String className, ExpressionNode root) throws IOException, NoSuchMethodException {
+        //The pool has to be filled by the method bodies before it can be written.
+        int thisClass = pool.classEntry(className);
+        int superClass = pool.classEntry("java/lang/Object");
+        int binaryInterface = pool.classEntry("java/util/function/DoubleBinaryOperator");
+        int unaryInterface = pool.classEntry("java/util/function/DoubleUnaryOperator");
+        byte[] constructor = writeMethod("<init>", "()V", 1, 1, constructorCode());
+        byte[] apply = writeMethod("applyAsDouble", "(DD)D", maxStack(root), sharedLocal(sharedCount), applyCode(root));
+        byte[] applyUnary = writeMethod("applyAsDouble", "(D)D", 5, 3, applyUnaryCode(className));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+        pool.write(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(2);
+        out.writeShort(binaryInterface);
+        out.writeShort(unaryInterface);
+        out.writeShort(0); //Fields
+        out.writeShort(3); //Methods
+        out.write(constructor);
+        out.write(apply);
+        out.write(applyUnary);
+        out.writeShort(0); //Attributes
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a public method with a single code attribute.
+     *
+     * @param name Method name
+     * @param descriptor Method descriptor
+     * @param maxStack Maximum operand stack size
+     * @param maxLocals Number of local variable slots
+     * @param code Method bytecode
+     * @return Method bytes
+     * @throws IOException Never, as everything is written to memory
+     */
+    private byte[] writeMethod(String name, String descriptor, int maxStack, int maxLocals, byte[] code) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(pool.utf8Entry(name));
+        out.writeShort(pool.utf8Entry(descriptor));
+        out.writeShort(1);
+        out.writeShort(pool.utf8Entry("Code"));
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); //Exception table
+        out.writeShort(0); //Attributes
+        return bytes.toByteArray();
+    }
+
+    private byte[] constructorCode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ALOAD_0);
+        out.writeByte(INVOKESPECIAL);
+        out.writeShort(pool.methodEntry("java/lang/Object", "<init>", "()V"));
+        out.writeByte(RETURN);
+        return bytes.toByteArray();
+    }
+
+    private byte[] applyCode(ExpressionNode root) throws IOException, NoSuchMethodException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeNode(out, root);
+        out.writeByte(DRETURN);
+        return bytes.toByteArray();
+    }
+
+    private byte[] applyUnaryCode(String className) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ALOAD_0);
+        out.writeByte(DLOAD_1);
+        out.writeByte(DCONST_0);
+        out.writeByte(INVOKEVIRTUAL);
+        out.writeShort(pool.methodEntry(className, "applyAsDouble", "(DD)D"));
+        out.writeByte(DRETURN);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write the instructions that leave the value of a node on the operand stack.
+     *
+     * @param out Code output
+     * @param node Node to write
+     * @throws IOException Never, as everything is written to memory
+     * @throws NoSuchMethodException If a function has no matching method in java.lang.Math
+     */
+    private void writeNode(DataOutputStream out, ExpressionNode node) throws IOException, NoSuchMethodException {
+        if(node instanceof ExpressionNode.Constant) {
+            double value = ((ExpressionNode.Constant) node).getValue();
+
+            //Compare the bits to keep the sign of negative zero.
+            if(Double.doubleToRawLongBits(value) == 0L)
+                out.writeByte(DCONST_0);
+            else if(value == 1)
+                out.writeByte(DCONST_1);
+            else {
+                out.writeByte(LDC2_W);
+                out.writeShort(pool.doubleEntry(value));
+            }
+        }
+        else if(node instanceof ExpressionNode.Variable) {
+            out.writeByte(((ExpressionNode.Variable) node).getIndex() == 0 ? DLOAD_1 : DLOAD_3);
+        }
+        else if(node instanceof ExpressionNode.Negation) {
+            writeNode(out, ((ExpressionNode.Negation) node).getOperand());
+            out.writeByte(DNEG);
+        }
+        else if(node instanceof ExpressionNode.FunctionCall) {
+            ExpressionNode.FunctionCall call = (ExpressionNode.FunctionCall) node;
+            writeNode(out, call.getArgument());
+
+            //Every function symbol is also the name of the java.lang.Math method it uses.
+            String methodName = call.getFunction().getSymbol();
+            Math.class.getMethod(methodName, double.class);
+            out.writeByte(INVOKESTATIC);
+            out.writeShort(pool.methodEntry("java/lang/Math", methodName, "(D)D"));
+        }
+        else if(node instanceof ExpressionNode.Shared) {
+            ExpressionNode.Shared shared = (ExpressionNode.Shared) node;
+            int local = sharedLocal(shared.getIndex());
+
+            //The method has no jumps, so the first use is always calculated before the others.
+            if(storedShared.get(shared.getIndex())) {
+                writeLocalInstruction(out, DLOAD, local);
+            }
+            else {
+                writeNode(out, shared.getValue());
+                out.writeByte(DUP2);
+                writeLocalInstruction(out, DSTORE, local);
+                storedShared.set(shared.getIndex());
+            }
+        }
+        else if(node instanceof ExpressionNode.Operation) {
+            ExpressionNode.Operation operation = (ExpressionNode.Operation) node;
+            writeNode(out, operation.getLeft());
+            writeNode(out, operation.getRight());
+
+            switch(operation.getOperator()) {
+                case RAISE: {
+                    out.writeByte(INVOKESTATIC);
+                    out.writeShort(pool.methodEntry("java/lang/Math", "pow", "(DD)D"));
+                    break;
+                }
+                case MULTIPLY: out.writeByte(DMUL); break;
+                case DIVIDE: out.writeByte(DDIV); break;
+                case ADD: out.writeByte(DADD); break;
+                case SUBTRACT: out.writeByte(DSUB); break;
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Unknown expression node " + node.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Write a load or store instruction for a local variable.
+     *
+     * @param out Code output
+     * @param opcode Instruction
+     * @param local Local variable index
+     * @throws IOException Never, as everything is written to memory
+     */
+    private static void writeLocalInstruction(DataOutputStream out, int opcode, int local) throws IOException {
+        if(local > 0xff) {
+            out.writeByte(WIDE);
+            out.writeByte(opcode);
+            out.writeShort(local);
+        }
+        else {
+            out.writeByte(opcode);
+            out.writeByte(local);
+        }
+    }
+
+    /**
+     * Get the local variable index of a shared node.
+     * Index 0 is this, and the values of the variables take index 1 to 4.
+     *
+     * @param index Shared node index
+     * @return Local variable index
+     */
+    private static int sharedLocal(int index) {
+        return 5 + 2 * index;
+    }
+
+    /**
+     * Get the number of operand stack slots needed to evaluate a node. Every double takes two slots.
+     *
+     * @param node Node to measure
+     * @return Maximum stack size
+     */
+    private static int maxStack(ExpressionNode node) {
+        if(node instanceof ExpressionNode.Negation)
+            return maxStack(((ExpressionNode.Negation) node).getOperand());
+        if(node instanceof ExpressionNode.FunctionCall)
+            return maxStack(((ExpressionNode.FunctionCall) node).getArgument());
+        if(node instanceof ExpressionNode.Shared)
+            return Math.max(maxStack(((ExpressionNode.Shared) node).getValue()), 4);
+        if(node instanceof ExpressionNode.Operation) {
+            ExpressionNode.Operation operation = (ExpressionNode.Operation) node;
+            return Math.max(maxStack(operation.getLeft()), 2 + maxStack(operation.getRight()));
+        }
+
+        return 2;
+    }
+
+    /**
+     * Class ConstantPool:
+     * The constant pool of the generated class, where every entry is only added once.
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8Entry(String value) throws IOException {
+            Integer index = entries.get("utf8 " + value);
+            if(index != null)
+                return index;
+
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+            return add("utf8 " + value, 1);
+        }
+
+        int classEntry(String internalName) throws IOException {
+            Integer index = entries.get("class " + internalName);
+            if(index != null)
+                return index;
+
+            int name = utf8Entry(internalName);
+            out.writeByte(CLASS);
+            out.writeShort(name);
+            return add("class " + internalName, 1);
+        }
+
+        int methodEntry(String owner, String name, String descriptor) throws IOException {
+            String key = String.format("method %s.%s%s", owner, name, descriptor);
+            Integer index = entries.get(key);
+            if(index != null)
+                return index;
+
+            int ownerClass = classEntry(owner);
+            int nameIndex = utf8Entry(name);
+            int descriptorIndex = utf8Entry(descriptor);
+            out.writeByte(NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            int nameAndType = add(String.format("type %s%s", name, descriptor), 1);
+
+            out.writeByte(METHOD_REF);
+            out.writeShort(ownerClass);
+            out.writeShort(nameAndType);
+            return add(key, 1);
+        }
+
+        int doubleEntry(double value) throws IOException {
+            String key = "double " + Double.doubleToRawLongBits(value);
+            Integer index = entries.get(key);
+            if(index != null)
+                return index;
+
+            out.writeByte(DOUBLE);
+            out.writeDouble(value);
+
+            //Doubles take up two entries in the constant pool.
+            return add(key, 2);
+        }
+
+        private int add(String key, int size) {
+            int index = count;
+            entries.put(key, index);
+            count += size;
+            return index;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            target.write(bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Class GeneratedClassLoader:
+     * Loads a single generated class, so the class can be unloaded together with its expression.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import java.util.Arrays;
+
+/**
+ * Class ExpressionNode:
+ * Immutable node in the parsed tree of an expression.
+ * The tree is built once by the ExpressionParser and can be evaluated any number of times.
+ */
+abstract class ExpressionNode {
+    /**
+     * Evaluate the node for specific values of the variables.
+     *
+     * @param x Value to insert instead of the first variable
+     * @param y Value to insert instead of the second variable
+     * @param shared Values of the shared nodes, NaN until they are calculated. Can be null if there are no shared nodes.
+     * @return Node value
+     */
+    abstract double evaluate(double x, double y, double[] shared);
+
+    /**
+     * Evaluate the node for many values of the variables at once.
+     * Each node is evaluated for all the values before moving on to the next node.
+     *
+     * @param xValues Values to insert instead of the first variable
+     * @param yValues Values to insert instead of the second variable, or null if there is only one variable
+     * @param out Array to write the node values to
+     * @param length Number of values to evaluate
+     * @param buffers Values of the shared nodes, followed by temporary arrays for the right side of operations
+     * @param level Index of the first temporary array the node is allowed to use
+     */
+    abstract void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level);
+
+    /**
+     * Get an interval containing every value the node takes while the variables are inside the given intervals.
+     *
+     * @param x Interval of the first variable
+     * @param y Interval of the second variable
+     * @return Interval of the node values
+     */
+    abstract Interval evaluate(Interval x, Interval y);
+
+    /**
+     * Get the number of temporary arrays needed to evaluate the node for many values at once.
+     * This does not include the arrays for the values of shared nodes.
+     *
+     * @return Number of buffers
+     */
+    abstract int getBufferCount();
+
+    /**
+     * Class Constant:
+     * A number written directly in the expression.
+     */
+    static final class Constant extends ExpressionNode {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        double getValue() {
+            return value;
+        }
+
+        @Override
+        double evaluate(double x, double y, double[] shared) {
+            return value;
+        }
+
+        @Override
+        void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+            Arrays.fill(out, 0, length, value);
+        }
+
+        @Override
+        Interval evaluate(Interval x, Interval y) {
+            return Interval.of(value, value);
+        }
+
+        @Override
+        int getBufferCount() {
+            return 0;
+        }
+    }
+
+    /**
+     * Class Variable:
+     * One of the variables the expression is dependant on.
+     */
+    static final class Variable extends ExpressionNode {
+        private final int index;
+
+        Variable(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Get which variable this is.
+         *
+         * @return 0 for the first variable, 1 for the second.
+         */
+        int getIndex() {
+            return index;
+        }
+
+        @Override
+        double evaluate(double x, double y, double[] shared) {
+            return index == 0 ? x : y;
+        }
+
+        @Override
+        void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+            System.arraycopy(index == 0 ? xValues : yValues, 0, out, 0, length);
+        }
+
+        @Override
+        Interval evaluate(Interval x, Interval y) {
+            return index == 0 ? x : y;
+        }
+
+        @Override
+        int getBufferCount() {
+            return 0;
+        }
+    }
+
+    /**
+     * Class Negation:
+     * A minus sign in front of a number, a variable, a function or a parentheses.
+     */
+    static final class Negation extends ExpressionNode {
+        private final ExpressionNode operand;
+
+        Negation(ExpressionNode operand) {
+            this.operand = operand;
+        }
+
+        ExpressionNode getOperand() {
+            return operand;
+        }
+
+        @Override
+        double evaluate(double x, double y, double[] shared) {
+            return -operand.evaluate(x, y, shared);
+        }
+
+        @Override
+        void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+            operand.evaluate(xValues, yValues, out, length, buffers, level);
+            for(int i = 0; i < length; i++)
+                out[i] = -out[i];
+        }
+
+        @Override
+        Interval evaluate(Interval x, Interval y) {
+            return operand.evaluate(x, y).negate();
+        }
+
+        @Override
+        int getBufferCount() {
+            return operand.getBufferCount();
+        }
+    }
+
+    /**
+     * Class FunctionCall:
+     * A math function used on the expression inside its parentheses.
+     */
+    static final class FunctionCall extends ExpressionNode {
+        private final Expression.Function function;
+        private final ExpressionNode argument;
+
+        FunctionCall(Expression.Function function, ExpressionNode argument) {
+            this.function = function;
+            this.argument = argument;
+        }
+
+        Expression.Function getFunction() {
+            return function;
+        }
+
+        ExpressionNode getArgument() {
+            return argument;
+        }
+
+        @Override
+        double evaluate(double x, double y, double[] shared) {
+            return function.use(argument.evaluate(x, y, shared));
+        }
+
+        @Override
+        void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+            argument.evaluate(xValues, yValues, out, length, buffers, level);
+            for(int i = 0; i < length; i++)
+                out[i] = function.use(out[i]);
+        }
+
+        @Override
+        Interval evaluate(Interval x, Interval y) {
+            return argument.evaluate(x, y).use(function);
+        }
+
+        @Override
+        int getBufferCount() {
+            return argument.getBufferCount();
+        }
+    }
+
+    /**
+     * Class Operation:
+     * A math operator used on the expressions in front of and behind it.
+     */
+    static final class Operation extends ExpressionNode {
+        private final Expression.Operator operator;
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+
+        Operation(Expression.Operator operator, ExpressionNode left, ExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        Expression.Operator getOperator() {
+            return operator;
+        }
+
+        ExpressionNode getLeft() {
+            return left;
+        }
+
+        ExpressionNode getRight() {
+            return right;
+        }
+
+        @Override
+        double evaluate(double x, double y, double[] shared) {
+            return operator.use(left.evaluate(x, y, shared), right.evaluate(x, y, shared));
+        }
+
+        @Override
+        void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+            double[] rightValues = buffers[level];
+            left.evaluate(xValues, yValues, out, length, buffers, level);
+            right.evaluate(xValues, yValues, rightValues, length, buffers, level + 1);
+
+            //Choose the operator once, so each loop is simple enough for the JIT compiler to vectorize.
+            switch(operator) {
+                case RAISE: {
+                    for(int i = 0; i < length; i++)
+                        out[i] = Math.pow(out[i], rightValues[i]);
+                    break;
+                }
+                case MULTIPLY: {
+                    for(int i = 0; i < length; i++)
+                        out[i] *= rightValues[i];
+                    break;
+                }
+                case DIVIDE: {
+                    for(int i = 0; i < length; i++)
+                        out[i] /= rightValues[i];
+                    break;
+                }
+                case ADD: {
+                    for(int i = 0; i < length; i++)
+                        out[i] += rightValues[i];
+                    break;
+                }
+                case SUBTRACT: {
+                    for(int i = 0; i < length; i++)
+                        out[i] -= rightValues[i];
+                    break;
+                }
+            }
+        }
+
+        @Override
+        Interval evaluate(Interval x, Interval y) {
+            return left.evaluate(x, y).use(operator, right.evaluate(x, y));
+        }
+
+        @Override
+        int getBufferCount() {
+            return Math.max(left.getBufferCount(), 1 + right.getBufferCount());
+        }
+    }
+
+    /**
+     * Class Shared:
+     * A part of the expression that is used in several places, but only has to be calculated once for each value.
+     *
+     * The value of the part is kept at the index of the shared node, in the shared values for a single value
+     * and in the buffers when evaluating many values at once, so every other use of the part can copy it.
+     * A part that is NaN is calculated again for each use, which gives the same NaN.
+     */
+    static final class Shared extends ExpressionNode {
+        private final int index;
+        private final ExpressionNode value;
+
+        Shared(int index, ExpressionNode value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        ExpressionNode getValue() {
+            return value;
+        }
+
+        @Override
+        double evaluate(double x, double y, double[] shared) {
+            if(Double.isNaN(shared[index]))
+                shared[index] = value.evaluate(x, y, shared);
+
+            return shared[index];
+        }
+
+        @Override
+        void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+            if(buffers[index] == null) {
+                buffers[index] = new double[length];
+                value.evaluate(xValues, yValues, buffers[index], length, buffers, level);
+            }
+
+            System.arraycopy(buffers[index], 0, out, 0, length);
+        }
+
+        @Override
+        Interval evaluate(Interval x, Interval y) {
+            return value.evaluate(x, y);
+        }
+
+        @Override
+        int getBufferCount() {
+            return value.getBufferCount();
+        }
+    }
+}
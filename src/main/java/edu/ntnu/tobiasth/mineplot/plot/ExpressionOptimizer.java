@@ -0,0 +1,223 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Class ExpressionOptimizer:
+ * Makes an expression tree cheaper to evaluate without changing any of its values.
+ *
+ * Constant parts are calculated once, operations that can't change the other operand are removed,
+ * and parts that are written several times are shared, so they are only calculated once for each value.
+ * Only rewrites that give the exact same double for every input are made, which is why x+0 is kept:
+ * it turns a negative zero positive.
+ */
+class ExpressionOptimizer {
+    private final Map<String, ExpressionNode> uniqueNodes = new HashMap<>();
+    private final Map<ExpressionNode, Integer> ids = new IdentityHashMap<>();
+    private final Map<ExpressionNode, Integer> references = new IdentityHashMap<>();
+    private final Map<ExpressionNode, ExpressionNode> rebuilt = new IdentityHashMap<>();
+    private int sharedCount = 0;
+    private int removedNodeCount = 0;
+
+    /**
+     * Optimize an expression tree.
+     *
+     * @param root Root node of the parsed expression tree
+     * @return Root node of the optimized expression
+     */
+    ExpressionNode optimize(ExpressionNode root) {
+        ExpressionNode simplified = simplify(root);
+        countReferences(simplified);
+        ExpressionNode result = rebuild(simplified);
+
+        removedNodeCount = countNodes(root) - references.size();
+        return result;
+    }
+
+    /**
+     * Get the number of parts that are shared.
+     *
+     * @return Number of shared nodes
+     */
+    int getSharedCount() {
+        return sharedCount;
+    }
+
+    /**
+     * Get how many nodes fewer the optimized expression has than the parsed expression.
+     *
+     * @return Number of removed nodes
+     */
+    int getRemovedNodeCount() {
+        return removedNodeCount;
+    }
+
+    /**
+     * Fold constants and remove identities from the bottom up, and return the same node for equal parts.
+     *
+     * @param node Node to simplify
+     * @return Simplified node
+     */
+    private ExpressionNode simplify(ExpressionNode node) {
+        if(node instanceof ExpressionNode.Constant) {
+            return constant(((ExpressionNode.Constant) node).getValue());
+        }
+        if(node instanceof ExpressionNode.Variable) {
+            return unique("v" + ((ExpressionNode.Variable) node).getIndex(), node);
+        }
+        if(node instanceof ExpressionNode.Negation) {
+            ExpressionNode operand = simplify(((ExpressionNode.Negation) node).getOperand());
+
+            if(operand instanceof ExpressionNode.Constant)
+                return constant(-((ExpressionNode.Constant) operand).getValue());
+            if(operand instanceof ExpressionNode.Negation)
+                return ((ExpressionNode.Negation) operand).getOperand();
+
+            return unique("n" + id(operand), new ExpressionNode.Negation(operand));
+        }
+        if(node instanceof ExpressionNode.FunctionCall) {
+            Expression.Function function = ((ExpressionNode.FunctionCall) node).getFunction();
+            ExpressionNode argument = simplify(((ExpressionNode.FunctionCall) node).getArgument());
+
+            if(argument instanceof ExpressionNode.Constant)
+                return constant(function.use(((ExpressionNode.Constant) argument).getValue()));
+
+            return unique(String.format("f%s %s", function, id(argument)), new ExpressionNode.FunctionCall(function, argument));
+        }
+
+        ExpressionNode.Operation operation = (ExpressionNode.Operation) node;
+        Expression.Operator operator = operation.getOperator();
+        ExpressionNode left = simplify(operation.getLeft());
+        ExpressionNode right = simplify(operation.getRight());
+
+        if(left instanceof ExpressionNode.Constant && right instanceof ExpressionNode.Constant)
+            return constant(operator.use(((ExpressionNode.Constant) left).getValue(), ((ExpressionNode.Constant) right).getValue()));
+
+        switch(operator) {
+            case RAISE: {
+                //Math.pow returns the base itself for the exponent 1, and 1 for the exponent 0.
+                if(isConstant(right, 1))
+                    return left;
+                if(isConstant(right, 0) || isConstant(right, -0.0))
+                    return constant(1);
+                break;
+            }
+            case MULTIPLY: {
+                if(isConstant(right, 1))
+                    return left;
+                if(isConstant(left, 1))
+                    return right;
+                break;
+            }
+            case DIVIDE: {
+                if(isConstant(right, 1))
+                    return left;
+                break;
+            }
+            case ADD: {
+                if(isConstant(right, -0.0))
+                    return left;
+                if(isConstant(left, -0.0))
+                    return right;
+                break;
+            }
+            case SUBTRACT: {
+                if(isConstant(right, 0))
+                    return left;
+                break;
+            }
+        }
+
+        return unique(String.format("o%s %s %s", operator, id(left), id(right)), new ExpressionNode.Operation(operator, left, right));
+    }
+
+    /**
+     * Count how many parents reference each node.
+     *
+     * @param node Node to count the children of
+     */
+    private void countReferences(ExpressionNode node) {
+        Integer count = references.get(node);
+        references.put(node, count == null ? 1 : count + 1);
+
+        //Only count the children the first time a node is reached.
+        if(count == null) {
+            for(ExpressionNode child : children(node))
+                countReferences(child);
+        }
+    }
+
+    /**
+     * Rebuild the expression, and wrap every calculated node with several parents in a shared node.
+     *
+     * @param node Node to rebuild
+     * @return Rebuilt node, which is the same object every time it is reached
+     */
+    private ExpressionNode rebuild(ExpressionNode node) {
+        ExpressionNode result = rebuilt.get(node);
+        if(result != null)
+            return result;
+
+        if(node instanceof ExpressionNode.Negation)
+            result = new ExpressionNode.Negation(rebuild(((ExpressionNode.Negation) node).getOperand()));
+        else if(node instanceof ExpressionNode.FunctionCall)
+            result = new ExpressionNode.FunctionCall(((ExpressionNode.FunctionCall) node).getFunction(), rebuild(((ExpressionNode.FunctionCall) node).getArgument()));
+        else if(node instanceof ExpressionNode.Operation)
+            result = new ExpressionNode.Operation(((ExpressionNode.Operation) node).getOperator(), rebuild(((ExpressionNode.Operation) node).getLeft()), rebuild(((ExpressionNode.Operation) node).getRight()));
+        else
+            result = node;
+
+        //Constants and variables are as cheap to load as a shared value.
+        boolean isCalculated = !(node instanceof ExpressionNode.Constant || node instanceof ExpressionNode.Variable);
+        if(isCalculated && references.get(node) > 1)
+            result = new ExpressionNode.Shared(sharedCount++, result);
+
+        rebuilt.put(node, result);
+        return result;
+    }
+
+    private ExpressionNode constant(double value) {
+        //Use the bits as key, so 0 and -0 are kept apart.
+        return unique("c" + Double.doubleToRawLongBits(value), new ExpressionNode.Constant(value));
+    }
+
+    private ExpressionNode unique(String key, ExpressionNode node) {
+        ExpressionNode existing = uniqueNodes.get(key);
+        if(existing != null)
+            return existing;
+
+        uniqueNodes.put(key, node);
+        ids.put(node, ids.size());
+        return node;
+    }
+
+    private int id(ExpressionNode node) {
+        return ids.get(node);
+    }
+
+    private static boolean isConstant(ExpressionNode node, double value) {
+        return node instanceof ExpressionNode.Constant
+                && Double.doubleToRawLongBits(((ExpressionNode.Constant) node).getValue()) == Double.doubleToRawLongBits(value);
+    }
+
+    private static ExpressionNode[] children(ExpressionNode node) {
+        if(node instanceof ExpressionNode.Negation)
+            return new ExpressionNode[] { ((ExpressionNode.Negation) node).getOperand() };
+        if(node instanceof ExpressionNode.FunctionCall)
+            return new ExpressionNode[] { ((ExpressionNode.FunctionCall) node).getArgument() };
+        if(node instanceof ExpressionNode.Operation)
+            return new ExpressionNode[] { ((ExpressionNode.Operation) node).getLeft(), ((ExpressionNode.Operation) node).getRight() };
+
+        return new ExpressionNode[0];
+    }
+
+    private static int countNodes(ExpressionNode node) {
+        int count = 1;
+        for(ExpressionNode child : children(node))
+            count += countNodes(child);
+
+        return count;
+    }
+}
@@ -0,0 +1,272 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class ExpressionParser:
+ * Splits a math expression into tokens and builds a tree of expression nodes from them.
+ *
+ * Operators are parsed by precedence climbing, where the binding strength of each operator
+ * follows its order of execution in the Operator enum. A sign in front of a number, a variable,
+ * a function or a parentheses belongs to that operand, just like in the string interpreter.
+ */
+class ExpressionParser {
+    private final String exp;
+    private final char[] variables;
+    private final List<Token> tokens;
+    private int position = 0;
+
+    /**
+     * Define a new parser for the given expression.
+     *
+     * @param exp Math expression
+     * @param variables Variables the expression is dependant on
+     * @throws Expression.MalformedExpressionException If the expression contains unknown symbols
+     */
+    ExpressionParser(String exp, char... variables) throws Expression.MalformedExpressionException {
+        this.exp = exp;
+        this.variables = variables;
+        this.tokens = tokenize();
+    }
+
+    /**
+     * Parse the whole expression.
+     *
+     * @return Root node of the expression tree
+     * @throws Expression.MalformedExpressionException If the expression is malformed
+     */
+    ExpressionNode parse() throws Expression.MalformedExpressionException {
+        ExpressionNode root = parseExpression(0);
+        if(peek().type != TokenType.END)
+            throw new Expression.MalformedExpressionException(String.format("Unexpected '%s' in the expression.", peek().text));
+
+        return root;
+    }
+
+    /**
+     * Parse operations as long as the next operator binds at least as strong as the given precedence.
+     *
+     * @param minPrecedence Lowest operator precedence to include
+     * @return Node for the parsed part of the expression
+     * @throws Expression.MalformedExpressionException If the expression is malformed
+     */
+    private ExpressionNode parseExpression(int minPrecedence) throws Expression.MalformedExpressionException {
+        ExpressionNode left = parseOperand();
+
+        while(peek().type == TokenType.OPERATOR && peek().operator.getPrecedence() >= minPrecedence) {
+            Expression.Operator operator = next().operator;
+
+            //All operators are left associative, so the right side must bind stronger.
+            ExpressionNode right = parseExpression(operator.getPrecedence() + 1);
+            left = new ExpressionNode.Operation(operator, left, right);
+        }
+
+        return left;
+    }
+
+    /**
+     * Parse a single operand, including any signs in front of it.
+     *
+     * @return Node for the operand
+     * @throws Expression.MalformedExpressionException If the expression is malformed
+     */
+    private ExpressionNode parseOperand() throws Expression.MalformedExpressionException {
+        Token token = next();
+
+        switch(token.type) {
+            case SIGN: {
+                ExpressionNode operand = parseOperand();
+                return "-".equals(token.text) ? new ExpressionNode.Negation(operand) : operand;
+            }
+            case NUMBER: {
+                return new ExpressionNode.Constant(token.number);
+            }
+            case VARIABLE: {
+                return new ExpressionNode.Variable(token.variableIndex);
+            }
+            case FUNCTION: {
+                expect(TokenType.LEFT_PARENTHESIS);
+                ExpressionNode argument = parseExpression(0);
+                expect(TokenType.RIGHT_PARENTHESIS);
+                return new ExpressionNode.FunctionCall(token.function, argument);
+            }
+            case LEFT_PARENTHESIS: {
+                ExpressionNode inside = parseExpression(0);
+                expect(TokenType.RIGHT_PARENTHESIS);
+                return inside;
+            }
+            case END: {
+                throw new Expression.MalformedExpressionException("The expression ended unexpectedly.");
+            }
+            default: {
+                throw new Expression.MalformedExpressionException(String.format("Unexpected '%s' in the expression.", token.text));
+            }
+        }
+    }
+
+    /**
+     * Consume the next token, and throw an exception if it is not of the given type.
+     *
+     * @param type Expected token type
+     * @throws Expression.MalformedExpressionException If the next token has another type
+     */
+    private void expect(TokenType type) throws Expression.MalformedExpressionException {
+        if(next().type != type)
+            throw new Expression.MalformedExpressionException("The parentheses of the given expression do not match.");
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if(token.type != TokenType.END)
+            position++;
+
+        return token;
+    }
+
+    /**
+     * Split the expression into tokens.
+     *
+     * A plus or minus is an operator if it follows a number, a variable or a closing parentheses,
+     * otherwise it is the sign of the following operand.
+     *
+     * @return List of tokens, always ending with an END token
+     * @throws Expression.MalformedExpressionException If the expression contains unknown symbols
+     */
+    private List<Token> tokenize() throws Expression.MalformedExpressionException {
+        List<Token> result = new ArrayList<>();
+        int i = 0;
+
+        while(i < exp.length()) {
+            char current = exp.charAt(i);
+            TokenType previous = result.isEmpty() ? TokenType.END : result.get(result.size() - 1).type;
+            boolean followsOperand = previous == TokenType.NUMBER || previous == TokenType.VARIABLE || previous == TokenType.RIGHT_PARENTHESIS;
+
+            if(Character.isWhitespace(current)) {
+                i++;
+            }
+            else if(Character.isDigit(current) || current == '.') {
+                int end = i;
+                while(end < exp.length() && (Character.isDigit(exp.charAt(end)) || exp.charAt(end) == '.'))
+                    end++;
+
+                String text = exp.substring(i, end);
+                try {
+                    result.add(new Token(TokenType.NUMBER, text, Double.parseDouble(text), null, null));
+                }
+                catch(NumberFormatException e) {
+                    throw new Expression.MalformedExpressionException(String.format("'%s' is not a valid number.", text));
+                }
+                i = end;
+            }
+            else if(Character.isLetter(current)) {
+                int end = i;
+                while(end < exp.length() && Character.isLetterOrDigit(exp.charAt(end)))
+                    end++;
+
+                String text = exp.substring(i, end);
+                result.add(identifierToken(text));
+                i = end;
+            }
+            else if(current == '(' || current == ')') {
+                result.add(new Token(current == '(' ? TokenType.LEFT_PARENTHESIS : TokenType.RIGHT_PARENTHESIS, String.valueOf(current), 0, null, null));
+                i++;
+            }
+            else if((current == '+' || current == '-') && !followsOperand) {
+                result.add(new Token(TokenType.SIGN, String.valueOf(current), 0, null, null));
+                i++;
+            }
+            else {
+                result.add(new Token(TokenType.OPERATOR, String.valueOf(current), 0, null, operatorFromSymbol(current)));
+                i++;
+            }
+        }
+
+        result.add(new Token(TokenType.END, "", 0, null, null));
+        return result;
+    }
+
+    /**
+     * Get the token for a word in the expression, which is either a function or a variable.
+     *
+     * @param text Word from the expression
+     * @return Function or variable token
+     * @throws Expression.MalformedExpressionException If the word is neither
+     */
+    private Token identifierToken(String text) throws Expression.MalformedExpressionException {
+        for(int i = 0; i < variables.length; i++) {
+            if(text.length() == 1 && text.charAt(0) == variables[i]) {
+                Token token = new Token(TokenType.VARIABLE, text, 0, null, null);
+                token.variableIndex = i;
+                return token;
+            }
+        }
+
+        for(Expression.Function function : Expression.Function.values()) {
+            if(function.getSymbol().equals(text))
+                return new Token(TokenType.FUNCTION, text, 0, function, null);
+        }
+
+        throw new Expression.MalformedExpressionException(String.format("Unknown function or variable '%s'.", text));
+    }
+
+    /**
+     * Get the operator for a symbol in the expression.
+     * A normal dash is read as the subtract operator.
+     *
+     * @param symbol Operator symbol
+     * @return Operator
+     * @throws Expression.MalformedExpressionException If the symbol is not an operator
+     */
+    private Expression.Operator operatorFromSymbol(char symbol) throws Expression.MalformedExpressionException {
+        if(symbol == '-')
+            return Expression.Operator.SUBTRACT;
+
+        for(Expression.Operator operator : Expression.Operator.values()) {
+            if(operator.getSymbol().charAt(0) == symbol)
+                return operator;
+        }
+
+        throw new Expression.MalformedExpressionException(String.format("Unknown operator '%s'.", symbol));
+    }
+
+    /**
+     * Enum TokenType:
+     * Contains all the kinds of tokens an expression can be split into.
+     */
+    private enum TokenType {
+        NUMBER,
+        VARIABLE,
+        FUNCTION,
+        OPERATOR,
+        SIGN,
+        LEFT_PARENTHESIS,
+        RIGHT_PARENTHESIS,
+        END
+    }
+
+    /**
+     * Class Token:
+     * A single number, word, operator or parentheses from the expression.
+     */
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+        private final double number;
+        private final Expression.Function function;
+        private final Expression.Operator operator;
+        private int variableIndex = 0;
+
+        private Token(TokenType type, String text, double number, Expression.Function function, Expression.Operator operator) {
+            this.type = type;
+            this.text = text;
+            this.number = number;
+            this.function = function;
+            this.operator = operator;
+        }
+    }
+}
@@ -1,46 +1,258 @@
 package edu.ntnu.tobiasth.mineplot.plot;
 
-import edu.ntnu.tobiasth.mineplot.Message;
 import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.Grid;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.metrics.Metrics;
 import org.bukkit.Material;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Class Function:
+ * A plot of y = f(x), sampled once for each column of the canvas.
+ * The blocks can be calculated off the main thread with getCells, and placed afterwards with Canvas.drawLayer.
+ *
+ * Consecutive samples are connected by filling the blocks between them in the two columns, so steep parts are drawn
+ * without gaps. This is only done where interval evaluation shows the function is continuous between the samples.
+ * Elsewhere, like close to an asymptote or the edge of the domain, the range is split until it is.
+ */
 public class Function extends Plot {
+    private static final int MIN_CHECKED_COLUMNS = 8;
+    private static final int MAX_REFINE_DEPTH = 12;
     private final Expression expression;
 
-    public Function(String name, Material material, String expression, char variable) {
+    public Function(String name, Material material, Expression expression) {
         super(name, material);
-        this.expression = new Expression(expression, variable);
+        this.expression = expression;
     }
 
     @Override
     public void draw(Canvas canvas) throws IllegalArgumentException {
-        draw(canvas, this.material);
+        canvas.drawLayer(this, getCells(canvas.getGrid()));
     }
 
+    /**
+     * Every column is sampled once, and about as many samples again are used to connect the steep parts.
+     */
     @Override
-    public void destroy(Canvas canvas) {
-        draw(canvas, canvas.getMaterial());
+    public long estimateEvaluations(int width, int height) {
+        return 2L * width;
     }
 
-    private void draw(Canvas canvas, Material material) throws IllegalArgumentException {
-        double startValue = canvas.getValueRange().getMinX();
-        double endValue = canvas.getValueRange().getMaxX();
-        double step = (endValue - startValue) / canvas.getBlocksX();
+    /**
+     * A function that crosses the canvas passes through about one block for each column and row.
+     */
+    @Override
+    public long estimateBlocks(int width, int height) {
+        return (long) width + height;
+    }
 
-        for(double x = startValue; x < endValue; x += step) {
-            try {
-                double roundX = Math.round(x * 1e5) / 1e5;
-                canvas.drawValue(roundX, expression.getValue(roundX), material);
-            }
-            catch(IllegalArgumentException e) { /* This happens if one of the points in a function is outside the graph. */ }
-            catch(Expression.MalformedExpressionException e) {
-                throw new IllegalArgumentException(Message.INVALID_EXPRESSION);
+    /**
+     * Get the blocks the function passes through.
+     * This does not touch the world, so it is safe to call off the main thread.
+     * @param grid Grid of the canvas.
+     * @return Set of block indices, as given by Grid.getIndex.
+     */
+    public BitSet getCells(Grid grid) {
+        long start = System.nanoTime();
+        ValueRange valueRange = grid.getValueRange();
+
+        //Find the x value of every column first, so the expression can be evaluated for all of them in one call.
+        //Each value is calculated from the column number, so rounding errors don't add up across the canvas.
+        double[] xValues = new double[grid.getWidth()];
+        for(int column = 0; column < xValues.length; column++) {
+            xValues[column] = grid.getX(column);
+        }
+
+        //Skip the columns where the function can't be on the canvas, before sampling any of them.
+        boolean[] visible = new boolean[xValues.length];
+        markVisibleColumns(xValues, 0, xValues.length - 1, valueRange, visible);
+
+        //Also sample the neighbours of visible columns, as the curve might come in from them.
+        boolean[] sampled = visible.clone();
+        for(int i = 0; i < visible.length; i++) {
+            if(visible[i]) {
+                if(i > 0)
+                    sampled[i - 1] = true;
+                if(i < visible.length - 1)
+                    sampled[i + 1] = true;
             }
         }
+
+        double[] sampledXValues = new double[xValues.length];
+        int sampledCount = 0;
+        for(int i = 0; i < xValues.length; i++) {
+            if(sampled[i])
+                sampledXValues[sampledCount++] = xValues[i];
+        }
+        sampledXValues = Arrays.copyOf(sampledXValues, sampledCount);
+
+        double[] sampledYValues = new double[sampledCount];
+        expression.evaluate(sampledXValues, sampledYValues);
+
+        BitSet cells = new BitSet(grid.getWidth() * grid.getHeight());
+        double previousX = Double.NaN;
+        double previousY = Double.NaN;
+        int previousIndex = -2;
+        int sample = 0;
+        long refined = 0;
+
+        for(int i = 0; i < xValues.length; i++) {
+            if(!sampled[i])
+                continue;
+
+            double x = sampledXValues[sample];
+            double y = sampledYValues[sample++];
+            mark(cells, grid, grid.getColumn(x), grid.getRow(y));
+
+            if(previousIndex == i - 1)
+                refined += connect(cells, grid, previousX, previousY, x, y, 0);
+
+            previousX = x;
+            previousY = y;
+            previousIndex = i;
+        }
+
+        Metrics.EVALUATIONS.add(refined);
+        Metrics.FUNCTION_NANOS.record(System.nanoTime() - start);
+        return cells;
+    }
+
+    /**
+     * Fill the blocks between two samples, if the function is continuous between them.
+     * If that can't be shown, the range is split in two at a new sample, until it can or the range gets too small.
+     * @param cells Set of blocks to fill.
+     * @param grid Grid of the canvas.
+     * @param x0 First x value.
+     * @param y0 Function value at the first x value.
+     * @param x1 Second x value.
+     * @param y1 Function value at the second x value.
+     * @param depth Number of times the range has been split.
+     * @return Number of new samples.
+     */
+    private int connect(BitSet cells, Grid grid, double x0, double y0, double x1, double y1, int depth) {
+        long column0 = grid.getColumn(x0);
+        long row0 = grid.getRow(y0);
+        long column1 = grid.getColumn(x1);
+        long row1 = grid.getRow(y1);
+
+        boolean isDefined0 = row0 != Long.MIN_VALUE;
+        boolean isDefined1 = row1 != Long.MIN_VALUE;
+        if(!isDefined0 && !isDefined1)
+            return 0;
+        if(isDefined0 && isDefined1 && Math.abs(row1 - row0) <= 1)
+            return 0;
+
+        ValueRange valueRange = grid.getValueRange();
+        Interval range = expression.getRange(x0, x1);
+        if(range.isOutside(valueRange.getMinY(), valueRange.getMaxY()))
+            return 0;
+
+        if(isDefined0 && isDefined1 && range.isContinuous()) {
+            fill(cells, grid, column0, row0, column1, row1);
+            return 0;
+        }
+
+        if(depth >= MAX_REFINE_DEPTH)
+            return 0;
+
+        double x = (x0 + x1) / 2;
+        double y = expression.getValue(x);
+        mark(cells, grid, grid.getColumn(x), grid.getRow(y));
+
+        return 1 + connect(cells, grid, x0, y0, x, y, depth + 1) + connect(cells, grid, x, y, x1, y1, depth + 1);
+    }
+
+    /**
+     * Fill the vertical span between two blocks. If they are in different columns,
+     * the lower half of the span is filled in the column of the lower block, and the upper half in the other.
+     */
+    private static void fill(BitSet cells, Grid grid, long column0, long row0, long column1, long row1) {
+        if(column0 == column1) {
+            fillColumn(cells, grid, column0, row0, row1);
+            return;
+        }
+
+        if(row0 <= row1) {
+            double middle = Math.floor((row0 + (double) row1) / 2);
+            fillColumn(cells, grid, column0, row0, clampRow(grid, middle));
+            fillColumn(cells, grid, column1, clampRow(grid, middle + 1), row1);
+        }
+        else {
+            double middle = Math.ceil((row0 + (double) row1) / 2);
+            fillColumn(cells, grid, column0, clampRow(grid, middle), row0);
+            fillColumn(cells, grid, column1, row1, clampRow(grid, middle - 1));
+        }
+    }
+
+    private static void fillColumn(BitSet cells, Grid grid, long column, long row0, long row1) {
+        if(column < 0 || column >= grid.getWidth())
+            return;
+
+        long from = Math.max(Math.min(row0, row1), 0);
+        long to = Math.min(Math.max(row0, row1), grid.getHeight() - 1);
+        for(long row = from; row <= to; row++) {
+            cells.set(grid.getIndex((int) column, (int) row));
+        }
+    }
+
+    /**
+     * Clamp a row to just outside the canvas, so it can be stored in a long.
+     */
+    private static long clampRow(Grid grid, double row) {
+        return (long) Math.max(-1, Math.min(row, grid.getHeight()));
+    }
+
+    private static void mark(BitSet cells, Grid grid, long column, long row) {
+        if(grid.contains(column, row))
+            cells.set(grid.getIndex((int) column, (int) row));
+    }
+
+    /**
+     * Mark the columns between two indices as visible, unless the function is outside the canvas for all of them.
+     * Larger ranges that are partly visible are split in two, until they are too small to be worth checking.
+     * @param xValues X value of each column.
+     * @param from Index of the first column.
+     * @param to Index of the last column.
+     * @param valueRange Value range of the canvas.
+     * @param visible Array to mark the visible columns in.
+     */
+    private void markVisibleColumns(double[] xValues, int from, int to, ValueRange valueRange, boolean[] visible) {
+        if(from > to)
+            return;
+
+        Interval range = expression.getRange(xValues[from], xValues[to]);
+        if(range.isOutside(valueRange.getMinY(), valueRange.getMaxY()))
+            return;
+
+        if(to - from < MIN_CHECKED_COLUMNS) {
+            Arrays.fill(visible, from, to + 1, true);
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        markVisibleColumns(xValues, from, middle, valueRange, visible);
+        markVisibleColumns(xValues, middle + 1, to, valueRange, visible);
+    }
+
+    @Override
+    protected byte getType() {
+        return FUNCTION;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        writeExpression(out, expression);
     }
 
     @Override
     public String toString() {
         return String.format("Function '%s' (%s) plotting '%s'.", name, material.toString().toLowerCase(), expression.toString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import edu.ntnu.tobiasth.mineplot.Message;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import org.bukkit.Material;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class Heatmap:
+ * Plots an expression of two variables by coloring every block of the canvas after its value.
+ *
+ * The values are calculated in tiles of rows on a fork/join pool, and can be rendered off the main thread.
+ * Only applying the result places blocks, and that has to happen on the main thread.
+ */
+public class Heatmap extends Plot {
+    private final Expression expression;
+    private final Colormap colormap;
+    private final ForkJoinPool pool;
+    private final int tileRows;
+
+    /**
+     * Define a new heatmap.
+     * @param name Plot name.
+     * @param expression Expression of two variables, where the first is along the x-axis and the second along the y-axis.
+     * @param colormap Colormap to color the values with.
+     * @param pool Pool to calculate the values on.
+     * @param tileRows Number of rows each task calculates.
+     */
+    public Heatmap(String name, Expression expression, Colormap colormap, ForkJoinPool pool, int tileRows) {
+        super(name, colormap.getHighest());
+        this.expression = expression;
+        this.colormap = colormap;
+        this.pool = pool;
+        this.tileRows = Math.max(1, tileRows);
+    }
+
+    @Override
+    public void draw(Canvas canvas) throws IllegalArgumentException {
+        apply(canvas, render(canvas.getValueRange(), canvas.getBlocksX() + 1, canvas.getBlocksY() + 1, null));
+    }
+
+    @Override
+    public long estimateEvaluations(int width, int height) {
+        return (long) width * height;
+    }
+
+    @Override
+    public long estimateBlocks(int width, int height) {
+        return (long) width * height;
+    }
+
+    /**
+     * Calculate the material of every block. This does not touch the world, so it is safe to call off the main thread.
+     * @param valueRange Value range of the canvas.
+     * @param width Number of blocks in the x direction.
+     * @param height Number of blocks in the y direction.
+     * @param undefined Material for blocks where the expression is not defined, or null to leave them uncovered.
+     * @return Material for each block, row by row from the lower left corner.
+     */
+    public Material[] render(ValueRange valueRange, int width, int height, Material undefined) {
+        double[] xValues = new double[width];
+        for(int x = 0; x < width; x++) {
+            xValues[x] = getValue(valueRange.getMinX(), valueRange.getMaxX(), x, width);
+        }
+
+        double[] values = new double[width * height];
+        pool.invoke(new RowTask(valueRange, xValues, height, values, 0, height));
+
+        return colormap.map(values, undefined);
+    }
+
+    /**
+     * Place the rendered blocks on the canvas. Must be called on the main thread.
+     * @param canvas Canvas to draw on.
+     * @param raster Material for each block, as returned by render.
+     */
+    public void apply(Canvas canvas, Material[] raster) {
+        canvas.drawLayer(this, raster);
+    }
+
+    /**
+     * Get the value at a block, where the first block has the minimum value and the last block the maximum.
+     */
+    private static double getValue(double min, double max, int block, int blocks) {
+        return blocks > 1 ? min + (max - min) * block / (blocks - 1) : min;
+    }
+
+    @Override
+    protected byte getType() {
+        return HEATMAP;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        writeExpression(out, expression);
+    }
+
+    /**
+     * The colors of a heatmap come from its colormap, so it can't have a single material.
+     * @throws IllegalArgumentException Always.
+     */
+    @Override
+    public void setMaterial(Material material) throws IllegalArgumentException {
+        throw new IllegalArgumentException(Message.PLOT_NOT_RECOLORABLE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Heatmap '%s' plotting '%s'.", name, expression.toString());
+    }
+
+    /**
+     * Class RowTask:
+     * Calculates the values of a range of rows, and splits itself while the range is larger than a tile.
+     */
+    private class RowTask extends RecursiveAction {
+        private final ValueRange valueRange;
+        private final double[] xValues;
+        private final int height;
+        private final double[] values;
+        private final int from;
+        private final int to;
+
+        private RowTask(ValueRange valueRange, double[] xValues, int height, double[] values, int from, int to) {
+            this.valueRange = valueRange;
+            this.xValues = xValues;
+            this.height = height;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > tileRows) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowTask(valueRange, xValues, height, values, from, middle), new RowTask(valueRange, xValues, height, values, middle, to));
+                return;
+            }
+
+            //Evaluate the whole tile in one call.
+            int width = xValues.length;
+            int cells = (to - from) * width;
+            double[] tileX = new double[cells];
+            double[] tileY = new double[cells];
+            for(int row = from; row < to; row++) {
+                double y = getValue(valueRange.getMinY(), valueRange.getMaxY(), row, height);
+                int offset = (row - from) * width;
+                System.arraycopy(xValues, 0, tileX, offset, width);
+                Arrays.fill(tileY, offset, offset + width, y);
+            }
+
+            double[] tileValues = new double[cells];
+            expression.evaluate(tileX, tileY, tileValues);
+            System.arraycopy(tileValues, 0, values, from * width, cells);
+        }
+    }
+}
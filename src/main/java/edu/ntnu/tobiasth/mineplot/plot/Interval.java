@@ -0,0 +1,239 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+/**
+ * Class Interval:
+ * A range of values that is guaranteed to contain every value an expression takes over a range of the variable.
+ *
+ * The bounds are rounded outwards, so the interval is never too small. An interval is continuous if the expression
+ * is defined and continuous over the whole range, which is not the case if it contains an asymptote.
+ * An empty interval means the expression is not defined anywhere in the range.
+ */
+public final class Interval {
+    private static final Interval EMPTY = new Interval(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, false);
+    private static final Interval UNBOUNDED = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+
+    private final double min;
+    private final double max;
+    private final boolean continuous;
+
+    private Interval(double min, double max, boolean continuous) {
+        this.min = min;
+        this.max = max;
+        this.continuous = continuous;
+    }
+
+    /**
+     * Define a new interval between two values.
+     * As NaN is never drawn, an interval with a NaN value is empty.
+     *
+     * @param a First value
+     * @param b Second value
+     * @return Interval containing both values
+     */
+    public static Interval of(double a, double b) {
+        if(Double.isNaN(a) || Double.isNaN(b))
+            return EMPTY;
+
+        return new Interval(Math.min(a, b), Math.max(a, b), true);
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    public boolean isEmpty() {
+        return min > max;
+    }
+
+    /**
+     * Whether or not the whole interval is outside the given range.
+     *
+     * @param lower Lower limit of the range
+     * @param upper Upper limit of the range
+     * @return True if no value of the interval is inside the range, false if some might be.
+     */
+    public boolean isOutside(double lower, double upper) {
+        return isEmpty() || max < lower || min > upper;
+    }
+
+    /**
+     * Create an interval with the bounds rounded outwards, to make up for rounding errors in the calculation.
+     * Any NaN bound gives an unbounded interval.
+     */
+    private static Interval outward(double min, double max, boolean continuous) {
+        if(Double.isNaN(min) || Double.isNaN(max))
+            return UNBOUNDED;
+
+        return new Interval(Math.nextDown(min), Math.nextUp(max), continuous);
+    }
+
+    Interval negate() {
+        if(isEmpty())
+            return EMPTY;
+
+        return new Interval(-max, -min, continuous);
+    }
+
+    /**
+     * Use a math operator on this interval and another.
+     *
+     * @param operator Operator to use
+     * @param other Interval on the right side of the operator
+     * @return Resulting interval
+     */
+    Interval use(Expression.Operator operator, Interval other) {
+        //NaN to the power of zero is 1, so a power can be defined where the base is not.
+        if(operator == Expression.Operator.RAISE && isEmpty() && !other.isEmpty() && other.min <= 0 && other.max >= 0)
+            return new Interval(1, 1, false);
+
+        if(isEmpty() || other.isEmpty())
+            return EMPTY;
+
+        boolean bothContinuous = continuous && other.continuous;
+
+        switch(operator) {
+            case ADD: return outward(min + other.min, max + other.max, bothContinuous);
+            case SUBTRACT: return outward(min - other.max, max - other.min, bothContinuous);
+            case MULTIPLY: return multiply(other, bothContinuous);
+            case DIVIDE: {
+                //Dividing by a range that contains zero can give anything, and might jump from -infinity to infinity.
+                if(other.min <= 0 && other.max >= 0)
+                    return UNBOUNDED;
+
+                return multiply(new Interval(1 / other.max, 1 / other.min, true), bothContinuous);
+            }
+            case RAISE: return raise(other, bothContinuous);
+            default: return UNBOUNDED;
+        }
+    }
+
+    private Interval multiply(Interval other, boolean continuous) {
+        double a = min * other.min;
+        double b = min * other.max;
+        double c = max * other.min;
+        double d = max * other.max;
+
+        return outward(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)), continuous);
+    }
+
+    private Interval raise(Interval exponent, boolean continuous) {
+        //Integer exponents are defined for negative bases too.
+        if(exponent.min == exponent.max && exponent.min == Math.rint(exponent.min) && !Double.isInfinite(exponent.min)) {
+            double n = exponent.min;
+
+            if(n == 0)
+                return new Interval(1, 1, continuous);
+            if(n < 0)
+                return new Interval(1, 1, true).use(Expression.Operator.DIVIDE, raise(new Interval(-n, -n, true), continuous));
+
+            double low = Math.pow(min, n);
+            double high = Math.pow(max, n);
+            boolean isEven = n % 2 == 0;
+
+            if(!isEven || min >= 0)
+                return outward(low, high, continuous);
+            if(max <= 0)
+                return outward(high, low, continuous);
+
+            return outward(0, Math.max(low, high), continuous);
+        }
+
+        //For positive bases, the power only grows or shrinks in each direction, so the corners are the extremes.
+        if(min > 0 || (min >= 0 && exponent.min > 0)) {
+            double a = Math.pow(min, exponent.min);
+            double b = Math.pow(min, exponent.max);
+            double c = Math.pow(max, exponent.min);
+            double d = Math.pow(max, exponent.max);
+
+            return outward(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)), continuous);
+        }
+
+        return UNBOUNDED;
+    }
+
+    /**
+     * Use a math function on this interval.
+     *
+     * @param function Function to use
+     * @return Resulting interval
+     */
+    Interval use(Expression.Function function) {
+        if(isEmpty())
+            return EMPTY;
+
+        switch(function) {
+            case SQRT: return monotonic(function, 0, Double.POSITIVE_INFINITY);
+            case CBRT:
+            case EXP:
+            case ATAN: return monotonic(function, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            case LOG10:
+            case LOG: {
+                //The logarithm of zero is -infinity, which is in the range, but it is an asymptote.
+                Interval result = monotonic(function, 0, Double.POSITIVE_INFINITY);
+                return min > 0 || result.isEmpty() ? result : new Interval(result.min, result.max, false);
+            }
+            case ASIN:
+            case ACOS: return monotonic(function, -1, 1);
+            case SIN: return periodic(Math.PI / 2);
+            case COS: return periodic(0);
+            case TAN: {
+                //Tan goes from -infinity to infinity around every odd multiple of pi/2.
+                double asymptote = Math.PI / 2 + Math.ceil((min - Math.PI / 2) / Math.PI) * Math.PI;
+                if(asymptote <= max || Double.isInfinite(min) || Double.isInfinite(max))
+                    return UNBOUNDED;
+
+                return outward(Math.tan(min), Math.tan(max), continuous);
+            }
+            default: return UNBOUNDED;
+        }
+    }
+
+    /**
+     * Use a function that only grows or only shrinks, and is defined between the given limits.
+     * If the interval is partly outside the limits, the result is not continuous.
+     */
+    private Interval monotonic(Expression.Function function, double lower, double upper) {
+        double from = Math.max(min, lower);
+        double to = Math.min(max, upper);
+        if(from > to)
+            return EMPTY;
+
+        double a = function.use(from);
+        double b = function.use(to);
+        boolean inside = from == min && to == max;
+        return outward(Math.min(a, b), Math.max(a, b), continuous && inside);
+    }
+
+    /**
+     * Use sin or cos, which has its top at the given phase and its bottom half a period later.
+     *
+     * @param top Value where the function is 1
+     * @return Resulting interval
+     */
+    private Interval periodic(double top) {
+        if(max - min >= 2 * Math.PI || Double.isInfinite(min) || Double.isInfinite(max))
+            return new Interval(-1, 1, continuous);
+
+        double a = top == 0 ? Math.cos(min) : Math.sin(min);
+        double b = top == 0 ? Math.cos(max) : Math.sin(max);
+        double low = Math.min(a, b);
+        double high = Math.max(a, b);
+
+        //Check if a top or bottom is inside the interval.
+        if(top + Math.ceil((min - top) / (2 * Math.PI)) * 2 * Math.PI <= max)
+            high = 1;
+        if(top + Math.PI + Math.ceil((min - top - Math.PI) / (2 * Math.PI)) * 2 * Math.PI <= max)
+            low = -1;
+
+        Interval result = outward(low, high, continuous);
+        return new Interval(Math.max(result.min, -1), Math.min(result.max, 1), continuous);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import org.bukkit.Material;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Class Parametric:
+ * A curve where both x and y are expressions of the parameter.
+ */
+public class Parametric extends Curve {
+    private final Expression xExpression;
+    private final Expression yExpression;
+
+    public Parametric(String name, Material material, Expression xExpression, Expression yExpression, double from, double to) throws IllegalArgumentException {
+        super(name, material, from, to);
+        this.xExpression = xExpression;
+        this.yExpression = yExpression;
+    }
+
+    @Override
+    protected void getPoint(double t, double[] point) {
+        point[0] = xExpression.getValue(t);
+        point[1] = yExpression.getValue(t);
+    }
+
+    @Override
+    protected Interval[] getRange(double from, double to) {
+        return new Interval[] { xExpression.getRange(from, to), yExpression.getRange(from, to) };
+    }
+
+    @Override
+    protected byte getType() {
+        return PARAMETRIC;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        writeExpression(out, xExpression);
+        writeExpression(out, yExpression);
+        out.writeDouble(getFrom());
+        out.writeDouble(getTo());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Parametric '%s' (%s) plotting ('%s', '%s') from %s to %s.", name, material.toString().toLowerCase(), xExpression.toString(), yExpression.toString(), getFrom(), getTo());
+    }
+}
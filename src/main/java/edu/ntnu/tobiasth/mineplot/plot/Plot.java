@@ -3,9 +3,20 @@ package edu.ntnu.tobiasth.mineplot.plot;
 import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
 import org.bukkit.Material;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
 public abstract class Plot {
+    protected static final byte FUNCTION = 1;
+    protected static final byte POINT = 2;
+    protected static final byte HEATMAP = 3;
+    protected static final byte PARAMETRIC = 4;
+    protected static final byte POLAR = 5;
+
     protected final String name;
-    protected final Material material;
+    protected Material material;
 
     protected Plot(String name, Material material) {
         this.name = name;
@@ -14,11 +25,112 @@ public abstract class Plot {
 
     public abstract void draw(Canvas canvas) throws IllegalArgumentException;
 
-    public abstract void destroy(Canvas canvas);
+    /**
+     * Estimate how many values are calculated to draw the plot, before anything is calculated.
+     * @param width Number of blocks in the x direction of the canvas.
+     * @param height Number of blocks in the y direction of the canvas.
+     * @return Estimated number of values.
+     */
+    public abstract long estimateEvaluations(int width, int height);
+
+    /**
+     * Estimate how many blocks are placed to draw the plot, before anything is calculated.
+     * @param width Number of blocks in the x direction of the canvas.
+     * @param height Number of blocks in the y direction of the canvas.
+     * @return Estimated number of blocks.
+     */
+    public abstract long estimateBlocks(int width, int height);
 
     public abstract String toString();
 
+    /**
+     * Write what the plot is defined by, but not what it has drawn.
+     * @param out Output to write to.
+     * @throws IOException If writing fails.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(getType());
+        out.writeUTF(name);
+        out.writeUTF(material.name());
+    }
+
+    /**
+     * Get the type of the plot, as written to the output.
+     * @return Plot type.
+     */
+    protected abstract byte getType();
+
+    /**
+     * Read a plot written by Plot.write.
+     * @param in Input to read from.
+     * @param expressions Cache to get the expressions from.
+     * @param pool Pool to calculate heatmaps on.
+     * @param heatmapTileRows Number of rows each heatmap task calculates.
+     * @return Plot.
+     * @throws IOException If reading fails, or the plot is not valid.
+     */
+    public static Plot read(DataInput in, ExpressionCache expressions, ForkJoinPool pool, int heatmapTileRows) throws IOException {
+        byte type = in.readByte();
+        String name = in.readUTF();
+        Material material = readMaterial(in);
+
+        try {
+            switch(type) {
+                case FUNCTION: return new Function(name, material, readExpression(in, expressions));
+                case POINT: return new Point(name, material, in.readDouble(), in.readDouble());
+                case HEATMAP: return new Heatmap(name, readExpression(in, expressions), Colormap.DEFAULT, pool, heatmapTileRows);
+                case PARAMETRIC: return new Parametric(name, material, readExpression(in, expressions), readExpression(in, expressions), in.readDouble(), in.readDouble());
+                case POLAR: return new Polar(name, material, readExpression(in, expressions), in.readDouble(), in.readDouble());
+                default: throw new IOException(String.format("Unknown plot type %s.", type));
+            }
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    protected static void writeExpression(DataOutput out, Expression expression) throws IOException {
+        out.writeUTF(expression.toString());
+        out.writeUTF(new String(expression.getVariables()));
+    }
+
+    private static Expression readExpression(DataInput in, ExpressionCache expressions) throws IOException {
+        String exp = in.readUTF();
+        String variables = in.readUTF();
+
+        try {
+            return expressions.get(exp, variables.toCharArray());
+        }
+        catch(Expression.MalformedExpressionException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read a material by name. Materials that no longer exist are read as air.
+     * @param in Input to read from.
+     * @return Material.
+     * @throws IOException If reading fails.
+     */
+    public static Material readMaterial(DataInput in) throws IOException {
+        Material material = Material.getMaterial(in.readUTF());
+        return material == null ? Material.AIR : material;
+    }
+
     public String getName() {
         return name;
     }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Set the material of the plot. Use Canvas.recolorPlot to also change the blocks.
+     * @param material New material.
+     * @throws IllegalArgumentException If the plot can't change material.
+     */
+    public void setMaterial(Material material) throws IllegalArgumentException {
+        this.material = material;
+    }
 }
\ No newline at end of file
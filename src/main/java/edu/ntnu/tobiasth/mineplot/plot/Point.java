@@ -1,8 +1,15 @@
 package edu.ntnu.tobiasth.mineplot.plot;
 
+import edu.ntnu.tobiasth.mineplot.Message;
 import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.Grid;
 import org.bukkit.Material;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.BitSet;
+
 public class Point extends Plot {
     private final double x;
     private final double y;
@@ -15,12 +22,36 @@ public class Point extends Plot {
 
     @Override
     public void draw(Canvas canvas) throws IllegalArgumentException {
-        canvas.drawValue(x, y, material);
+        //If the point is outside the value range, the block is not on the canvas.
+        if(!canvas.getValueRange().contains(x, y))
+            throw new IllegalArgumentException(Message.POINT_OUTSIDE_CANVAS);
+
+        Grid grid = canvas.getGrid();
+        BitSet cells = new BitSet();
+        cells.set(grid.getIndex((int) grid.getColumn(x), (int) grid.getRow(y)));
+        canvas.drawLayer(this, cells);
+    }
+
+    @Override
+    public long estimateEvaluations(int width, int height) {
+        return 0;
+    }
+
+    @Override
+    public long estimateBlocks(int width, int height) {
+        return 1;
+    }
+
+    @Override
+    protected byte getType() {
+        return POINT;
     }
 
     @Override
-    public void destroy(Canvas canvas) throws IllegalArgumentException {
-        canvas.drawValue(x, y, canvas.getMaterial());
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        out.writeDouble(x);
+        out.writeDouble(y);
     }
 
     @Override
@@ -0,0 +1,55 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import org.bukkit.Material;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Class Polar:
+ * A curve where the distance from the origin is an expression of the angle.
+ */
+public class Polar extends Curve {
+    private final Expression radius;
+
+    public Polar(String name, Material material, Expression radius, double from, double to) throws IllegalArgumentException {
+        super(name, material, from, to);
+        this.radius = radius;
+    }
+
+    @Override
+    protected void getPoint(double angle, double[] point) {
+        double r = radius.getValue(angle);
+        point[0] = r * Math.cos(angle);
+        point[1] = r * Math.sin(angle);
+    }
+
+    @Override
+    protected Interval[] getRange(double from, double to) {
+        Interval r = radius.getRange(from, to);
+        Interval angle = Interval.of(from, to);
+
+        return new Interval[] {
+                r.use(Expression.Operator.MULTIPLY, angle.use(Expression.Function.COS)),
+                r.use(Expression.Operator.MULTIPLY, angle.use(Expression.Function.SIN))
+        };
+    }
+
+    @Override
+    protected byte getType() {
+        return POLAR;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        writeExpression(out, radius);
+        out.writeDouble(getFrom());
+        out.writeDouble(getTo());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Polar '%s' (%s) plotting r = '%s' from %s to %s.", name, material.toString().toLowerCase(), radius.toString(), getFrom(), getTo());
+    }
+}
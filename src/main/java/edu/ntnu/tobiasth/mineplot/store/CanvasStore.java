@@ -0,0 +1,367 @@
+package edu.ntnu.tobiasth.mineplot.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Class CanvasStore:
+ * Saved canvases in a single file, where each save is added to the end so only the canvases that changed are written.
+ *
+ * The file starts with a magic number and a format version, followed by records. Each record has its length,
+ * a type, the owner and name of the canvas, and the canvas itself for saves. A later record replaces an earlier one
+ * with the same owner and name, and a removal record removes it. When the store is opened, the file is memory-mapped
+ * and only the record headers are read, so the canvases themselves are read when they are first used.
+ * A record that was cut off by a crash is dropped. All methods are synchronized, so saving can be done on another thread.
+ *
+ * Each record also has the sequence number of the last logged mutation it includes,
+ * so the mutation log knows which of its records are already in the store.
+ */
+public class CanvasStore {
+    private static final int MAGIC = 0x4D504C54;
+    private static final short VERSION = 3;
+    private static final int HEADER_SIZE = 6;
+    private static final byte SAVED = 1;
+    private static final byte REMOVED = 2;
+    private final Path path;
+    private final HashMap<UUID, HashMap<String, Entry>> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long liveBytes = 0;
+    private long lastSequence = 0;
+
+    /**
+     * Open a store, and create the file if it does not exist.
+     * @param path Path to the store file.
+     * @throws IOException If the file can't be read, or is not a store of a known version.
+     */
+    public CanvasStore(Path path) throws IOException {
+        this.path = path;
+        open();
+    }
+
+    /**
+     * Get the names of the canvases saved for a player.
+     * @param owner Player UUID.
+     * @return Canvas names.
+     */
+    public synchronized Set<String> getNames(UUID owner) {
+        HashMap<String, Entry> entries = index.get(owner);
+        if(entries == null)
+            return Collections.emptySet();
+
+        HashSet<String> names = new HashSet<>();
+        entries.forEach((name, entry) -> {
+            if(!entry.isRemoved())
+                names.add(name);
+        });
+        return names;
+    }
+
+    /**
+     * Get the players that have canvases saved.
+     * @return Player UUIDs.
+     */
+    public synchronized Set<UUID> getOwners() {
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * Check if a canvas is saved.
+     * @param owner Player UUID.
+     * @param name Canvas name.
+     * @return True if the canvas is saved, false if not.
+     */
+    public synchronized boolean contains(UUID owner, String name) {
+        Entry entry = getEntry(owner, name);
+        return entry != null && !entry.isRemoved();
+    }
+
+    /**
+     * Get the sequence number of the last logged mutation that is included in the store for a canvas.
+     * @param owner Player UUID.
+     * @param name Canvas name.
+     * @return Sequence number of the last save or removal, or -1 if there is none.
+     */
+    public synchronized long getSequence(UUID owner, String name) {
+        Entry entry = getEntry(owner, name);
+        return entry == null ? -1 : entry.sequence;
+    }
+
+    /**
+     * Get the highest sequence number in the store.
+     * @return Sequence number, or 0 if nothing is saved.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Read a saved canvas, as it was given to CanvasStore.write.
+     * @param owner Player UUID.
+     * @param name Canvas name.
+     * @return Saved canvas, or null if it is not saved.
+     * @throws IOException If reading fails.
+     */
+    public synchronized byte[] read(UUID owner, String name) throws IOException {
+        return read(owner, name, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read the start of a saved canvas, like to find where it is without reading all of it.
+     * @param owner Player UUID.
+     * @param name Canvas name.
+     * @param limit Maximum number of bytes to read.
+     * @return Start of the saved canvas, or null if it is not saved.
+     * @throws IOException If reading fails.
+     */
+    public synchronized byte[] read(UUID owner, String name, int limit) throws IOException {
+        Entry entry = getEntry(owner, name);
+        if(entry == null || entry.isRemoved())
+            return null;
+
+        //Records added since the file was mapped are not in the mapping yet.
+        if(entry.offset + entry.length > mapped.capacity())
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        byte[] data = new byte[Math.min(limit, entry.length)];
+        ByteBuffer view = mapped.duplicate();
+        view.position((int) entry.offset);
+        view.get(data);
+        return data;
+    }
+
+    /**
+     * Save a canvas, replacing the one with the same owner and name.
+     * @param owner Player UUID.
+     * @param name Canvas name.
+     * @param sequence Sequence number of the last logged mutation the canvas includes.
+     * @param data Canvas, as written by Canvas.write.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void write(UUID owner, String name, long sequence, byte[] data) throws IOException {
+        long offset = append(SAVED, owner, name, sequence, data);
+        put(owner, name, new Entry(offset - data.length, data.length, sequence));
+    }
+
+    /**
+     * Remove a saved canvas. The removal is written even if the canvas is not saved,
+     * so the mutations before it are known to be included.
+     * @param owner Player UUID.
+     * @param name Canvas name.
+     * @param sequence Sequence number of the logged removal.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void remove(UUID owner, String name, long sequence) throws IOException {
+        append(REMOVED, owner, name, sequence, new byte[0]);
+        put(owner, name, new Entry(-1, -1, sequence));
+    }
+
+    /**
+     * Make sure everything written so far is on the disk.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Get the number of bytes taken by the saved canvases.
+     * @return Live bytes.
+     */
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Get the number of bytes in the file that are not saved canvases, which is mostly replaced and removed ones.
+     * @return Wasted bytes.
+     */
+    public synchronized long getWastedBytes() {
+        return size - HEADER_SIZE - liveBytes;
+    }
+
+    /**
+     * Write the saved canvases to a new file without replaced and removed ones, and swap it with the old file.
+     * The old file is only replaced when the new one is complete, so a crash leaves one of them whole.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void compact() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try(FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION);
+            header.flip();
+            writeFully(out, header);
+
+            for(UUID owner : index.keySet()) {
+                for(String name : index.get(owner).keySet()) {
+                    Entry entry = index.get(owner).get(name);
+                    if(!entry.isRemoved())
+                        writeFully(out, ByteBuffer.wrap(encode(SAVED, owner, name, entry.sequence, read(owner, name))));
+                }
+            }
+
+            //The new file must be on the disk before it replaces the old one, or a crash could leave neither.
+            out.force(true);
+        }
+
+        FileChannel old = channel;
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        old.close();
+        open();
+    }
+
+    /**
+     * Close the file. The store can't be used after this.
+     * @throws IOException If closing fails.
+     */
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+        mapped = null;
+    }
+
+    /**
+     * Open the file and build the index from the record headers.
+     */
+    private void open() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        lastSequence = 0;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if(channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION);
+            header.flip();
+            channel.write(header, 0);
+        }
+
+        size = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        if(size < HEADER_SIZE || mapped.getInt(0) != MAGIC)
+            throw new IOException(String.format("%s is not a canvas store.", path));
+        if(mapped.getShort(4) != VERSION)
+            throw new IOException(String.format("%s has unknown version %s.", path, mapped.getShort(4)));
+
+        long position = HEADER_SIZE;
+        while(position + 4 <= size) {
+            int length = mapped.getInt((int) position);
+            if(length <= 0 || position + 4 + length > size)
+                break;
+
+            ByteBuffer record = mapped.duplicate();
+            record.position((int) position + 4);
+            record.limit((int) position + 4 + length);
+
+            byte type = record.get();
+            long sequence = record.getLong();
+            UUID owner = new UUID(record.getLong(), record.getLong());
+            byte[] nameBytes = new byte[record.getShort() & 0xFFFF];
+            record.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if(type == SAVED)
+                put(owner, name, new Entry(record.position(), record.remaining(), sequence));
+            else
+                put(owner, name, new Entry(-1, -1, sequence));
+
+            position += 4 + length;
+        }
+
+        //Drop a record that was cut off while it was written.
+        if(position < size) {
+            channel.truncate(position);
+            size = position;
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Add a record to the end of the file.
+     * @return Position right after the record.
+     */
+    private long append(byte type, UUID owner, String name, long sequence, byte[] data) throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(encode(type, owner, name, sequence, data));
+        while(record.hasRemaining()) {
+            size += channel.write(record, size);
+        }
+
+        return size;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Add an entry to the index, in place of the one with the same owner and name.
+     */
+    private void put(UUID owner, String name, Entry entry) {
+        index.putIfAbsent(owner, new HashMap<>());
+        Entry previous = index.get(owner).put(name, entry);
+
+        liveBytes += Math.max(0, entry.length);
+        if(previous != null)
+            liveBytes -= Math.max(0, previous.length);
+        lastSequence = Math.max(lastSequence, entry.sequence);
+    }
+
+    private static byte[] encode(byte type, UUID owner, String name, long sequence, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(1 + 8 + 16 + 2 + nameBytes.length + data.length);
+        out.writeByte(type);
+        out.writeLong(sequence);
+        out.writeLong(owner.getMostSignificantBits());
+        out.writeLong(owner.getLeastSignificantBits());
+        out.writeShort(nameBytes.length);
+        out.write(nameBytes);
+        out.write(data);
+        return bytes.toByteArray();
+    }
+
+    private Entry getEntry(UUID owner, String name) {
+        HashMap<String, Entry> entries = index.get(owner);
+        return entries == null ? null : entries.get(name);
+    }
+
+    /**
+     * Class Entry:
+     * Where a saved canvas is in the file, or when it was removed.
+     */
+    private static final class Entry {
+        private final long offset;
+        private final int length;
+        private final long sequence;
+
+        private Entry(long offset, int length, long sequence) {
+            this.offset = offset;
+            this.length = length;
+            this.sequence = sequence;
+        }
+
+        private boolean isRemoved() {
+            return length < 0;
+        }
+    }
+}
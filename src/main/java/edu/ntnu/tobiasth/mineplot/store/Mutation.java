@@ -0,0 +1,235 @@
+package edu.ntnu.tobiasth.mineplot.store;
+
+import edu.ntnu.tobiasth.mineplot.canvas.BlockScheduler;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.Terrain;
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import org.bukkit.Material;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Class Mutation:
+ * Writes the changes commands make to a canvas for the mutation log, and applies them to a saved canvas again.
+ *
+ * A change holds what the command was given, like the definition of an added plot, and not the blocks it placed.
+ * When the changes are applied, the plots are calculated and drawn again, and only blocks that differ from the saved
+ * canvas are placed. Undo and redo are written as the whole list of plots, as they can bring back removed plots.
+ */
+public final class Mutation {
+    private static final byte CANVAS_ADD = 1;
+    private static final byte CANVAS_CLEAR = 2;
+    private static final byte CANVAS_REMOVE = 3;
+    private static final byte PLOT_ADD = 4;
+    private static final byte PLOT_REMOVE = 5;
+    private static final byte PLOT_MOVE = 6;
+    private static final byte PLOT_RECOLOR = 7;
+    private static final byte PLOTS = 8;
+    private static final byte TERRAIN = 9;
+
+    private Mutation() {}
+
+    public static byte[] canvasAdd(Canvas canvas) {
+        return encode(CANVAS_ADD, canvas::writeDefinition);
+    }
+
+    public static byte[] canvasClear() {
+        return encode(CANVAS_CLEAR, out -> {});
+    }
+
+    public static byte[] canvasRemove() {
+        return encode(CANVAS_REMOVE, out -> {});
+    }
+
+    public static byte[] plotAdd(Plot plot) {
+        return encode(PLOT_ADD, plot::write);
+    }
+
+    public static byte[] plotRemove(Plot plot) {
+        return encode(PLOT_REMOVE, out -> out.writeUTF(plot.getName()));
+    }
+
+    /**
+     * Write that a plot was moved in the stacking order.
+     * @param plot Moved plot.
+     * @param position New position, where 0 is the bottom.
+     * @return Change.
+     */
+    public static byte[] plotMove(Plot plot, int position) {
+        return encode(PLOT_MOVE, out -> {
+            out.writeUTF(plot.getName());
+            out.writeInt(position);
+        });
+    }
+
+    public static byte[] plotRecolor(Plot plot, Material material) {
+        return encode(PLOT_RECOLOR, out -> {
+            out.writeUTF(plot.getName());
+            out.writeUTF(material.name());
+        });
+    }
+
+    /**
+     * Write all the plots of a canvas, like after a change was undone.
+     * @param canvas Canvas.
+     * @return Change.
+     */
+    public static byte[] plots(Canvas canvas) {
+        return encode(PLOTS, out -> {
+            Plot[] plots = canvas.getPlots();
+            out.writeInt(plots.length);
+            for(Plot plot : plots) {
+                plot.write(out);
+            }
+        });
+    }
+
+    /**
+     * Write the terrain that was there before a canvas was built.
+     * @param terrain Terrain.
+     * @return Change.
+     */
+    public static byte[] terrain(Terrain terrain) {
+        return encode(TERRAIN, terrain::write);
+    }
+
+    /**
+     * Apply logged changes to a saved canvas, and draw the result.
+     * @param snapshot Saved canvas, or null if it was not saved.
+     * @param changes Changes made after the canvas was saved, in order.
+     * @param scheduler Scheduler that places the blocks of the canvas.
+     * @param owner Player the canvas belongs to.
+     * @param plotReader Reads the plots of the canvas.
+     * @return Canvas with the changes, or null if it was removed.
+     * @throws IOException If a change can't be read or applied.
+     */
+    public static Canvas apply(Canvas snapshot, List<byte[]> changes, BlockScheduler scheduler, UUID owner, Canvas.PlotReader plotReader) throws IOException {
+        Canvas canvas = snapshot;
+        boolean built = true;
+        ArrayList<Plot> plots = snapshot == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(snapshot.getPlots()));
+
+        for(byte[] change : changes) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(change));
+            byte type = in.readByte();
+
+            if(type == CANVAS_ADD) {
+                canvas = Canvas.readDefinition(in, scheduler, owner);
+                built = false;
+                plots.clear();
+                continue;
+            }
+            if(type == CANVAS_REMOVE) {
+                canvas = null;
+                plots.clear();
+                continue;
+            }
+            if(canvas == null)
+                throw new IOException("A logged change is for a canvas that does not exist.");
+
+            switch(type) {
+                case CANVAS_CLEAR: {
+                    plots.clear();
+                    break;
+                }
+                case PLOT_ADD: {
+                    plots.add(plotReader.read(in));
+                    break;
+                }
+                case PLOT_REMOVE: {
+                    plots.remove(getPlot(plots, in.readUTF()));
+                    break;
+                }
+                case PLOT_MOVE: {
+                    Plot plot = getPlot(plots, in.readUTF());
+                    plots.remove(plot);
+                    plots.add(Math.max(0, Math.min(plots.size(), in.readInt())), plot);
+                    break;
+                }
+                case PLOT_RECOLOR: {
+                    Plot plot = getPlot(plots, in.readUTF());
+                    try {
+                        plot.setMaterial(Plot.readMaterial(in));
+                    }
+                    catch(IllegalArgumentException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                    break;
+                }
+                case TERRAIN: {
+                    try {
+                        canvas.setTerrain(Terrain.read(in));
+                    }
+                    catch(IllegalArgumentException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                    break;
+                }
+                case PLOTS: {
+                    plots.clear();
+                    int count = in.readInt();
+                    for(int i = 0; i < count; i++) {
+                        plots.add(plotReader.read(in));
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException(String.format("Unknown change type %s.", type));
+            }
+        }
+
+        if(canvas == null)
+            return null;
+
+        //A canvas added after the last save might not have been built before the crash.
+        if(!built)
+            canvas.build();
+
+        try {
+            canvas.replacePlots(plots);
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return canvas;
+    }
+
+    private static Plot getPlot(List<Plot> plots, String name) throws IOException {
+        for(Plot plot : plots) {
+            if(plot.getName().equals(name))
+                return plot;
+        }
+
+        throw new IOException(String.format("A logged change is for plot '%s', which does not exist.", name));
+    }
+
+    private static byte[] encode(byte type, Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeByte(type);
+            writer.write(out);
+        }
+        catch(IOException e) {
+            //Writing to memory does not fail.
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutput out) throws IOException;
+    }
+}
@@ -0,0 +1,322 @@
+package edu.ntnu.tobiasth.mineplot.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Class MutationLog:
+ * An append-only log of the changes made to canvases since they were last saved, so no work is lost in a crash.
+ *
+ * Each record has its length, a checksum, a sequence number, the owner and name of the canvas, and the change.
+ * Adding a record only copies it to a buffer, so the main thread never waits for the disk. A background thread writes
+ * everything in the buffer at once and syncs it to the disk, so records added while a sync is going on share the next one.
+ * When the log is opened, it is read up to the first record that is cut off or has the wrong checksum,
+ * and the rest is dropped.
+ */
+public class MutationLog {
+    //Sequence number, owner and name length, in front of the name and the change.
+    private static final int HEADER_SIZE = 8 + 16 + 2;
+    private final Path path;
+    private final Object bufferLock = new Object();
+    private final Object fileLock = new Object();
+    private final ArrayList<Record> records = new ArrayList<>();
+    private final Thread writer;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private ArrayList<Record> buffered = new ArrayList<>();
+    private FileChannel channel;
+    private long lastSequence;
+    private boolean closed = false;
+    private volatile IOException error = null;
+
+    /**
+     * Open a log, and create the file if it does not exist.
+     * @param path Path to the log file.
+     * @param firstSequence Sequence numbers of new records are higher than this, and higher than any in the log.
+     * @throws IOException If the file can't be read.
+     */
+    public MutationLog(Path path, long firstSequence) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.lastSequence = Math.max(firstSequence, read());
+
+        writer = new Thread(this::writeBuffered, "MinePlot mutation log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Add a change to the log. The record is written and synced to the disk shortly after.
+     * @param owner Player the canvas belongs to.
+     * @param name Canvas name.
+     * @param data Change, as written by the Mutation class.
+     * @return Sequence number of the record.
+     * @throws IllegalStateException If the log is closed.
+     */
+    public long append(UUID owner, String name, byte[] data) throws IllegalStateException {
+        synchronized(bufferLock) {
+            if(closed)
+                throw new IllegalStateException("The mutation log is closed.");
+
+            Record record = new Record(++lastSequence, owner, name, data);
+            byte[] encoded = record.encode();
+            buffer.write(encoded, 0, encoded.length);
+            buffered.add(record);
+
+            bufferLock.notifyAll();
+            return record.sequence;
+        }
+    }
+
+    /**
+     * Get the sequence number of the last record added.
+     * @return Sequence number.
+     */
+    public long getLastSequence() {
+        synchronized(bufferLock) {
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Get the records in the log, in the order they were added.
+     * @return Records.
+     */
+    public List<Record> getRecords() {
+        synchronized(fileLock) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**
+     * Write the log to a new file with only the records that are still needed, and swap it with the old file.
+     * Records added in the meantime are written to the new file when it is done.
+     * @param filter Decides which records to keep.
+     * @throws IOException If writing fails.
+     */
+    public void compact(Filter filter) throws IOException {
+        synchronized(fileLock) {
+            ArrayList<Record> kept = new ArrayList<>();
+            for(Record record : records) {
+                if(filter.keep(record))
+                    kept.add(record);
+            }
+            if(kept.size() == records.size())
+                return;
+
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try(FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for(Record record : kept) {
+                    ByteBuffer encoded = ByteBuffer.wrap(record.encode());
+                    while(encoded.hasRemaining()) {
+                        out.write(encoded);
+                    }
+                }
+                out.force(true);
+            }
+
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+
+            records.clear();
+            records.addAll(kept);
+        }
+    }
+
+    /**
+     * Write and sync the remaining records, and close the file. The log can't be used after this.
+     * @throws IOException If a record could not be written.
+     */
+    public void close() throws IOException {
+        synchronized(bufferLock) {
+            closed = true;
+            bufferLock.notifyAll();
+        }
+
+        try {
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized(fileLock) {
+            channel.close();
+        }
+
+        if(error != null)
+            throw error;
+    }
+
+    /**
+     * Runs on the writer thread. Takes everything buffered, and writes and syncs it in one go, until the log is closed.
+     */
+    private void writeBuffered() {
+        while(true) {
+            byte[] data;
+            ArrayList<Record> written;
+
+            synchronized(bufferLock) {
+                while(buffered.isEmpty() && !closed) {
+                    try {
+                        bufferLock.wait();
+                    }
+                    catch(InterruptedException e) {
+                        return;
+                    }
+                }
+                if(buffered.isEmpty())
+                    return;
+
+                data = buffer.toByteArray();
+                written = buffered;
+                buffer = new ByteArrayOutputStream();
+                buffered = new ArrayList<>();
+            }
+
+            synchronized(fileLock) {
+                try {
+                    ByteBuffer bytes = ByteBuffer.wrap(data);
+                    while(bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    channel.force(false);
+                    records.addAll(written);
+                }
+                catch(IOException e) {
+                    error = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the records in the file, and drop everything after the last whole one.
+     * @return Highest sequence number in the file, or 0 if it is empty.
+     */
+    private long read() throws IOException {
+        long size = channel.size();
+        ByteBuffer file = ByteBuffer.allocate((int) size);
+        while(file.hasRemaining()) {
+            if(channel.read(file, file.position()) < 0)
+                break;
+        }
+        file.flip();
+
+        long last = 0;
+        int end = 0;
+        CRC32 checksum = new CRC32();
+        while(file.remaining() >= 8) {
+            int length = file.getInt();
+            int expected = file.getInt();
+            if(length < HEADER_SIZE || length > file.remaining())
+                break;
+
+            checksum.reset();
+            checksum.update(file.array(), file.position(), length);
+            if((int) checksum.getValue() != expected)
+                break;
+
+            long sequence = file.getLong();
+            UUID owner = new UUID(file.getLong(), file.getLong());
+            byte[] nameBytes = new byte[file.getShort() & 0xFFFF];
+            if(nameBytes.length > length - HEADER_SIZE)
+                break;
+            file.get(nameBytes);
+            byte[] data = new byte[length - HEADER_SIZE - nameBytes.length];
+            file.get(data);
+
+            records.add(new Record(sequence, owner, new String(nameBytes, StandardCharsets.UTF_8), data));
+            last = Math.max(last, sequence);
+            end = file.position();
+        }
+
+        //Drop a record that was cut off or damaged by a crash, and everything after it.
+        if(end < size) {
+            channel.truncate(end);
+            channel.force(true);
+        }
+        channel.position(end);
+
+        return last;
+    }
+
+    /**
+     * Interface Filter:
+     * Decides if a record is still needed when the log is compacted.
+     */
+    @FunctionalInterface
+    public interface Filter {
+        boolean keep(Record record);
+    }
+
+    /**
+     * Class Record:
+     * One logged change to a canvas.
+     */
+    public static final class Record {
+        private final long sequence;
+        private final UUID owner;
+        private final String name;
+        private final byte[] data;
+
+        private Record(long sequence, UUID owner, String name, byte[] data) {
+            this.sequence = sequence;
+            this.owner = owner;
+            this.name = name;
+            this.data = data;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public UUID getOwner() {
+            return owner;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Encode the record with its length and checksum in front.
+         * @return Encoded record.
+         */
+        private byte[] encode() {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer body = ByteBuffer.allocate(HEADER_SIZE + nameBytes.length + data.length);
+            body.putLong(sequence);
+            body.putLong(owner.getMostSignificantBits());
+            body.putLong(owner.getLeastSignificantBits());
+            body.putShort((short) nameBytes.length);
+            body.put(nameBytes);
+            body.put(data);
+
+            CRC32 checksum = new CRC32();
+            checksum.update(body.array(), 0, body.capacity());
+
+            ByteBuffer record = ByteBuffer.allocate(8 + body.capacity());
+            record.putInt(body.capacity());
+            record.putInt((int) checksum.getValue());
+            record.put(body.array());
+            return record.array();
+        }
+    }
+}
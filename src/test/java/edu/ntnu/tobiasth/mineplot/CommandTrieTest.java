@@ -0,0 +1,97 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class CommandTrieTest:
+ * Checks that sent words are dispatched to the right command, and that the right command words are suggested.
+ */
+class CommandTrieTest {
+    private static final CommandTrie COMMANDS = new CommandTrie(Command.values());
+
+    @Test
+    void everyCommandIsFound() {
+        for(Command command : Command.values()) {
+            String[] words = command.getIdentifierWords();
+            assertEquals(command, COMMANDS.find(words));
+
+            //Arguments after the command words don't change the command.
+            String[] args = Arrays.copyOf(words, words.length + 2);
+            args[words.length] = "add";
+            args[words.length + 1] = "1";
+            assertEquals(command, COMMANDS.find(args));
+        }
+    }
+
+    @Test
+    void wordsAreNotCaseSensitive() {
+        assertEquals(Command.CANVAS_ADD, COMMANDS.find(new String[] {"Canvas", "ADD", "c"}));
+        assertEquals(Command.PLOT_ADD_HEATMAP, COMMANDS.find(new String[] {"plot", "Add", "HeatMap"}));
+        assertEquals(Arrays.asList("add", "clear", "list", "remove"), COMMANDS.complete(new String[] {"CANVAS", ""}));
+        assertEquals(Arrays.asList("recolor", "remove"), COMMANDS.complete(new String[] {"plot", "RE"}));
+    }
+
+    @Test
+    void unfinishedOrUnknownCommandsAreNotFound() {
+        assertNull(COMMANDS.find(new String[0]));
+        assertNull(COMMANDS.find(new String[] {"canvas"}));
+        assertNull(COMMANDS.find(new String[] {"plot", "add"}));
+        assertNull(COMMANDS.find(new String[] {"plot", "add", "surface"}));
+        assertNull(COMMANDS.find(new String[] {"canvases", "add"}));
+        assertNull(COMMANDS.find(new String[] {"help2"}));
+    }
+
+    @Test
+    void nextWordsAreSuggested() {
+        List<String> first = new ArrayList<>(new TreeSet<>(Arrays.asList("canvas", "plot", "undo", "redo", "preview", "commit",
+                "progress", "stats", "tool", "help")));
+        assertEquals(first, COMMANDS.complete(new String[0]));
+        assertEquals(first, COMMANDS.complete(new String[] {""}));
+        assertEquals(Arrays.asList("plot", "preview", "progress"), COMMANDS.complete(new String[] {"p"}));
+        assertEquals(Arrays.asList("preview", "progress"), COMMANDS.complete(new String[] {"pr"}));
+        assertEquals(Collections.singletonList("canvas"), COMMANDS.complete(new String[] {"canvas"}));
+        assertEquals(Arrays.asList("add", "list", "move", "recolor", "remove"), COMMANDS.complete(new String[] {"plot", ""}));
+        assertEquals(Arrays.asList("function", "heatmap", "parametric", "point", "polar"), COMMANDS.complete(new String[] {"plot", "add", ""}));
+        assertEquals(Arrays.asList("parametric", "point", "polar"), COMMANDS.complete(new String[] {"plot", "add", "p"}));
+
+        //After a whole command, or after words that are not a command, there are no command words to suggest.
+        assertTrue(COMMANDS.complete(new String[] {"undo", ""}).isEmpty());
+        assertTrue(COMMANDS.complete(new String[] {"canvas", "add", ""}).isEmpty());
+        assertTrue(COMMANDS.complete(new String[] {"graph", ""}).isEmpty());
+        assertTrue(COMMANDS.complete(new String[] {"x"}).isEmpty());
+    }
+
+    @Test
+    void argumentsHaveKinds() {
+        assertEquals(Command.Argument.CANVAS, Command.PLOT_REMOVE.getArgument(0));
+        assertEquals(Command.Argument.PLOT, Command.PLOT_REMOVE.getArgument(1));
+        assertNull(Command.PLOT_REMOVE.getArgument(2));
+        assertNull(Command.PLOT_REMOVE.getArgument(-1));
+        assertEquals(3, Command.PLOT_ADD_FUNCTION.getArgumentIndex(Command.Argument.CANVAS));
+        assertEquals(-1, Command.UNDO.getArgumentIndex(Command.Argument.CANVAS));
+    }
+
+    @Test
+    void prefixMatchesAreTheWordsStartingWithPrefix() {
+        TreeSet<String> words = new TreeSet<>();
+        for(int i = 0; i < 20000; i++)
+            words.add(Integer.toString(i, 36));
+
+        for(String prefix : new String[] {"", "a", "a1", "zz", "10", "9", "-", "{", "a\uffff"}) {
+            List<String> expected = new ArrayList<>();
+            for(String word : words) {
+                if(word.startsWith(prefix))
+                    expected.add(word);
+            }
+            assertEquals(expected, CommandTrie.startingWith(words, prefix), prefix);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class QuotaTest:
+ * Checks the waits of the token buckets, with a clock that only moves when the test moves it.
+ */
+class QuotaTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private long now = 1000;
+
+    @Test
+    void burstIsAdmittedRightAway() {
+        //1000 blocks and 5000 values per second, with 2 seconds of work in a full bucket.
+        Quota quota = new Quota(1000, 5000, 2, () -> now);
+        assertEquals(0, quota.getWait(2000, 10000));
+        quota.take(2000, 10000);
+
+        //The buckets are empty, so the next block waits a millisecond for its token.
+        assertEquals(SECOND / 1000, quota.getWait(1, 0));
+        assertEquals(SECOND / 5000, quota.getWait(0, 1));
+        assertEquals(SECOND, quota.getWait(1000, 5000));
+        assertEquals(0, quota.getWait(0, 0));
+    }
+
+    @Test
+    void bucketsRefillAtTheirRate() {
+        Quota quota = new Quota(1000, 5000, 2, () -> now);
+        quota.take(2000, 10000);
+
+        now += SECOND / 2;
+        assertEquals(0, quota.getWait(500, 2500));
+        assertEquals(SECOND / 2, quota.getWait(1000, 0));
+
+        //The longer wait of the two buckets decides.
+        assertEquals(SECOND, quota.getWait(500, 7500));
+
+        //A bucket never holds more than a full burst.
+        now += 60 * SECOND;
+        assertEquals(0, quota.getWait(2000, 10000));
+        assertEquals(SECOND, quota.getWait(3000, 0));
+    }
+
+    @Test
+    void laterRequestsWaitBehindEarlierOnes() {
+        Quota quota = new Quota(100, 0, 1, () -> now);
+
+        //A request larger than the bucket is admitted once the bucket is full, and leaves it below zero.
+        assertEquals(4 * SECOND, quota.getShortestWait(500, 0));
+        quota.take(500, 0);
+        assertEquals(4 * SECOND + SECOND / 100, quota.getWait(1, 0));
+
+        now += 4 * SECOND;
+        assertEquals(SECOND / 100, quota.getWait(1, 0));
+        now += SECOND / 100;
+        assertEquals(0, quota.getWait(1, 0));
+    }
+
+    @Test
+    void zeroRateHasNoLimit() {
+        Quota quota = new Quota(0, 0, 2, () -> now);
+        quota.take(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2);
+        assertEquals(0, quota.getWait(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2));
+        assertEquals(0, quota.getShortestWait(Long.MAX_VALUE, Long.MAX_VALUE));
+
+        //Each limit is checked on its own.
+        Quota blocksOnly = new Quota(10, 0, 1, () -> now);
+        assertEquals(0, blocksOnly.getWait(10, 1000000000));
+        assertEquals(SECOND, blocksOnly.getShortestWait(20, 1000000000));
+    }
+
+    @Test
+    void shortestWaitDoesNotDependOnUse() {
+        Quota quota = new Quota(1000, 1000, 1, () -> now);
+        long before = quota.getShortestWait(3000, 1500);
+        quota.take(1000, 1000);
+        assertEquals(before, quota.getShortestWait(3000, 1500));
+        assertEquals(2 * SECOND, before);
+    }
+}
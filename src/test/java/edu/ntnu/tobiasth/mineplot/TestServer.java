@@ -0,0 +1,104 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Class TestServer:
+ * A stand-in for the server, so tests can use the parts of the Bukkit API that need one.
+ *
+ * It finds test worlds by UUID, and makes block data that only knows its material and its string.
+ * Any other call throws an UnsupportedOperationException, so a test that starts using more of the server fails.
+ */
+public final class TestServer {
+    private static final ConcurrentHashMap<UUID, World> WORLDS = new ConcurrentHashMap<>();
+
+    private TestServer() {}
+
+    /**
+     * Let a world be found by its UUID, and set the stand-in server if no server is set yet.
+     * @param world World.
+     */
+    static void addWorld(World world) {
+        setServer();
+        WORLDS.put(world.getUID(), world);
+    }
+
+    /**
+     * Set the stand-in server, if no server is set yet.
+     */
+    public static synchronized void setServer() {
+        if(Bukkit.getServer() != null)
+            return;
+
+        Logger logger = Logger.getLogger("TestServer");
+        Bukkit.setServer(proxy(Server.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getWorld": {
+                    if(args[0] instanceof UUID)
+                        return WORLDS.get(args[0]);
+                    break;
+                }
+                case "createBlockData": {
+                    if(args.length == 1 && args[0] instanceof Material)
+                        return newBlockData((Material) args[0], "minecraft:" + ((Material) args[0]).name().toLowerCase(Locale.ROOT));
+                    if(args.length == 1 && args[0] instanceof String)
+                        return newBlockData(getMaterial((String) args[0]), (String) args[0]);
+                    break;
+                }
+                case "getLogger": return logger;
+                case "getName": return "TestServer";
+                case "getVersion": return "test";
+                case "getBukkitVersion": return "test";
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        }));
+    }
+
+    private static BlockData newBlockData(Material material, String data) {
+        return proxy(BlockData.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getMaterial": return material;
+                case "getAsString": return data;
+                case "clone": return proxy;
+                case "hashCode": return data.hashCode();
+                case "equals": return args[0] instanceof BlockData && data.equals(((BlockData) args[0]).getAsString());
+                case "toString": return data;
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    /**
+     * Get the material of a block data string, like minecraft:oak_stairs[facing=east].
+     */
+    private static Material getMaterial(String data) {
+        String name = data.replaceFirst("^minecraft:", "").replaceFirst("\\[.*$", "");
+        Material material = Material.getMaterial(name.toUpperCase(Locale.ROOT));
+        return material == null ? Material.AIR : material;
+    }
+
+    private static Object handleObjectMethod(Object proxy, String name, Object[] args) {
+        switch(name) {
+            case "hashCode": return System.identityHashCode(proxy);
+            case "equals": return proxy == args[0];
+            case "toString": return "TestServer";
+            default: throw new UnsupportedOperationException(String.format("The test server does not support %s.", name));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TestServer.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
@@ -0,0 +1,169 @@
+package edu.ntnu.tobiasth.mineplot;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Class TestWorld:
+ * A stand-in for a Minecraft world, which keeps its blocks in memory so tests can place and read them without a server.
+ *
+ * Only the calls the plugin makes to place blocks and take snapshots are supported, and any other call throws an
+ * UnsupportedOperationException. Blocks that were never set are air. The world is found by its UUID through the
+ * test server, so saved canvases in it can be read.
+ */
+public final class TestWorld {
+    private final UUID uid = UUID.randomUUID();
+    private final HashMap<Long, BlockData> blocks = new HashMap<>();
+    private final World world = proxy(World.class, (proxy, method, args) -> {
+        switch(method.getName()) {
+            case "getUID": return uid;
+            case "getName": return "test";
+            case "getChunkAt": {
+                if(args.length == 2 && args[0] instanceof Integer)
+                    return getChunk((Integer) args[0], (Integer) args[1]);
+                break;
+            }
+        }
+        return handleObjectMethod(proxy, method.getName(), args);
+    });
+    private long placed = 0;
+
+    public TestWorld() {
+        TestServer.addWorld(world);
+    }
+
+    /**
+     * Get the world, as the plugin sees it.
+     * @return World.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Get the material of a block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @return Material.
+     */
+    public Material getType(int x, int y, int z) {
+        return getBlockData(x, y, z).getMaterial();
+    }
+
+    /**
+     * Get the block data of a block.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @return Block data.
+     */
+    public BlockData getBlockData(int x, int y, int z) {
+        BlockData data = blocks.get(getKey(x, y, z));
+        return data == null ? Material.AIR.createBlockData() : data;
+    }
+
+    /**
+     * Set a block without counting it as placed, like terrain that was there before.
+     * @param x Block x coordinate.
+     * @param y Block y coordinate.
+     * @param z Block z coordinate.
+     * @param data Block data, as a string like minecraft:oak_stairs[facing=east].
+     */
+    public void setBlockData(int x, int y, int z, String data) {
+        blocks.put(getKey(x, y, z), Bukkit.createBlockData(data));
+    }
+
+    /**
+     * Get how many blocks have been set by the plugin since the world was made.
+     * @return Number of placed blocks.
+     */
+    public long getPlaced() {
+        return placed;
+    }
+
+    private Chunk getChunk(int chunkX, int chunkZ) {
+        return proxy(Chunk.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getX": return chunkX;
+                case "getZ": return chunkZ;
+                case "getWorld": return world;
+                case "getBlock": return getBlock((chunkX << 4) + (Integer) args[0], (Integer) args[1], (chunkZ << 4) + (Integer) args[2]);
+                case "getChunkSnapshot": return getSnapshot(chunkX, chunkZ);
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    private ChunkSnapshot getSnapshot(int chunkX, int chunkZ) {
+        //Copy the blocks, so later changes are not in the snapshot.
+        HashMap<Long, BlockData> copy = new HashMap<>(blocks);
+
+        return proxy(ChunkSnapshot.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getX": return chunkX;
+                case "getZ": return chunkZ;
+                case "getBlockData":
+                case "getBlockType": {
+                    BlockData data = copy.get(getKey((chunkX << 4) + (Integer) args[0], (Integer) args[1], (chunkZ << 4) + (Integer) args[2]));
+                    if(data == null)
+                        data = Material.AIR.createBlockData();
+                    return method.getName().equals("getBlockData") ? data : data.getMaterial();
+                }
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    private Block getBlock(int x, int y, int z) {
+        return proxy(Block.class, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "getType": return getType(x, y, z);
+                case "getBlockData": return getBlockData(x, y, z);
+                case "setType": {
+                    blocks.put(getKey(x, y, z), ((Material) args[0]).createBlockData());
+                    placed++;
+                    return null;
+                }
+                case "setBlockData": {
+                    blocks.put(getKey(x, y, z), (BlockData) args[0]);
+                    placed++;
+                    return null;
+                }
+                case "getX": return x;
+                case "getY": return y;
+                case "getZ": return z;
+                case "getWorld": return world;
+            }
+            return handleObjectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    private static long getKey(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+
+    private static Object handleObjectMethod(Object proxy, String name, Object[] args) {
+        switch(name) {
+            case "hashCode": return System.identityHashCode(proxy);
+            case "equals": return proxy == args[0];
+            case "toString": return "TestWorld";
+            default: throw new UnsupportedOperationException(String.format("The test world does not support %s.", name));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TestWorld.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
@@ -0,0 +1,134 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.TestServer;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class BlockWriterTest:
+ * Checks that blocks are placed grouped by chunk, that block states are kept, and that a full or sorted writer is not changed.
+ */
+class BlockWriterTest {
+    @BeforeAll
+    static void setUp() {
+        TestServer.setServer();
+    }
+
+    @Test
+    void blocksAreGroupedByChunkInOrder() {
+        RecordingSink sink = new RecordingSink();
+        BlockWriter writer = new BlockWriter(sink, 6);
+        writer.add(0, 0, 0, Material.STONE);
+        writer.add(16, 0, 0, Material.STONE);
+        writer.add(1, 0, 0, Material.DIRT);
+        writer.add(-1, 0, 0, Material.STONE);
+        writer.add(17, 0, 0, Material.DIRT);
+        writer.add(2, 5, 15, Material.SAND);
+
+        writer.write(0, 3);
+        writer.write(3, writer.getSize());
+
+        //Chunk -1 comes first, and blocks in a chunk keep the order they were added in.
+        assertEquals(Arrays.asList("-1 0 0 STONE", "0 0 0 STONE", "1 0 0 DIRT", "2 5 15 SAND", "16 0 0 STONE", "17 0 0 DIRT"), sink.blocks);
+        assertEquals(6, writer.getPlaced());
+        assertEquals(0, writer.getSkipped());
+    }
+
+    @Test
+    void blocksWithMaterialAreSkipped() {
+        MemorySink sink = new MemorySink(0, 0, 0, 3, 0, 0);
+        sink.setBlock(1, 0, 0, Material.STONE);
+
+        BlockWriter writer = new BlockWriter(sink, 4);
+        for(int x = 0; x < 4; x++)
+            writer.add(x, 0, 0, Material.STONE);
+        writer.write(0, writer.getSize());
+
+        assertEquals(3, writer.getPlaced());
+        assertEquals(1, writer.getSkipped());
+    }
+
+    @Test
+    void blockStatesArePlacedAsGiven() {
+        BlockData stairs = Bukkit.createBlockData("minecraft:oak_stairs[facing=east]");
+        RecordingSink sink = new RecordingSink();
+        BlockWriter writer = new BlockWriter(sink, 3);
+        writer.add(0, 0, 0, Material.STONE);
+        writer.add(1, 0, 0, stairs);
+        writer.add(2, 0, 0, Material.DIRT);
+        writer.write(0, writer.getSize());
+
+        assertEquals(Arrays.asList("0 0 0 STONE", "1 0 0 minecraft:oak_stairs[facing=east]", "2 0 0 DIRT"), sink.blocks);
+    }
+
+    @Test
+    void fullWriterIsNotChanged() {
+        BlockData stairs = Bukkit.createBlockData("minecraft:oak_stairs[facing=east]");
+        RecordingSink sink = new RecordingSink();
+        BlockWriter writer = new BlockWriter(sink, 2);
+        writer.add(0, 0, 0, Material.STONE);
+        writer.add(1, 0, 0, Material.DIRT);
+
+        assertThrows(IllegalStateException.class, () -> writer.add(2, 0, 0, Material.SAND));
+        assertThrows(IllegalStateException.class, () -> writer.add(2, 0, 0, stairs));
+        assertEquals(2, writer.getSize());
+
+        writer.write(0, writer.getSize());
+        assertEquals(Arrays.asList("0 0 0 STONE", "1 0 0 DIRT"), sink.blocks);
+    }
+
+    @Test
+    void sortedWriterIsNotChanged() {
+        BlockData stairs = Bukkit.createBlockData("minecraft:oak_stairs[facing=east]");
+        RecordingSink sink = new RecordingSink();
+        BlockWriter writer = new BlockWriter(sink, 4);
+        writer.add(0, 0, 0, Material.STONE);
+        writer.sort();
+
+        assertThrows(IllegalStateException.class, () -> writer.add(1, 0, 0, Material.SAND));
+        assertThrows(IllegalStateException.class, () -> writer.add(1, 0, 0, stairs));
+        assertEquals(1, writer.getSize());
+
+        writer.write(0, writer.getSize());
+        assertEquals(Arrays.asList("0 0 0 STONE"), sink.blocks);
+    }
+
+    @Test
+    void emptyWriterPlacesNothing() {
+        RecordingSink sink = new RecordingSink();
+        BlockWriter writer = new BlockWriter(sink, 0);
+        writer.write(0, writer.getSize());
+
+        assertTrue(sink.blocks.isEmpty());
+        assertEquals(0, writer.getPlaced());
+    }
+
+    /**
+     * Class RecordingSink:
+     * Keeps the blocks it is given in order, and places every one of them.
+     */
+    private static final class RecordingSink implements BlockSink {
+        private final List<String> blocks = new ArrayList<>();
+
+        @Override
+        public boolean setBlock(int x, int y, int z, Material material) {
+            blocks.add(x + " " + y + " " + z + " " + material);
+            return true;
+        }
+
+        @Override
+        public boolean setBlock(int x, int y, int z, BlockData data) {
+            blocks.add(x + " " + y + " " + z + " " + data.getAsString());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.TestWorld;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class CanvasIndexTest:
+ * Checks that the index finds the canvas of a block, rejects overlapping canvases, and that a lookup doesn't check more canvases when there are more.
+ */
+class CanvasIndexTest {
+    private static final UUID OWNER = new UUID(1, 2);
+    private static final UUID OTHER = new UUID(3, 4);
+    private static final UUID WORLD = new UUID(5, 6);
+    private static final UUID NETHER = new UUID(7, 8);
+
+    @Test
+    void blocksOfCanvasesAreFound() {
+        CanvasIndex index = new CanvasIndex();
+
+        //The first canvas crosses chunk borders, and the second one is in negative chunks.
+        index.add(OWNER, "a", new CanvasBounds(WORLD, 10, 60, 5, 40, 80, 5));
+        index.add(OWNER, "b", new CanvasBounds(WORLD, -3, 0, -20, -3, 10, -50));
+
+        assertTrue(index.contains(WORLD, 10, 60, 5));
+        assertTrue(index.contains(WORLD, 40, 80, 5));
+        assertTrue(index.contains(WORLD, 16, 70, 5));
+        assertTrue(index.contains(WORLD, -3, 5, -35));
+        assertFalse(index.contains(WORLD, 9, 60, 5));
+        assertFalse(index.contains(WORLD, 20, 81, 5));
+        assertFalse(index.contains(WORLD, 20, 70, 6));
+        assertFalse(index.contains(WORLD, -4, 5, -35));
+        assertFalse(index.contains(NETHER, 20, 70, 5));
+    }
+
+    @Test
+    void overlappingCanvasesAreRejected() {
+        CanvasIndex index = new CanvasIndex();
+        index.add(OWNER, "a", new CanvasBounds(WORLD, 0, 0, 0, 30, 30, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> index.add(OTHER, "b", new CanvasBounds(WORLD, 30, 30, 0, 30, 60, 0)));
+        assertThrows(IllegalArgumentException.class, () -> index.add(OWNER, "b", new CanvasBounds(WORLD, 10, 10, -5, 10, 10, 5)));
+        assertFalse(index.contains(WORLD, 10, 10, -5));
+
+        //Canvases next to it, in another world, or the same canvas moved are not overlaps.
+        index.add(OTHER, "b", new CanvasBounds(WORLD, 31, 0, 0, 60, 30, 0));
+        index.add(OTHER, "c", new CanvasBounds(NETHER, 0, 0, 0, 30, 30, 0));
+        index.add(OWNER, "a", new CanvasBounds(WORLD, 0, 0, 1, 30, 30, 1));
+        assertFalse(index.contains(WORLD, 0, 0, 0));
+        assertTrue(index.contains(WORLD, 0, 0, 1));
+
+        //A removed canvas no longer takes up its blocks.
+        index.remove(OTHER, "b");
+        index.remove(OTHER, "missing");
+        assertFalse(index.contains(WORLD, 40, 10, 0));
+        index.add(OWNER, "d", new CanvasBounds(WORLD, 40, 0, 0, 40, 30, 0));
+    }
+
+    @Test
+    void lookupsMatchCheckingEveryCanvas() {
+        CanvasIndex index = new CanvasIndex();
+        ArrayList<CanvasBounds> added = add(index, 5000, new Random(1));
+
+        Random random = new Random(2);
+        for(int i = 0; i < 200000; i++) {
+            int x = random.nextInt(4000) - 2000;
+            int y = random.nextInt(64);
+            int z = random.nextInt(4000) - 2000;
+
+            boolean expected = false;
+            for(CanvasBounds bounds : added) {
+                if(bounds.contains(WORLD, x, y, z)) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals(expected, index.contains(WORLD, x, y, z));
+        }
+    }
+
+    @Test
+    void lookupsCheckFewCanvases() {
+        CanvasIndex small = new CanvasIndex();
+        CanvasIndex large = new CanvasIndex();
+        add(small, 1000, new Random(1));
+        add(large, 100000, new Random(1));
+
+        //Checking every canvas would check a hundred times more in the large index. The time is measured in CanvasIndexBenchmark.
+        int[] smallChecked = getChecked(small, 1000);
+        int[] largeChecked = getChecked(large, 100000);
+        assertTrue(largeChecked[0] < smallChecked[0] * 2, String.format("1000 canvases: %d, 100000 canvases: %d", smallChecked[0], largeChecked[0]));
+        assertTrue(smallChecked[1] <= 8 && largeChecked[1] <= 8);
+    }
+
+    @Test
+    void boundsAreReadFromStartOfSavedCanvas() throws IOException {
+        World world = new TestWorld().getWorld();
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -3, 3), new Location(world, 5, 60, -20), new Location(world, 5, 100, -80),
+                Material.WHITE_CONCRETE, new BlockScheduler(1000), OWNER, new MemorySink(5, 60, -80, 5, 100, -20));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        canvas.write(new DataOutputStream(bytes));
+
+        //Only the first KB of a saved canvas is read when the canvases are indexed on startup.
+        byte[] start = Arrays.copyOf(bytes.toByteArray(), 1024);
+        CanvasBounds bounds = Canvas.readBounds(new DataInputStream(new ByteArrayInputStream(start)));
+        assertEquals(world.getUID(), bounds.getWorld());
+        assertTrue(bounds.contains(world.getUID(), 5, 60, -20));
+        assertTrue(bounds.contains(world.getUID(), 5, 100, -80));
+        assertFalse(bounds.contains(world.getUID(), 5, 101, -80));
+        assertFalse(bounds.contains(world.getUID(), 6, 80, -50));
+    }
+
+    /**
+     * Add canvases of up to 32 by 32 blocks, in planes along x or z, that don't overlap.
+     * They are spread over an area that grows with the number of canvases, as on a server.
+     */
+    private static ArrayList<CanvasBounds> add(CanvasIndex index, int count, Random random) {
+        ArrayList<CanvasBounds> added = new ArrayList<>();
+        int area = getArea(count);
+        for(int i = 0; i < count; i++) {
+            int x = random.nextInt(area) - area / 2;
+            int z = random.nextInt(area) - area / 2;
+            int y = random.nextInt(32);
+            int length = 1 + random.nextInt(32);
+            CanvasBounds bounds = random.nextBoolean()
+                    ? new CanvasBounds(WORLD, x, y, z, x + length, y + length, z)
+                    : new CanvasBounds(WORLD, x, y, z, x, y + length, z + length);
+
+            try {
+                index.add(OWNER, "c" + i, bounds);
+                added.add(bounds);
+            }
+            catch(IllegalArgumentException e) {
+                i--;
+            }
+        }
+        return added;
+    }
+
+    private static int getArea(int count) {
+        return (int) Math.sqrt(count) * 40;
+    }
+
+    /**
+     * Count the canvases checked by lookups of random blocks in the area of the canvases.
+     * @return The total and the most checked by one lookup.
+     */
+    private static int[] getChecked(CanvasIndex index, int count) {
+        int area = getArea(count);
+        Random random = new Random(3);
+        int total = 0;
+        int most = 0;
+        for(int i = 0; i < 100000; i++) {
+            int checked = index.getCheckedCount(WORLD, random.nextInt(area) - area / 2, random.nextInt(area) - area / 2);
+            total += checked;
+            most = Math.max(most, checked);
+        }
+        return new int[] {total, most};
+    }
+}
@@ -0,0 +1,137 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.TestWorld;
+import edu.ntnu.tobiasth.mineplot.plot.Colormap;
+import edu.ntnu.tobiasth.mineplot.plot.ExpressionCache;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import edu.ntnu.tobiasth.mineplot.plot.Heatmap;
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import edu.ntnu.tobiasth.mineplot.plot.Point;
+import edu.ntnu.tobiasth.mineplot.plot.Polar;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class CanvasTest:
+ * Checks that saved canvases are read back as they were written, and that saved layers which don't fit are rejected.
+ */
+class CanvasTest {
+    private static final UUID OWNER = new UUID(1, 2);
+    private static ForkJoinPool pool;
+    private static World world;
+
+    @BeforeAll
+    static void setUp() {
+        pool = new ForkJoinPool(2);
+        world = new TestWorld().getWorld();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void readCanvasIsWrittenTheSame() throws Exception {
+        BlockScheduler scheduler = new BlockScheduler(1000);
+        MemorySink sink = new MemorySink(0, 0, 0, 40, 30, 0);
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -2, 2), new Location(world, 0, 0, 0), new Location(world, 40, 30, 0),
+                Material.WHITE_CONCRETE, scheduler, OWNER, sink);
+        canvas.build();
+
+        ExpressionCache expressions = new ExpressionCache(8);
+        Plot[] plots = {
+                new Function("f", Material.BLACK_CONCRETE, expressions.get("sin(x)", 'x')),
+                new Heatmap("h", expressions.get("x*y", 'x', 'y'), Colormap.DEFAULT, pool, 8),
+                new Polar("p", Material.RED_CONCRETE, expressions.get("1", 't'), 0, 6.3),
+                new Point("q", Material.BLUE_CONCRETE, 1, 1),
+        };
+        for(Plot plot : plots) {
+            canvas.addPlot(plot);
+            plot.draw(canvas);
+        }
+        scheduler.flush();
+
+        byte[] written = write(canvas);
+        Canvas read = Canvas.read(new DataInputStream(new ByteArrayInputStream(written)), scheduler, OWNER,
+                in -> Plot.read(in, expressions, pool, 8));
+
+        assertArrayEquals(written, write(read));
+        assertEquals(plots.length, read.getPlots().length);
+        assertTrue(canvas.getBounds().overlaps(read.getBounds()));
+        assertEquals(0, scheduler.getQueueDepth(), "reading a canvas places no blocks");
+    }
+
+    @Test
+    void plotThatCannotBeDrawnIsDropped() throws Exception {
+        BlockScheduler scheduler = new BlockScheduler(1000);
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -2, 2), new Location(world, 0, 0, 0), new Location(world, 20, 10, 0),
+                Material.WHITE_CONCRETE, scheduler, OWNER, new MemorySink(0, 0, 0, 20, 10, 0));
+        canvas.build();
+
+        //A point outside the value range was saved without a layer by earlier versions.
+        Point inside = new Point("in", Material.BLUE_CONCRETE, 1, 1);
+        Point outside = new Point("out", Material.RED_CONCRETE, 10, 1);
+        canvas.addPlot(inside);
+        inside.draw(canvas);
+        canvas.addPlot(outside);
+        assertThrows(IllegalArgumentException.class, () -> outside.draw(canvas));
+        scheduler.flush();
+
+        ExpressionCache expressions = new ExpressionCache(8);
+        Canvas read = Canvas.read(new DataInputStream(new ByteArrayInputStream(write(canvas))), scheduler, OWNER,
+                in -> Plot.read(in, expressions, pool, 8));
+        assertEquals(1, read.getPlots().length);
+        assertEquals("in", read.getPlots()[0].getName());
+
+        //Drawing the plots again drops it too, and keeps the rest.
+        canvas.drawPlots();
+        scheduler.flush();
+        assertArrayEquals(new Plot[] {inside}, canvas.getPlots());
+        assertArrayEquals(write(read), write(canvas));
+    }
+
+    @Test
+    void layerWithBlocksOutsideCanvasIsRejected() throws IOException {
+        //Two words have room for 128 blocks, but the canvas only has 100.
+        assertThrows(IOException.class, () -> Layer.read(getLayer(2, 100), 100));
+        assertThrows(IOException.class, () -> Layer.read(getLayer(2, 127), 100));
+        assertThrows(IOException.class, () -> Layer.read(getLayer(3, 5), 100));
+        assertTrue(Layer.read(getLayer(2, 99), 100).getCells().get(99));
+    }
+
+    /**
+     * Write a layer with one material and one block, as Layer.write does.
+     */
+    private static DataInputStream getLayer(int words, int block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(0);
+        out.writeUTF(Material.STONE.name());
+        out.writeInt(words);
+        for(int i = 0; i < words; i++)
+            out.writeLong(i == block / 64 ? 1L << (block % 64) : 0);
+
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static byte[] write(Canvas canvas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        canvas.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
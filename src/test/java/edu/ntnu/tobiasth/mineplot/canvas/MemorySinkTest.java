@@ -0,0 +1,117 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.TestServer;
+import org.bukkit.Bukkit;
+import org.bukkit.DyeColor;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class MemorySinkTest:
+ * Checks that blocks placed in memory are read back, and that a canvas drawn in memory is saved as the right image.
+ */
+class MemorySinkTest {
+    @TempDir
+    Path folder;
+
+    @BeforeAll
+    static void setUp() {
+        TestServer.setServer();
+    }
+
+    @Test
+    void placedBlocksAreReadBack() {
+        //The corners are given in any order.
+        MemorySink sink = new MemorySink(5, 70, -3, -2, 60, -1);
+        assertEquals(-2, sink.getMinX());
+        assertEquals(60, sink.getMinY());
+        assertEquals(-3, sink.getMinZ());
+        assertEquals(8, sink.getSizeX());
+        assertEquals(11, sink.getSizeY());
+        assertEquals(3, sink.getSizeZ());
+        assertNull(sink.getMaterial(0, 65, -2));
+
+        assertTrue(sink.setBlock(-2, 60, -3, Material.STONE));
+        assertTrue(sink.setBlock(5, 70, -1, Material.DIRT));
+        assertTrue(sink.setBlock(0, 65, -2, Bukkit.createBlockData("minecraft:oak_stairs[facing=east]")));
+        assertFalse(sink.setBlock(-2, 60, -3, Material.STONE));
+        assertTrue(sink.setBlock(-2, 60, -3, Material.SAND));
+
+        assertEquals(Material.SAND, sink.getMaterial(-2, 60, -3));
+        assertEquals(Material.DIRT, sink.getMaterial(5, 70, -1));
+        assertEquals(Material.OAK_STAIRS, sink.getMaterial(0, 65, -2));
+        assertNull(sink.getMaterial(5, 60, -3));
+        assertEquals(4, sink.getPlaced());
+    }
+
+    @Test
+    void blocksOutsideAreRejected() {
+        MemorySink sink = new MemorySink(0, 0, 0, 3, 3, 0);
+        assertThrows(IllegalArgumentException.class, () -> sink.setBlock(4, 0, 0, Material.STONE));
+        assertThrows(IllegalArgumentException.class, () -> sink.setBlock(0, -1, 0, Material.STONE));
+        assertThrows(IllegalArgumentException.class, () -> sink.getMaterial(0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MemorySink(0, 0, 0, 100000, 100000, 100000));
+    }
+
+    @Test
+    void imageShowsCanvasFromSide() {
+        //A canvas along the z-axis, two blocks wide and three high.
+        MemorySink sink = new MemorySink(4, 10, 20, 4, 12, 21);
+        sink.setBlock(4, 10, 20, Material.BLUE_CONCRETE);
+        sink.setBlock(4, 10, 21, Material.LIGHT_BLUE_WOOL);
+        sink.setBlock(4, 12, 20, Material.STONE);
+        sink.setBlock(4, 12, 21, Material.AIR);
+
+        BufferedImage image = PngExporter.render(sink, 3);
+        assertEquals(6, image.getWidth());
+        assertEquals(9, image.getHeight());
+
+        //The lowest blocks are at the bottom of the image, and each block is three by three pixels.
+        for(int i = 0; i < 3; i++) {
+            assertEquals(getColor(DyeColor.BLUE), image.getRGB(i, 6 + i));
+            assertEquals(getColor(DyeColor.LIGHT_BLUE), image.getRGB(3 + i, 8 - i));
+            assertEquals(0xFF7F7F7F, image.getRGB(i, i));
+            assertEquals(0, image.getRGB(3 + i, i));
+            assertEquals(0, image.getRGB(i, 3 + i));
+        }
+    }
+
+    @Test
+    void thickSinkOrZeroScaleIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PngExporter.render(new MemorySink(0, 0, 0, 1, 1, 1), 1));
+        assertThrows(IllegalArgumentException.class, () -> PngExporter.render(new MemorySink(0, 0, 0, 1, 1, 0), 0));
+    }
+
+    @Test
+    void imageIsSavedAsPng() throws IOException {
+        MemorySink sink = new MemorySink(0, 0, 0, 7, 4, 0);
+        for(int x = 0; x < 8; x++)
+            sink.setBlock(x, x % 5, 0, Material.RED_CONCRETE);
+
+        File file = folder.resolve("canvas.png").toFile();
+        PngExporter.write(sink, 2, file);
+
+        BufferedImage read = ImageIO.read(file);
+        BufferedImage rendered = PngExporter.render(sink, 2);
+        assertEquals(rendered.getWidth(), read.getWidth());
+        assertEquals(rendered.getHeight(), read.getHeight());
+        for(int x = 0; x < read.getWidth(); x++) {
+            for(int y = 0; y < read.getHeight(); y++)
+                assertEquals(rendered.getRGB(x, y), read.getRGB(x, y), "x " + x + ", y " + y);
+        }
+    }
+
+    private static int getColor(DyeColor dye) {
+        return 0xFF000000 | dye.getColor().asRGB();
+    }
+}
@@ -0,0 +1,191 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.TestWorld;
+import edu.ntnu.tobiasth.mineplot.plot.Expression;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class PreviewSinkTest:
+ * Checks that a previewed canvas is only shown to its player, and that committing it places each changed block once.
+ */
+class PreviewSinkTest {
+    private static final UUID OWNER = new UUID(1, 2);
+    private static final int WIDTH = 31;
+    private static final int HEIGHT = 15;
+
+    private final HashMap<Long, Material> shown = new HashMap<>();
+    private final HashMap<Long, Integer> writes = new HashMap<>();
+    private World world;
+    private World otherWorld;
+    private Player player;
+    private boolean online = true;
+    private World playerWorld;
+    private int sent = 0;
+
+    private MemorySink memory;
+    private BlockScheduler scheduler;
+    private Canvas canvas;
+
+    @BeforeEach
+    void setUp() {
+        world = new TestWorld().getWorld();
+        otherWorld = new TestWorld().getWorld();
+        playerWorld = world;
+        player = (Player) Proxy.newProxyInstance(PreviewSinkTest.class.getClassLoader(), new Class<?>[] {Player.class}, (proxy, method, args) -> {
+            switch(method.getName()) {
+                case "sendBlockChange": {
+                    Location location = (Location) args[0];
+                    shown.put(getKey(location.getBlockX(), location.getBlockY()), ((BlockData) args[1]).getMaterial());
+                    sent++;
+                    return null;
+                }
+                case "isOnline": return online;
+                case "getWorld": return playerWorld;
+                case "getUniqueId": return OWNER;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "TestPlayer";
+            }
+            throw new UnsupportedOperationException(String.format("The test player does not support %s.", method.getName()));
+        });
+
+        //Count the writes to each block of the world.
+        memory = new MemorySink(0, 0, 0, WIDTH, HEIGHT, 0);
+        BlockSink counting = new BlockSink() {
+            @Override
+            public boolean setBlock(int x, int y, int z, Material material) {
+                writes.merge(getKey(x, y), 1, Integer::sum);
+                return memory.setBlock(x, y, z, material);
+            }
+
+            @Override
+            public boolean setBlock(int x, int y, int z, BlockData data) {
+                writes.merge(getKey(x, y), 1, Integer::sum);
+                return memory.setBlock(x, y, z, data);
+            }
+        };
+
+        scheduler = new BlockScheduler(1000);
+        canvas = new Canvas("c", new ValueRange(-5, 5, -5, 5), new Location(world, 0, 0, 0), new Location(world, WIDTH, HEIGHT, 0),
+                Material.WHITE_CONCRETE, scheduler, OWNER, counting);
+        canvas.build();
+        scheduler.flush();
+        writes.clear();
+    }
+
+    @Test
+    void previewIsOnlySentToPlayer() throws Expression.MalformedExpressionException {
+        long placed = memory.getPlaced();
+        canvas.startPreview(new PreviewSink(player, world));
+        assertTrue(canvas.isPreviewed());
+
+        Function f = new Function("f", Material.BLACK_CONCRETE, new Expression("x", 'x'));
+        canvas.addPlot(f);
+        f.draw(canvas);
+        scheduler.flush();
+
+        //The player sees the plot, and the world is not touched.
+        assertTrue(sent > 0);
+        assertEquals(sent, shown.size());
+        assertTrue(shown.values().stream().allMatch(material -> material == Material.BLACK_CONCRETE));
+        assertTrue(writes.isEmpty());
+        assertEquals(placed, memory.getPlaced());
+        for(long key : shown.keySet())
+            assertEquals(Material.WHITE_CONCRETE, memory.getMaterial(getX(key), getY(key), 0));
+
+        //Starting the preview again sends the whole raster, like after the player loaded the chunks again.
+        sent = 0;
+        canvas.startPreview(new PreviewSink(player, world));
+        scheduler.flush();
+        assertEquals((WIDTH + 1) * (HEIGHT + 1), sent);
+        assertEquals((WIDTH + 1) * (HEIGHT + 1), shown.size());
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void previewForAbsentPlayerIsDropped() throws Expression.MalformedExpressionException {
+        canvas.startPreview(new PreviewSink(player, world));
+        Function f = new Function("f", Material.BLACK_CONCRETE, new Expression("x", 'x'));
+        canvas.addPlot(f);
+
+        online = false;
+        f.draw(canvas);
+        scheduler.flush();
+        assertEquals(0, sent);
+
+        online = true;
+        playerWorld = otherWorld;
+        canvas.recolorPlot(f, Material.RED_CONCRETE);
+        scheduler.flush();
+        assertEquals(0, sent);
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void commitWritesEachBlockOnce() throws Expression.MalformedExpressionException {
+        canvas.startPreview(new PreviewSink(player, world));
+        Function f = new Function("f", Material.BLACK_CONCRETE, new Expression("x", 'x'));
+        canvas.addPlot(f);
+        f.draw(canvas);
+        canvas.recolorPlot(f, Material.RED_CONCRETE);
+        scheduler.flush();
+        assertTrue(writes.isEmpty());
+
+        long placed = memory.getPlaced();
+        canvas.commitPreview();
+        scheduler.flush();
+        assertFalse(canvas.isPreviewed());
+
+        //Every block is written once, and only the ones that changed are placed.
+        assertEquals((WIDTH + 1) * (HEIGHT + 1), writes.size());
+        assertTrue(writes.values().stream().allMatch(count -> count == 1));
+        int red = 0;
+        for(int x = 0; x <= WIDTH; x++) {
+            for(int y = 0; y <= HEIGHT; y++) {
+                Material material = memory.getMaterial(x, y, 0);
+                assertEquals(shown.getOrDefault(getKey(x, y), Material.WHITE_CONCRETE), material, "x " + x + ", y " + y);
+                if(material == Material.RED_CONCRETE)
+                    red++;
+            }
+        }
+        assertTrue(red > 0);
+        assertEquals(placed + red, memory.getPlaced());
+
+        //The world now has the canvas, so committing again or drawing more goes to the world only.
+        writes.clear();
+        sent = 0;
+        canvas.commitPreview();
+        scheduler.flush();
+        assertTrue(writes.isEmpty());
+
+        canvas.recolorPlot(f, Material.BLUE_CONCRETE);
+        scheduler.flush();
+        assertEquals(red, writes.size());
+        assertEquals(0, sent);
+    }
+
+    private static long getKey(int x, int y) {
+        return (long) x << 32 | y;
+    }
+
+    private static int getX(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int getY(long key) {
+        return (int) key;
+    }
+}
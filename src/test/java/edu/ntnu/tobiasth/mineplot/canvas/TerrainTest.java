@@ -0,0 +1,143 @@
+package edu.ntnu.tobiasth.mineplot.canvas;
+
+import edu.ntnu.tobiasth.mineplot.TestWorld;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class TerrainTest:
+ * Checks that the terrain under a canvas is stored in few bytes, read back as it was written, and put back when the canvas is removed.
+ */
+class TerrainTest {
+    private static final UUID OWNER = new UUID(1, 2);
+
+    //A 317 by 317 canvas has 100489 blocks.
+    private static final int BLOCKS = 316;
+
+    @Test
+    void terrainIsRestoredOnDestroy() throws IOException {
+        TestWorld world = new TestWorld();
+        for(int x = 0; x <= BLOCKS; x++) {
+            for(int y = 0; y <= BLOCKS; y++) {
+                String state = getState(x, y);
+                if(state != null)
+                    world.setBlockData(x, y, 0, state);
+            }
+        }
+
+        BlockScheduler scheduler = new BlockScheduler(1000);
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -3, 3), new Location(world.getWorld(), 0, 0, 0),
+                new Location(world.getWorld(), BLOCKS, BLOCKS, 0), Material.WHITE_CONCRETE, scheduler, OWNER);
+        Terrain terrain = canvas.snapshotTerrain().get();
+        canvas.setTerrain(terrain);
+        assertEquals((BLOCKS + 1) * (BLOCKS + 1), terrain.getSize());
+
+        //A row is one run unless it has ores or logs, and rows of the same block join into one run.
+        assertTrue(terrain.getRunCount() < 2000, "runs: " + terrain.getRunCount());
+        byte[] written = write(terrain);
+        assertTrue(written.length < 8 * 1024, "bytes: " + written.length);
+        assertArrayEquals(written, write(Terrain.read(new DataInputStream(new ByteArrayInputStream(written)))));
+
+        canvas.build();
+        scheduler.flush();
+        assertEquals(Material.WHITE_CONCRETE, world.getType(BLOCKS / 2, BLOCKS / 2, 0));
+
+        canvas.destroy();
+        scheduler.flush();
+        for(int x = 0; x <= BLOCKS; x++) {
+            for(int y = 0; y <= BLOCKS; y++) {
+                String state = getState(x, y);
+                assertEquals(state == null ? "minecraft:air" : state, world.getBlockData(x, y, 0).getAsString(), "x " + x + ", y " + y);
+            }
+        }
+    }
+
+    @Test
+    void canvasWithoutTerrainIsReplacedWithAir() {
+        TestWorld world = new TestWorld();
+        world.setBlockData(2, 2, 0, "minecraft:stone");
+
+        BlockScheduler scheduler = new BlockScheduler(1000);
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -3, 3), new Location(world.getWorld(), 0, 0, 0),
+                new Location(world.getWorld(), 4, 4, 0), Material.WHITE_CONCRETE, scheduler, OWNER);
+        canvas.build();
+        canvas.destroy();
+        scheduler.flush();
+
+        for(int x = 0; x <= 4; x++) {
+            for(int y = 0; y <= 4; y++)
+                assertEquals(Material.AIR, world.getType(x, y, 0));
+        }
+    }
+
+    @Test
+    void terrainOfWrongSizeIsRejected() {
+        Terrain.Builder builder = new Terrain.Builder();
+        builder.add("minecraft:stone");
+
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -3, 3), new Location(null, 0, 0, 0), new Location(null, 4, 4, 0),
+                Material.WHITE_CONCRETE, new BlockScheduler(1000), OWNER, new MemorySink(0, 0, 0, 4, 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> canvas.setTerrain(builder.build()));
+    }
+
+    @Test
+    void corruptTerrainIsRejected() throws IOException {
+        Terrain.Builder builder = new Terrain.Builder();
+        for(int i = 0; i < 300; i++)
+            builder.add(i < 200 ? "minecraft:stone" : "minecraft:dirt");
+        byte[] written = write(builder.build());
+
+        //The size is followed by the palette, and then by the runs.
+        byte[] wrongSize = written.clone();
+        wrongSize[3]++;
+        assertThrows(IOException.class, () -> read(wrongSize));
+
+        byte[] wrongValue = written.clone();
+        int firstRun = 4 + 2 + 2 + "minecraft:stone".length() + 2 + "minecraft:dirt".length() + 4;
+        wrongValue[firstRun + 1] = 2;
+        assertThrows(IOException.class, () -> read(wrongValue));
+
+        byte[] cutOff = Arrays.copyOf(written, written.length - 1);
+        assertThrows(IOException.class, () -> read(cutOff));
+
+        assertArrayEquals(written, write(read(written)));
+    }
+
+    /**
+     * Get the block at a position of the test terrain, or null for air.
+     * It is stone with some ores below 100, dirt below 120 and grass at 120, with a few trees on top.
+     */
+    private static String getState(int x, int y) {
+        if(y < 100)
+            return new Random(x * 1000L + y).nextInt(200) == 0 ? "minecraft:iron_ore" : "minecraft:stone";
+        if(y < 120)
+            return "minecraft:dirt";
+        if(y == 120)
+            return "minecraft:grass_block[snowy=false]";
+        if(x % 40 == 7 && y < 126)
+            return "minecraft:oak_log[axis=y]";
+        return null;
+    }
+
+    private static Terrain read(byte[] bytes) throws IOException {
+        return Terrain.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] write(Terrain terrain) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        terrain.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
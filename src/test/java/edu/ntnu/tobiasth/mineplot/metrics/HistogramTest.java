@@ -0,0 +1,98 @@
+package edu.ntnu.tobiasth.mineplot.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class HistogramTest:
+ * Checks that the buckets cover every value without gaps, and that percentiles are within a bucket of the exact value.
+ */
+class HistogramTest {
+    @Test
+    void bucketsFollowEachOther() {
+        //Values below 16 have their own bucket.
+        for(int value = 0; value < 16; value++) {
+            assertEquals(value, Histogram.getBucket(value));
+            assertEquals(value, Histogram.getHighestValue(value));
+        }
+
+        int last = Histogram.getBucket(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.getHighestValue(last));
+        for(int bucket = 0; bucket < last; bucket++) {
+            long highest = Histogram.getHighestValue(bucket);
+            assertEquals(bucket, Histogram.getBucket(highest), "bucket " + bucket);
+            assertEquals(bucket + 1, Histogram.getBucket(highest + 1), "bucket " + bucket);
+
+            //A bucket is never wider than a sixteenth of its lowest value.
+            long lowest = bucket == 0 ? 0 : Histogram.getHighestValue(bucket - 1) + 1;
+            assertTrue(highest - lowest <= Math.max(0, lowest / 16), "bucket " + bucket);
+        }
+    }
+
+    @Test
+    void percentilesAreCloseToExact() {
+        Random random = new Random(1);
+        for(int run = 0; run < 5; run++) {
+            Histogram histogram = new Histogram();
+            long[] values = new long[20000];
+            for(int i = 0; i < values.length; i++) {
+                //Spread over many powers of two, like latencies.
+                values[i] = (long) Math.exp(random.nextGaussian() * 3 + 10);
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+
+            for(double percentile : new double[] {0, 1, 25, 50, 90, 99, 99.9, 100}) {
+                long exact = values[Math.max(0, (int) Math.ceil(values.length * percentile / 100) - 1)];
+                long found = histogram.getPercentile(percentile);
+                assertTrue(found >= exact && found <= exact + exact / 16, String.format("p%s: %d, exact %d", percentile, found, exact));
+            }
+
+            assertEquals(values.length, histogram.getCount());
+            assertEquals(values[values.length - 1], histogram.getMax());
+            assertEquals(values[values.length - 1], histogram.getPercentile(100));
+            assertEquals(Arrays.stream(values).sum(), histogram.getSum());
+        }
+    }
+
+    @Test
+    void emptyOrNegativeValues() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMax());
+
+        histogram.record(-5);
+        histogram.record(1000);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(1000, histogram.getPercentile(51));
+        assertEquals(1000, histogram.getPercentile(200));
+        assertEquals(0, histogram.getPercentile(-1));
+        assertEquals(1000, histogram.getSum());
+    }
+
+    @Test
+    void valuesAreCountedFromManyThreads() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for(int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for(int i = 0; i < 100000; i++)
+                    histogram.record(i % 100);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(4 * 1000 * 4950, histogram.getSum());
+        assertEquals(99, histogram.getMax());
+        assertEquals(49, histogram.getPercentile(50));
+    }
+}
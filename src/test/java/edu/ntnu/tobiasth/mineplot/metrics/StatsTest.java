@@ -0,0 +1,95 @@
+package edu.ntnu.tobiasth.mineplot.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class StatsTest:
+ * Checks that the stats are written in the Prometheus text format, with values that match the metrics.
+ */
+class StatsTest {
+    @Test
+    void prometheusTextIsValid() {
+        Metrics.COMMAND_NANOS.record(2000000);
+        Metrics.TICK_BLOCKS.record(500);
+        Stats stats = new Stats(() -> 1234, () -> 7);
+        String text = stats.toPrometheus();
+        assertTrue(text.endsWith("\n"));
+
+        //Every sample follows the HELP and TYPE lines of its metric, and has a number as its value.
+        HashMap<String, Double> samples = new HashMap<>();
+        HashSet<String> typed = new HashSet<>();
+        String current = null;
+        for(String line : text.split("\n")) {
+            if(line.startsWith("# HELP ")) {
+                current = line.split(" ")[2];
+                continue;
+            }
+            if(line.startsWith("# TYPE ")) {
+                String[] parts = line.split(" ");
+                assertEquals(current, parts[2]);
+                assertTrue(parts[3].equals("counter") || parts[3].equals("gauge") || parts[3].equals("summary"), line);
+                typed.add(current);
+                continue;
+            }
+
+            assertTrue(line.matches("[a-z_]+(\\{quantile=\"0\\.[0-9]+\"})? [0-9.E-]+"), line);
+            String name = line.substring(0, line.indexOf(' '));
+            assertTrue(name.startsWith(current), line);
+            assertTrue(typed.contains(current), line);
+            samples.put(name, Double.parseDouble(line.substring(line.indexOf(' ') + 1)));
+        }
+
+        assertEquals(1234.0, (double) samples.get("mineplot_block_queue_depth"));
+        assertEquals(7.0, (double) samples.get("mineplot_render_queue_depth"));
+        assertEquals((double) Metrics.COMMAND_NANOS.getCount(), (double) samples.get("mineplot_command_seconds_count"));
+        assertEquals((double) Metrics.TICK_BLOCKS.getSum(), (double) samples.get("mineplot_tick_blocks_sum"));
+        assertTrue(samples.get("mineplot_blocks_placed_total") <= Metrics.BLOCKS_PLACED.sum());
+
+        //Quantiles are in seconds, and go up.
+        double p50 = samples.get("mineplot_command_seconds{quantile=\"0.5\"}");
+        double p99 = samples.get("mineplot_command_seconds{quantile=\"0.99\"}");
+        assertTrue(p50 > 0 && p50 <= p99 && p99 < 1000, text);
+    }
+
+    @Test
+    void reportHasEveryLine() {
+        Stats stats = new Stats(() -> 1234, () -> 7);
+        stats.sample();
+        List<String> report = stats.getReport();
+
+        assertEquals(7, report.size());
+        assertEquals("Queues: 1234 blocks, 7 plot calculations.", report.get(6));
+    }
+
+    @Test
+    void ratesAreForLastSample() {
+        long[] now = {1000};
+        Stats stats = new Stats(() -> 0, () -> 0, () -> now[0]);
+        stats.sample();
+
+        Metrics.TICK_BLOCKS.record(100);
+        Metrics.TICK_BLOCKS.record(300);
+        Metrics.EVALUATIONS.add(5000);
+        now[0] += TimeUnit.MILLISECONDS.toNanos(500);
+        stats.sample();
+        assertEquals(200, stats.getBlocksPerTick());
+        assertEquals(10000, stats.getEvaluationsPerSecond());
+
+        //No ticks with blocks or evaluations since the last sample.
+        now[0] += TimeUnit.SECONDS.toNanos(1);
+        stats.sample();
+        assertEquals(0, stats.getBlocksPerTick());
+        assertEquals(0, stats.getEvaluationsPerSecond());
+
+        //Sampling twice at the same time gives no rate instead of dividing by zero.
+        stats.sample();
+        assertEquals(0, stats.getEvaluationsPerSecond());
+    }
+}
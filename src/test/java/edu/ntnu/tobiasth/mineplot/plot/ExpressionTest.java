@@ -0,0 +1,191 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class ExpressionTest:
+ * Checks that evaluating many values in one call gives exactly the same values as getValue.
+ */
+class ExpressionTest {
+    private static final String[] EXPRESSIONS = {
+            "x",
+            "2*x^2-3*x+1",
+            "1/x",
+            "sqrt(x)",
+            "log(x)+log10(x)",
+            "exp(-x^2)",
+            "sin(x)*cos(x)-tan(x)",
+            "asin(x)+acos(x)+atan(x)",
+            "cbrt(x)^3",
+            "x^x",
+            "-x^-1.5",
+            "(x+1)*(x-1)/(x^2-1)",
+    };
+
+    //Every subexpression is used more than once, so the optimizer shares them.
+    private static final String[] SHARED_EXPRESSIONS = {
+            "sin(x)*sin(x)+sin(x)",
+            "(x+1)^2+(x+1)^3+sqrt(x+1)",
+            "exp(x/2)/(1+exp(x/2))+log(1+exp(x/2))",
+    };
+
+    @Test
+    void treeMatchesScalar() throws Expression.MalformedExpressionException {
+        double[] values = getValues(1000);
+        for(String exp : EXPRESSIONS)
+            assertBulkMatchesScalar(exp, values);
+    }
+
+    @Test
+    void sharedTreeMatchesScalar() throws Expression.MalformedExpressionException {
+        double[] values = getValues(1000);
+        for(String exp : SHARED_EXPRESSIONS) {
+            assertBulkMatchesScalar(exp, values);
+            assertTrue(new Expression(exp, 'x').getRemovedNodeCount() > 0, exp);
+        }
+    }
+
+    @Test
+    void compiledMatchesScalar() throws Expression.MalformedExpressionException {
+        double[] values = getValues(1000);
+        for(String exp : EXPRESSIONS)
+            assertCompiledMatchesScalar(exp, values);
+        for(String exp : SHARED_EXPRESSIONS)
+            assertCompiledMatchesScalar(exp, values);
+    }
+
+    @Test
+    void compilesAfterThreshold() throws Expression.MalformedExpressionException {
+        //The first call passes the threshold and is still evaluated by the tree, the second is compiled.
+        double[] values = getValues(5000);
+        for(String exp : SHARED_EXPRESSIONS) {
+            Expression bulk = new Expression(exp, 'x');
+            double[] tree = new double[values.length];
+            bulk.evaluate(values, tree);
+            assertTrue(bulk.isCompiled(), exp);
+
+            double[] compiled = new double[values.length];
+            bulk.evaluate(values, compiled);
+            assertBitsEqual(exp, tree, compiled);
+        }
+    }
+
+    @Test
+    void twoVariablesMatchScalar() throws Expression.MalformedExpressionException {
+        double[] xs = getValues(500);
+        double[] ys = new double[xs.length];
+        for(int i = 0; i < ys.length; i++)
+            ys[i] = xs[xs.length - 1 - i] * 0.7;
+
+        for(String exp : new String[] {"x^2+y^2", "sin(x*y)+sin(x*y)^2", "log(x)/y", "atan(y/x)"}) {
+            Expression scalar = new Expression(exp, 'x', 'y');
+            double[] expected = new double[xs.length];
+            for(int i = 0; i < xs.length; i++)
+                expected[i] = scalar.getValue(xs[i], ys[i]);
+
+            Expression bulk = new Expression(exp, 'x', 'y');
+            double[] tree = new double[xs.length];
+            bulk.evaluate(xs, ys, tree);
+            assertBitsEqual(exp, expected, tree);
+
+            assertTrue(bulk.compile(), exp);
+            double[] compiled = new double[xs.length];
+            bulk.evaluate(xs, ys, compiled);
+            assertBitsEqual(exp, expected, compiled);
+        }
+    }
+
+    @Test
+    void sharedPartIsCalculatedOncePerValue() {
+        //(v*v)+(v*v), where v counts how many times it is calculated.
+        int[] calls = new int[1];
+        ExpressionNode counted = new ExpressionNode() {
+            @Override
+            double evaluate(double x, double y, double[] shared) {
+                calls[0]++;
+                return x;
+            }
+
+            @Override
+            void evaluate(double[] xValues, double[] yValues, double[] out, int length, double[][] buffers, int level) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            Interval evaluate(Interval x, Interval y) {
+                return x;
+            }
+
+            @Override
+            int getBufferCount() {
+                return 0;
+            }
+        };
+        ExpressionNode.Shared value = new ExpressionNode.Shared(0, counted);
+        ExpressionNode.Shared square = new ExpressionNode.Shared(1, new ExpressionNode.Operation(Expression.Operator.MULTIPLY, value, value));
+        ExpressionNode root = new ExpressionNode.Operation(Expression.Operator.ADD, square, square);
+
+        double[] shared = {Double.NaN, Double.NaN};
+        assertEquals(18, root.evaluate(3, 0, shared));
+        assertEquals(1, calls[0]);
+        assertArrayEquals(new double[] {3, 9}, shared);
+    }
+
+    @Test
+    void shortArraysAreRejected() throws Expression.MalformedExpressionException {
+        Expression expression = new Expression("x", 'x');
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate(new double[4], new double[3]));
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate(new double[4], new double[3], new double[4]));
+    }
+
+    private static void assertBulkMatchesScalar(String exp, double[] values) throws Expression.MalformedExpressionException {
+        Expression bulk = new Expression(exp, 'x');
+        double[] out = new double[values.length];
+        bulk.evaluate(values, out);
+        assertFalse(bulk.isCompiled(), exp);
+        assertBitsEqual(exp, getScalarValues(exp, values), out);
+    }
+
+    private static void assertCompiledMatchesScalar(String exp, double[] values) throws Expression.MalformedExpressionException {
+        Expression bulk = new Expression(exp, 'x');
+        assertTrue(bulk.compile(), exp);
+        double[] out = new double[values.length];
+        bulk.evaluate(values, out);
+        assertBitsEqual(exp, getScalarValues(exp, values), out);
+    }
+
+    private static double[] getScalarValues(String exp, double[] values) throws Expression.MalformedExpressionException {
+        //A new expression is used, so the scalar values come from the tree and not from the compiled expression.
+        Expression scalar = new Expression(exp, 'x');
+        double[] expected = new double[values.length];
+        for(int i = 0; i < values.length; i++)
+            expected[i] = scalar.getValue(values[i]);
+
+        assertFalse(scalar.isCompiled(), exp);
+        return expected;
+    }
+
+    private static double[] getValues(int count) {
+        //Evenly spread values, with zero, negative values and values outside the domain of some functions.
+        double[] values = new double[count];
+        for(int i = 0; i < count; i++)
+            values[i] = -5 + 10.0 * i / (count - 1);
+
+        values[count / 2] = 0;
+        values[1] = Double.NaN;
+        values[2] = Double.POSITIVE_INFINITY;
+        values[3] = Double.NEGATIVE_INFINITY;
+        values[4] = -0.0;
+        return values;
+    }
+
+    private static void assertBitsEqual(String exp, double[] expected, double[] actual) {
+        for(int i = 0; i < expected.length; i++) {
+            int index = i;
+            assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(actual[i]),
+                    () -> exp + " differs from getValue at index " + index);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import edu.ntnu.tobiasth.mineplot.canvas.Grid;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class FunctionTest:
+ * Checks the blocks functions fill on a small canvas from -3 to 3 in both directions, with x = 0 and y = 0 in the middle.
+ */
+class FunctionTest {
+    private static final int BLOCKS = 24;
+    private static final int MIDDLE = BLOCKS / 2;
+    private static final Grid GRID = new Grid(new ValueRange(-3, 3, -3, 3), BLOCKS, BLOCKS);
+
+    @Test
+    void lineFillsDiagonal() throws Expression.MalformedExpressionException {
+        BitSet expected = new BitSet();
+        for(int i = 0; i <= BLOCKS; i++)
+            expected.set(GRID.getIndex(i, i));
+
+        assertEquals(expected, getCells("x"));
+    }
+
+    @Test
+    void constantFillsRow() throws Expression.MalformedExpressionException {
+        BitSet expected = new BitSet();
+        for(int column = 0; column <= BLOCKS; column++)
+            expected.set(GRID.getIndex(column, 16));
+
+        assertEquals(expected, getCells("1"));
+    }
+
+    @Test
+    void steepFunctionHasNoGaps() throws Expression.MalformedExpressionException {
+        //The function crosses the whole canvas within three columns, so most rows are only reached by filling.
+        BitSet cells = getCells("10*x");
+        for(int row = 0; row <= BLOCKS; row++)
+            assertTrue(hasCellInRow(cells, row), "row " + row);
+
+        assertEquals(1, countComponents(cells));
+        assertEquals(cells, getCells("10*x"));
+    }
+
+    @Test
+    void reciprocalIsNotJoinedAcrossPole() throws Expression.MalformedExpressionException {
+        BitSet cells = getCells("1/x");
+        assertEquals(2, countComponents(cells));
+
+        //Each branch stays in its own quarter of the canvas.
+        for(int index = cells.nextSetBit(0); index >= 0; index = cells.nextSetBit(index + 1)) {
+            int column = index % GRID.getWidth();
+            int row = index / GRID.getWidth();
+            assertTrue((column < MIDDLE && row < MIDDLE) || (column > MIDDLE && row > MIDDLE), "column " + column + ", row " + row);
+        }
+    }
+
+    @Test
+    void tangentIsNotJoinedAcrossPoles() throws Expression.MalformedExpressionException {
+        //There are poles at -pi/2 and pi/2, so there are three branches.
+        BitSet cells = getCells("tan(x)");
+        assertEquals(3, countComponents(cells));
+
+        //A branch joined across a pole would fill a whole column.
+        for(int column = 0; column <= BLOCKS; column++) {
+            int filled = 0;
+            for(int row = 0; row <= BLOCKS; row++) {
+                if(cells.get(GRID.getIndex(column, row)))
+                    filled++;
+            }
+            assertTrue(filled <= BLOCKS / 2, "column " + column);
+        }
+
+        for(int row = 0; row <= BLOCKS; row++)
+            assertTrue(hasCellInRow(cells, row), "row " + row);
+    }
+
+    @Test
+    void squareRootStartsAtZero() throws Expression.MalformedExpressionException {
+        BitSet cells = getCells("sqrt(x)");
+        assertEquals(1, countComponents(cells));
+        assertTrue(cells.get(GRID.getIndex(MIDDLE, MIDDLE)));
+
+        for(int column = 0; column <= BLOCKS; column++)
+            assertEquals(column >= MIDDLE, hasCellInColumn(cells, column), "column " + column);
+    }
+
+    @Test
+    void logarithmGoesDownToBottom() throws Expression.MalformedExpressionException {
+        BitSet cells = getCells("log(x)");
+        assertEquals(1, countComponents(cells));
+
+        //The logarithm is -infinity at zero, so the branch near the y-axis reaches the bottom of the canvas.
+        assertTrue(hasCellInRow(cells, 0));
+        for(int row = 0; row <= getRow(Math.log(3)); row++)
+            assertTrue(hasCellInRow(cells, row), "row " + row);
+
+        //The middle column reaches from x = -0.125 to 0.125, so the logarithm is drawn in it, but not left of it.
+        for(int column = 0; column < MIDDLE; column++)
+            assertFalse(hasCellInColumn(cells, column), "column " + column);
+        assertTrue(hasCellInColumn(cells, MIDDLE));
+    }
+
+    @Test
+    void undefinedFunctionFillsNothing() throws Expression.MalformedExpressionException {
+        assertTrue(getCells("sqrt(-1-x^2)").isEmpty());
+        assertTrue(getCells("x+100").isEmpty());
+    }
+
+    private static BitSet getCells(String exp) throws Expression.MalformedExpressionException {
+        BitSet cells = new Function("f", Material.STONE, new Expression(exp, 'x')).getCells(GRID);
+        assertTrue(cells.length() <= GRID.getWidth() * GRID.getHeight(), exp);
+        return cells;
+    }
+
+    private static int getRow(double y) {
+        return (int) GRID.getRow(y);
+    }
+
+    private static boolean hasCellInRow(BitSet cells, int row) {
+        int first = GRID.getIndex(0, row);
+        int next = cells.nextSetBit(first);
+        return next >= 0 && next < first + GRID.getWidth();
+    }
+
+    private static boolean hasCellInColumn(BitSet cells, int column) {
+        for(int row = 0; row <= BLOCKS; row++) {
+            if(cells.get(GRID.getIndex(column, row)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Count the groups of filled blocks, where blocks touching at a side or a corner are in the same group.
+     */
+    private static int countComponents(BitSet cells) {
+        BitSet left = (BitSet) cells.clone();
+        int components = 0;
+        for(int start = left.nextSetBit(0); start >= 0; start = left.nextSetBit(0)) {
+            components++;
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+            left.clear(start);
+            while(!queue.isEmpty()) {
+                int index = queue.poll();
+                int column = index % GRID.getWidth();
+                int row = index / GRID.getWidth();
+                for(int dx = -1; dx <= 1; dx++) {
+                    for(int dy = -1; dy <= 1; dy++) {
+                        if(GRID.contains(column + dx, row + dy) && left.get(GRID.getIndex(column + dx, row + dy))) {
+                            left.clear(GRID.getIndex(column + dx, row + dy));
+                            queue.add(GRID.getIndex(column + dx, row + dy));
+                        }
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
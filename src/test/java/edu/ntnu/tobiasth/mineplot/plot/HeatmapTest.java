@@ -0,0 +1,84 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import org.bukkit.Material;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class HeatmapTest:
+ * Checks that heatmaps give the same blocks for every tile size, and the same values as getValue.
+ */
+class HeatmapTest {
+    private static final ValueRange VALUE_RANGE = new ValueRange(-3, 3, -2, 2);
+    private static final int WIDTH = 201;
+    private static final int HEIGHT = 101;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void tileSizeDoesNotChangeResult() throws Expression.MalformedExpressionException {
+        for(String exp : new String[] {"sin(x)*cos(y)", "x^2-y^2", "log(x*y)", "1/(x-y)"}) {
+            Material[] expected = render(exp, 1, Material.BLACK_CONCRETE);
+            for(int tileRows : new int[] {2, 3, 8, 16, 64, HEIGHT, 1000})
+                assertArrayEquals(expected, render(exp, tileRows, Material.BLACK_CONCRETE), exp + " with tiles of " + tileRows + " rows");
+        }
+    }
+
+    @Test
+    void matchesScalarValues() throws Expression.MalformedExpressionException {
+        String exp = "sqrt(x)+y^3";
+        Expression scalar = new Expression(exp, 'x', 'y');
+        double[] values = new double[WIDTH * HEIGHT];
+        for(int row = 0; row < HEIGHT; row++) {
+            double y = VALUE_RANGE.getMinY() + (VALUE_RANGE.getMaxY() - VALUE_RANGE.getMinY()) * row / (HEIGHT - 1);
+            for(int column = 0; column < WIDTH; column++) {
+                double x = VALUE_RANGE.getMinX() + (VALUE_RANGE.getMaxX() - VALUE_RANGE.getMinX()) * column / (WIDTH - 1);
+                values[row * WIDTH + column] = scalar.getValue(x, y);
+            }
+        }
+
+        assertArrayEquals(Colormap.DEFAULT.map(values, Material.BLACK_CONCRETE), render(exp, 8, Material.BLACK_CONCRETE));
+    }
+
+    @Test
+    void undefinedValuesAreLeftUncovered() throws Expression.MalformedExpressionException {
+        //sqrt(x) is undefined left of the y-axis, which is the first 100 columns.
+        Material[] raster = render("sqrt(x)+y", 8, null);
+        for(int row = 0; row < HEIGHT; row++) {
+            for(int column = 0; column < WIDTH; column++) {
+                Material material = raster[row * WIDTH + column];
+                assertEquals(column < WIDTH / 2, material == null, "column " + column + ", row " + row);
+            }
+        }
+    }
+
+    @Test
+    void colormapUsesLowestAndHighestColor() {
+        Colormap colormap = new Colormap(Material.BLUE_CONCRETE, Material.WHITE_CONCRETE, Material.RED_CONCRETE);
+        Material[] colors = colormap.map(new double[] {-1, 0, 1, Double.NaN, Double.POSITIVE_INFINITY}, Material.BLACK_CONCRETE);
+
+        assertArrayEquals(new Material[] {Material.BLUE_CONCRETE, Material.WHITE_CONCRETE, Material.RED_CONCRETE,
+                Material.BLACK_CONCRETE, Material.BLACK_CONCRETE}, colors);
+        assertEquals(Material.RED_CONCRETE, colormap.getHighest());
+    }
+
+    private static Material[] render(String exp, int tileRows, Material undefined) throws Expression.MalformedExpressionException {
+        Heatmap heatmap = new Heatmap("test", new Expression(exp, 'x', 'y'), Colormap.DEFAULT, pool, tileRows);
+        return heatmap.render(VALUE_RANGE, WIDTH, HEIGHT, undefined);
+    }
+}
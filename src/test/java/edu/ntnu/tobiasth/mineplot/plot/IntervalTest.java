@@ -0,0 +1,109 @@
+package edu.ntnu.tobiasth.mineplot.plot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class IntervalTest:
+ * Checks that the range of an expression contains every value getValue gives in it.
+ * Plots skip the parts of the graph where the range is outside the view, so a range that is too small hides blocks.
+ */
+class IntervalTest {
+    private static final String[] FUNCTIONS = {"sqrt", "cbrt", "exp", "log10", "log", "asin", "acos", "atan", "sin", "cos", "tan"};
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "^"};
+
+    @Test
+    void powerOfUndefinedBaseToZero() throws Expression.MalformedExpressionException {
+        //NaN to the power of zero is 1, so the range is not empty even though the base is never defined.
+        assertContains("(log(-3))^x", -1, 1);
+        assertContains("(log(-3))^x", 0, 0);
+        assertContains("-1^-1.7^x-1.9", -1, 1);
+        assertContains("sqrt(-1)^(x*0)", -2, 2);
+    }
+
+    @Test
+    void logarithmOfZero() throws Expression.MalformedExpressionException {
+        assertContains("atan(log(x))", -1, 1);
+        assertContains("atan(log(x))", 0, 1);
+        assertContains("atan(log10(x))", -0.5, 0.5);
+        assertContains("exp(log(x))", 0, 2);
+
+        Interval range = new Expression("log(x)", 'x').getRange(0, 1);
+        assertEquals(Double.NEGATIVE_INFINITY, range.getMin());
+        assertFalse(range.isContinuous());
+        assertTrue(new Expression("log(x)", 'x').getRange(-1, -0.5).isEmpty());
+    }
+
+    @Test
+    void knownExpressions() throws Expression.MalformedExpressionException {
+        String[] expressions = {"x^2", "x^3-x", "1/x", "x^-2", "sqrt(x)", "sin(x)", "cos(3*x)", "tan(x)",
+                "asin(x)+acos(x)", "2^x", "x^0.5", "x^x", "exp(-x^2)", "(x+1)*(x-1)", "-x^-1.5"};
+        double[][] ranges = {{-3, 3}, {0, 1}, {-0.5, 0.25}, {1, 2}, {-10, -9}, {0, 0}};
+        for(String exp : expressions) {
+            for(double[] range : ranges)
+                assertContains(exp, range[0], range[1]);
+        }
+    }
+
+    @Test
+    void randomExpressions() throws Expression.MalformedExpressionException {
+        Random random = new Random(42);
+        double[][] ranges = {{-3, 3}, {-1, 0}, {0, 1}, {0.5, 2}, {-2.5, -1}, {0, 0}, {1, 1}};
+        int checked = 0;
+        while(checked < 5000) {
+            Expression expression;
+            String exp = generate(random, 3);
+            try {
+                expression = new Expression(exp, 'x');
+            }
+            catch(Expression.MalformedExpressionException e) {
+                continue;
+            }
+
+            double[] range = ranges[random.nextInt(ranges.length)];
+            assertContains(expression, range[0], range[1]);
+            checked++;
+        }
+    }
+
+    private static void assertContains(String exp, double from, double to) throws Expression.MalformedExpressionException {
+        assertContains(new Expression(exp, 'x'), from, to);
+    }
+
+    private static void assertContains(Expression expression, double from, double to) {
+        Interval range = expression.getRange(from, to);
+        int samples = 200;
+        for(int i = 0; i <= samples; i++) {
+            double x = i == samples ? to : from + (to - from) * i / samples;
+            checkValue(expression, range, from, to, x);
+        }
+
+        //Integers are where negative bases can be raised, and zero is where logarithms go to -infinity.
+        for(double x = Math.ceil(from); x <= to; x++)
+            checkValue(expression, range, from, to, x);
+    }
+
+    private static void checkValue(Expression expression, Interval range, double from, double to, double x) {
+        double value = expression.getValue(x);
+        if(Double.isNaN(value))
+            return;
+
+        assertFalse(range.isEmpty() || value < range.getMin() || value > range.getMax(),
+                () -> expression + " is " + value + " at x = " + x + ", outside its range ["
+                        + range.getMin() + ", " + range.getMax() + "] over [" + from + ", " + to + "]");
+    }
+
+    private static String generate(Random random, int depth) {
+        switch(depth <= 0 ? random.nextInt(2) : random.nextInt(6)) {
+            case 0: return "x";
+            case 1: return String.valueOf(random.nextInt(4) == 0 ? random.nextInt(10) : Math.round(random.nextDouble() * 50) / 10.0);
+            case 2: return FUNCTIONS[random.nextInt(FUNCTIONS.length)] + "(" + generate(random, depth - 1) + ")";
+            case 3: return "(" + generate(random, depth - 1) + ")";
+            case 4: return "-" + generate(random, depth - 1);
+            default: return generate(random, depth - 1) + OPERATORS[random.nextInt(OPERATORS.length)] + generate(random, depth - 1);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package edu.ntnu.tobiasth.mineplot.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class CanvasStoreTest:
+ * Checks that saved canvases are read back byte for byte, also after reopening, compacting and a cut off write.
+ */
+class CanvasStoreTest {
+    private static final UUID OWNER = new UUID(1, 2);
+    private static final UUID OTHER = new UUID(3, 4);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void savedCanvasesAreReadBack() throws IOException {
+        Path path = folder.resolve("canvases.dat");
+        byte[] a = getData(1, 70000);
+        byte[] b = getData(2, 10);
+
+        CanvasStore store = new CanvasStore(path);
+        store.write(OWNER, "a", 1, a);
+        store.write(OWNER, "b", 2, b);
+        store.write(OTHER, "a", 3, new byte[0]);
+        assertArrayEquals(a, store.read(OWNER, "a"));
+        assertArrayEquals(Arrays.copyOf(a, 100), store.read(OWNER, "a", 100));
+        store.close();
+
+        store = new CanvasStore(path);
+        assertArrayEquals(a, store.read(OWNER, "a"));
+        assertArrayEquals(b, store.read(OWNER, "b"));
+        assertArrayEquals(new byte[0], store.read(OTHER, "a"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), store.getNames(OWNER));
+        assertEquals(new HashSet<>(Arrays.asList(OWNER, OTHER)), store.getOwners());
+        assertEquals(2, store.getSequence(OWNER, "b"));
+        assertEquals(3, store.getLastSequence());
+        assertEquals(a.length + b.length, store.getLiveBytes());
+        assertNull(store.read(OWNER, "c"));
+        store.close();
+    }
+
+    @Test
+    void laterRecordsReplaceEarlierOnes() throws IOException {
+        Path path = folder.resolve("canvases.dat");
+        byte[] second = getData(4, 500);
+
+        CanvasStore store = new CanvasStore(path);
+        store.write(OWNER, "a", 1, getData(3, 500));
+        store.write(OWNER, "a", 2, second);
+        store.write(OWNER, "b", 3, getData(5, 200));
+        store.remove(OWNER, "b", 4);
+        store.close();
+
+        store = new CanvasStore(path);
+        assertArrayEquals(second, store.read(OWNER, "a"));
+        assertFalse(store.contains(OWNER, "b"));
+        assertNull(store.read(OWNER, "b"));
+        assertEquals(4, store.getSequence(OWNER, "b"));
+        assertEquals(Arrays.asList("a"), Arrays.asList(store.getNames(OWNER).toArray()));
+        assertEquals(second.length, store.getLiveBytes());
+        assertTrue(store.getWastedBytes() > 700);
+        store.close();
+    }
+
+    @Test
+    void compactKeepsSavedCanvases() throws IOException {
+        Path path = folder.resolve("canvases.dat");
+        CanvasStore store = new CanvasStore(path);
+        for(int i = 0; i < 10; i++) {
+            store.write(OWNER, "a", i, getData(i, 1000));
+            store.write(OTHER, "b" + i, i, getData(100 + i, 100));
+        }
+        store.remove(OTHER, "b3", 20);
+
+        long before = Files.size(path);
+        store.compact();
+        assertTrue(Files.size(path) < before);
+        assertEquals(getHeaderBytes("a") + 9 * getHeaderBytes("b0"), store.getWastedBytes());
+        assertFalse(Files.exists(folder.resolve("canvases.dat.tmp")));
+        assertArrayEquals(getData(9, 1000), store.read(OWNER, "a"));
+
+        //Records written after compacting go to the new file.
+        store.write(OWNER, "c", 21, getData(21, 10));
+        store.close();
+
+        store = new CanvasStore(path);
+        assertArrayEquals(getData(9, 1000), store.read(OWNER, "a"));
+        assertEquals(9, store.getSequence(OWNER, "a"));
+        assertArrayEquals(getData(21, 10), store.read(OWNER, "c"));
+        for(int i = 0; i < 10; i++) {
+            if(i == 3)
+                assertFalse(store.contains(OTHER, "b3"));
+            else
+                assertArrayEquals(getData(100 + i, 100), store.read(OTHER, "b" + i));
+        }
+        store.close();
+    }
+
+    @Test
+    void cutOffRecordIsDropped() throws IOException {
+        Path path = folder.resolve("canvases.dat");
+        CanvasStore store = new CanvasStore(path);
+        store.write(OWNER, "a", 1, getData(1, 300));
+        store.close();
+        long size = Files.size(path);
+
+        //A record that says it is 256 bytes long, but was cut off after three of them.
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 1, 2, 3}));
+        }
+
+        store = new CanvasStore(path);
+        assertArrayEquals(getData(1, 300), store.read(OWNER, "a"));
+        assertEquals(size, Files.size(path));
+
+        store.write(OWNER, "b", 2, getData(2, 30));
+        store.close();
+
+        store = new CanvasStore(path);
+        assertArrayEquals(getData(1, 300), store.read(OWNER, "a"));
+        assertArrayEquals(getData(2, 30), store.read(OWNER, "b"));
+        store.close();
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path path = folder.resolve("other.dat");
+        Files.write(path, "Not a canvas store.".getBytes("UTF-8"));
+        assertThrows(IOException.class, () -> new CanvasStore(path));
+    }
+
+    /**
+     * Get the size of a record without its canvas, which is its length, type, sequence number, owner and name.
+     */
+    private static int getHeaderBytes(String name) {
+        return 4 + 1 + 8 + 16 + 2 + name.length();
+    }
+
+    private static byte[] getData(int seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
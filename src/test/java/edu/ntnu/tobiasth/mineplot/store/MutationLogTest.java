@@ -0,0 +1,138 @@
+package edu.ntnu.tobiasth.mineplot.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class MutationLogTest:
+ * Checks that logged changes are read back after a restart, and that a damaged end of the log is dropped.
+ */
+class MutationLogTest {
+    private static final UUID OWNER = new UUID(1, 2);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void recordsAreReadBack() throws IOException {
+        Path path = folder.resolve("canvases.log");
+        MutationLog log = new MutationLog(path, 5);
+        assertEquals(6, log.append(OWNER, "a", new byte[] {1, 2, 3}));
+        assertEquals(7, log.append(OWNER, "b", new byte[0]));
+        assertEquals(8, log.append(new UUID(3, 4), "æøå", new byte[] {4}));
+        log.close();
+
+        log = new MutationLog(path, 0);
+        List<MutationLog.Record> records = log.getRecords();
+        assertEquals(3, records.size());
+        assertRecord(records.get(0), 6, OWNER, "a", new byte[] {1, 2, 3});
+        assertRecord(records.get(1), 7, OWNER, "b", new byte[0]);
+        assertRecord(records.get(2), 8, new UUID(3, 4), "æøå", new byte[] {4});
+
+        //New records continue after the highest sequence number in the file.
+        assertEquals(8, log.getLastSequence());
+        assertEquals(9, log.append(OWNER, "a", new byte[0]));
+        log.close();
+    }
+
+    @Test
+    void appendingToClosedLogFails() throws IOException {
+        MutationLog log = new MutationLog(folder.resolve("canvases.log"), 0);
+        log.close();
+        assertThrows(IllegalStateException.class, () -> log.append(OWNER, "a", new byte[0]));
+    }
+
+    @Test
+    void cutOffRecordIsDropped() throws IOException {
+        Path path = folder.resolve("canvases.log");
+        long size = writeRecords(path, 3);
+
+        //Cut the last record off in the middle, like a crash while it was written.
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        MutationLog log = new MutationLog(path, 0);
+        assertEquals(2, log.getRecords().size());
+        assertEquals(2, log.getLastSequence());
+        assertEquals(size / 3 * 2, Files.size(path));
+
+        assertEquals(3, log.append(OWNER, "c", new byte[] {9}));
+        log.close();
+
+        log = new MutationLog(path, 0);
+        assertEquals(3, log.getRecords().size());
+        assertRecord(log.getRecords().get(2), 3, OWNER, "c", new byte[] {9});
+        log.close();
+    }
+
+    @Test
+    void damagedRecordAndRestAreDropped() throws IOException {
+        Path path = folder.resolve("canvases.log");
+        long size = writeRecords(path, 3);
+
+        //Change the last byte of the second record, so its checksum is wrong.
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), size / 3 * 2 - 1);
+        }
+
+        MutationLog log = new MutationLog(path, 0);
+        assertEquals(1, log.getRecords().size());
+        assertEquals(size / 3, Files.size(path));
+        log.close();
+    }
+
+    @Test
+    void compactKeepsNeededRecords() throws IOException {
+        Path path = folder.resolve("canvases.log");
+        long size = writeRecords(path, 4);
+
+        MutationLog log = new MutationLog(path, 0);
+        log.compact(record -> record.getSequence() % 2 == 0);
+        assertEquals(2, log.getRecords().size());
+        assertEquals(size / 2, Files.size(path));
+        assertFalse(Files.exists(folder.resolve("canvases.log.tmp")));
+
+        //Records added after compacting go to the new file.
+        assertEquals(5, log.append(OWNER, "e", new byte[0]));
+        log.close();
+
+        log = new MutationLog(path, 0);
+        assertEquals(3, log.getRecords().size());
+        assertEquals(2, log.getRecords().get(0).getSequence());
+        assertEquals(4, log.getRecords().get(1).getSequence());
+        assertEquals(5, log.getRecords().get(2).getSequence());
+        log.close();
+    }
+
+    /**
+     * Write records of the same size, with sequence numbers from 1.
+     * @return Size of the file.
+     */
+    private static long writeRecords(Path path, int count) throws IOException {
+        MutationLog log = new MutationLog(path, 0);
+        for(int i = 0; i < count; i++)
+            log.append(OWNER, "c" + i, new byte[] {(byte) i, 0, 0, 0, 0, 0, 0, 0});
+        log.close();
+
+        return Files.size(path);
+    }
+
+    private static void assertRecord(MutationLog.Record record, long sequence, UUID owner, String name, byte[] data) {
+        assertEquals(sequence, record.getSequence());
+        assertEquals(owner, record.getOwner());
+        assertEquals(name, record.getName());
+        assertArrayEquals(data, record.getData());
+    }
+}
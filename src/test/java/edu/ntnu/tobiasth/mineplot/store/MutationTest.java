@@ -0,0 +1,144 @@
+package edu.ntnu.tobiasth.mineplot.store;
+
+import edu.ntnu.tobiasth.mineplot.TestWorld;
+import edu.ntnu.tobiasth.mineplot.canvas.BlockScheduler;
+import edu.ntnu.tobiasth.mineplot.canvas.Canvas;
+import edu.ntnu.tobiasth.mineplot.canvas.ValueRange;
+import edu.ntnu.tobiasth.mineplot.plot.ExpressionCache;
+import edu.ntnu.tobiasth.mineplot.plot.Function;
+import edu.ntnu.tobiasth.mineplot.plot.Plot;
+import edu.ntnu.tobiasth.mineplot.plot.Point;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class MutationTest:
+ * Checks that applying the logged changes to a saved canvas gives the canvas as it was before a crash.
+ */
+class MutationTest {
+    private static final UUID OWNER = new UUID(1, 2);
+    private final ExpressionCache expressions = new ExpressionCache(8);
+    private final Canvas.PlotReader plotReader = in -> Plot.read(in, expressions, ForkJoinPool.commonPool(), 8);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void loggedChangesAreReplayed() throws Exception {
+        World world = new TestWorld().getWorld();
+        BlockScheduler scheduler = new BlockScheduler(1000);
+        Path path = folder.resolve("canvases.log");
+        MutationLog log = new MutationLog(path, 0);
+
+        Canvas canvas = new Canvas("c", new ValueRange(-3, 3, -3, 3), new Location(world, 0, 0, 0), new Location(world, 60, 60, 0),
+                Material.WHITE_CONCRETE, scheduler, OWNER);
+        canvas.build();
+        log.append(OWNER, "c", Mutation.canvasAdd(canvas));
+
+        Function f = new Function("f", Material.STONE, expressions.get("x", 'x'));
+        Function g = new Function("g", Material.RED_CONCRETE, expressions.get("-x", 'x'));
+        Point p = new Point("p", Material.BLUE_CONCRETE, 0, 0);
+        for(Plot plot : new Plot[] {f, g, p}) {
+            canvas.addPlot(plot);
+            plot.draw(canvas);
+            log.append(OWNER, "c", Mutation.plotAdd(plot));
+        }
+
+        //The saved canvas has the first four changes, and the log has the rest too.
+        scheduler.flush();
+        byte[] saved = write(canvas);
+        long savedSequence = log.getLastSequence();
+
+        canvas.movePlot(p, 0);
+        log.append(OWNER, "c", Mutation.plotMove(p, 0));
+        canvas.recolorPlot(f, Material.LIME_CONCRETE);
+        log.append(OWNER, "c", Mutation.plotRecolor(f, Material.LIME_CONCRETE));
+        canvas.removePlot(g);
+        log.append(OWNER, "c", Mutation.plotRemove(g));
+        log.append(OWNER, "other", Mutation.canvasClear());
+        log.close();
+        scheduler.flush();
+
+        //Replay after a restart, from the saved canvas and from nothing.
+        log = new MutationLog(path, 0);
+        ArrayList<byte[]> newer = new ArrayList<>();
+        ArrayList<byte[]> all = new ArrayList<>();
+        for(MutationLog.Record record : log.getRecords()) {
+            if(!record.getName().equals("c"))
+                continue;
+
+            all.add(record.getData());
+            if(record.getSequence() > savedSequence)
+                newer.add(record.getData());
+        }
+        log.close();
+
+        //Blocks that are already in the world are not placed again, but are still counted as drawn.
+        BlockScheduler replayScheduler = new BlockScheduler(1000);
+        Canvas snapshot = Canvas.read(new DataInputStream(new ByteArrayInputStream(saved)), replayScheduler, OWNER, plotReader);
+        Canvas fromSnapshot = Mutation.apply(snapshot, newer, replayScheduler, OWNER, plotReader);
+        Canvas fromNothing = Mutation.apply(null, all, replayScheduler, OWNER, plotReader);
+        replayScheduler.flush();
+
+        assertEquals(getPlotNames(canvas), getPlotNames(fromSnapshot));
+        assertEquals(getPlotNames(canvas), getPlotNames(fromNothing));
+        assertEquals(Material.LIME_CONCRETE, fromSnapshot.getPlots()[1].getMaterial());
+        assertArrayEquals(write(canvas), write(fromSnapshot));
+
+        //Replaying from nothing never draws the removed plot, so only the palette of what was drawn can differ.
+        assertArrayEquals(writeDefinition(canvas), writeDefinition(fromNothing));
+        for(int i = 0; i < canvas.getPlots().length; i++)
+            assertEquals(canvas.getPlots()[i].getMaterial(), fromNothing.getPlots()[i].getMaterial());
+    }
+
+    @Test
+    void removedCanvasIsGone() throws Exception {
+        World world = new TestWorld().getWorld();
+        Canvas canvas = new Canvas("c", new ValueRange(-1, 1, -1, 1), new Location(world, 0, 0, 0), new Location(world, 8, 8, 0),
+                Material.WHITE_CONCRETE, new BlockScheduler(1000), OWNER);
+
+        ArrayList<byte[]> changes = new ArrayList<>();
+        changes.add(Mutation.canvasAdd(canvas));
+        changes.add(Mutation.canvasRemove());
+        assertNull(Mutation.apply(null, changes, new BlockScheduler(1000), OWNER, plotReader));
+
+        //A change to a canvas that was never added can't be applied.
+        changes.remove(0);
+        changes.add(Mutation.canvasClear());
+        assertThrows(IOException.class, () -> Mutation.apply(null, changes, new BlockScheduler(1000), OWNER, plotReader));
+    }
+
+    private static String getPlotNames(Canvas canvas) {
+        StringBuilder names = new StringBuilder();
+        for(Plot plot : canvas.getPlots())
+            names.append(plot.getName()).append(' ');
+        return names.toString();
+    }
+
+    private static byte[] writeDefinition(Canvas canvas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        canvas.writeDefinition(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static byte[] write(Canvas canvas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        canvas.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}